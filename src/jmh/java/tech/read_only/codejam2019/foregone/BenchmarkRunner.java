@@ -0,0 +1,18 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Takes the usual JMH arguments, but always adds the GC profiler, so that every
+ * result reports its allocation rate ({@code gc.alloc.rate.norm}) alongside its time.
+ */
+public class BenchmarkRunner {
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
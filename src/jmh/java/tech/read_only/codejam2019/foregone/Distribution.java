@@ -0,0 +1,52 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.util.Random;
+
+/**
+ * How the digits of generated benchmark inputs are chosen. The leading digit is never zero.
+ */
+public enum Distribution {
+    /** Every digit uniformly random. */
+    RANDOM {
+        @Override
+        int nextDigit(final Random random) {
+            return random.nextInt(10);
+        }
+    },
+    /** Nothing but 4s, the worst case for finding and clearing them. */
+    ALL_FOURS {
+        @Override
+        int nextDigit(final Random random) {
+            return 4;
+        }
+    },
+    /** Half of the digits are 4s. */
+    FOUR_DENSE {
+        @Override
+        int nextDigit(final Random random) {
+            return random.nextBoolean() ? 4 : random.nextInt(10);
+        }
+    },
+    /** No 4s at all. */
+    FOUR_FREE {
+        @Override
+        int nextDigit(final Random random) {
+            final int digit = random.nextInt(9);
+            return digit < 4 ? digit : digit + 1;
+        }
+    };
+
+    abstract int nextDigit(Random random);
+
+    public String digits(final int count, final Random random) {
+        final char[] digits = new char[count];
+        for (int i = 0; i < count; i++) {
+            int digit = this.nextDigit(random);
+            while (i == 0 && digit == 0) {
+                digit = this.nextDigit(random);
+            }
+            digits[i] = (char)('0' + digit);
+        }
+        return new String(digits);
+    }
+}
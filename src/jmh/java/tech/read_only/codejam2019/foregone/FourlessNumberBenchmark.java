@@ -0,0 +1,114 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static tech.read_only.codejam2019.foregone.FourlessNumber.NAN;
+
+/**
+ * The individual operations of {@link FourlessNumber}.
+ *
+ * The solver methods change the number they are called on, so each of those benchmarks first restores it from the
+ * original with {@link FourlessNumber#copyFrom(FourlessNumber)}. Subtract the {@link #copy()} benchmark for the cost
+ * of the operation alone.
+ *
+ * The {@code ALL_FOURS} runs of {@link #nextNumber()} and {@link #prevNumber()} should grow linearly with the number of
+ * digits; a digit rescanned for every 4 cleared shows up there as quadratic growth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FourlessNumberBenchmark {
+    @Param({ "1", "100", "10000", "1000000", "10000000" })
+    public int digits;
+
+    @Param({ "RANDOM", "ALL_FOURS", "FOUR_DENSE", "FOUR_FREE" })
+    public Distribution distribution;
+
+    @Param({ "BYTES", "PACKED", "DIRECT" })
+    public FourlessNumber.Storage storage;
+
+    private String input;
+    private byte[] ascii;
+    private FourlessNumber original;
+    private FourlessNumber work;
+    private FourlessNumber difference;
+    private ByteBuffer out;
+
+    @Setup
+    public void setUp() {
+        this.input = this.distribution.digits(this.digits, new Random(this.digits));
+        this.ascii = this.input.getBytes(StandardCharsets.US_ASCII);
+        this.original = new FourlessNumber(this.digits, this.storage);
+        this.original.init(this.input);
+        this.work = new FourlessNumber(this.original);
+        this.difference = new FourlessNumber(this.digits, this.storage);
+        this.out = ByteBuffer.allocate(this.digits);
+    }
+
+    @Benchmark
+    public FourlessNumber init() {
+        this.work.init(this.input);
+        return this.work;
+    }
+
+    @Benchmark
+    public FourlessNumber initAscii() {
+        this.work.init(this.ascii, 0, this.ascii.length);
+        return this.work;
+    }
+
+    @Benchmark
+    public FourlessNumber copy() {
+        this.work.copyFrom(this.original);
+        return this.work;
+    }
+
+    @Benchmark
+    public FourlessNumber nextNumber() {
+        this.work.copyFrom(this.original);
+        return this.work.nextNumber(NAN, this.difference);
+    }
+
+    @Benchmark
+    public FourlessNumber prevNumber() {
+        this.work.copyFrom(this.original);
+        return this.work.prevNumber(NAN, this.difference);
+    }
+
+    @Benchmark
+    public FourlessNumber increment() {
+        this.work.copyFrom(this.original);
+        this.work.increment();
+        return this.work;
+    }
+
+    @Benchmark
+    public String toStringDigits() {
+        return this.original.toString();
+    }
+
+    @Benchmark
+    public ByteBuffer writeDigits() {
+        this.out.clear();
+        this.original.writeDigits(0, this.out);
+        return this.out;
+    }
+}
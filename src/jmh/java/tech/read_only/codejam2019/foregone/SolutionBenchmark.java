@@ -0,0 +1,102 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole runs of {@link Solution}, over generated input files.
+ *
+ * The search takes time quadratic in the number of digits for some inputs, so the default digit counts stay small;
+ * pass e.g. {@code -p digits=10000000 -p distribution=ALL_FOURS} for the large cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolutionBenchmark {
+    @Param({ "1", "18", "1000", "10000" })
+    public int digits;
+
+    @Param({ "RANDOM", "ALL_FOURS", "FOUR_DENSE", "FOUR_FREE" })
+    public Distribution distribution;
+
+    @Param({ "1", "100" })
+    public int cases;
+
+    private String[] inputs;
+    private File inputFile;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Random random = new Random(this.digits * 31L + this.cases);
+        final StringBuilder sb = new StringBuilder().append(this.cases).append('\n');
+        this.inputs = new String[this.cases];
+        for (int i = 0; i < this.cases; i++) {
+            this.inputs[i] = this.distribution.digits(this.digits, random);
+            sb.append(this.inputs[i]).append('\n');
+        }
+
+        this.inputFile = File.createTempFile("foregone", ".in");
+        this.inputFile.deleteOnExit();
+        Files.write(this.inputFile.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+        this.stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {}
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {}
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(this.stdout);
+        this.inputFile.delete();
+    }
+
+    /**
+     * Everything, from mapping the input file to writing the results.
+     */
+    @Benchmark
+    public void endToEnd() {
+        Solution.main(new String[]{ this.inputFile.getPath() });
+    }
+
+    /**
+     * Only splitting the numbers and searching, without any I/O.
+     */
+    @Benchmark
+    public void splitAndSolve(final Blackhole blackhole) {
+        for (String input : this.inputs) {
+            final FourlessPair halves = SearchSolver.INSTANCE.split(input);
+            SearchSolver.INSTANCE.solve(halves);
+            blackhole.consume(halves);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Solver} engines on the same inputs, from split to answer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({ "search", "digitwise" })
+    public String solver;
+
+    @Param({ "18", "1000", "10000" })
+    public int digits;
+
+    @Param({ "RANDOM", "ALL_FOURS", "FOUR_DENSE", "FOUR_FREE" })
+    public Distribution distribution;
+
+    private Solver engine;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        this.engine = Solver.forName(this.solver);
+        this.input = this.distribution.digits(this.digits, new Random(this.digits));
+    }
+
+    @Benchmark
+    public FourlessPair solve() {
+        final FourlessPair pair = this.engine.split(this.input);
+        this.engine.solve(pair);
+        return pair;
+    }
+}
@@ -0,0 +1,103 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.util.Arrays;
+
+/**
+ * One digit per byte. Simple and fast to address, at the cost of wasting half of every byte.
+ *
+ * Forbidden digits are found by scanning, not tracked as they are written: every digit of every number gets written,
+ * while only the few that a search moves past a forbidden digit get scanned for one.
+ */
+final class ByteDigits implements DigitStorage {
+    private final byte[] num;
+    private final int forbiddenMask;
+
+    ByteDigits(final int length, final DigitRules rules) {
+        this(new byte[length], rules.getForbiddenMask());
+    }
+
+    private ByteDigits(final byte[] num, final int forbiddenMask) {
+        this.num = num;
+        this.forbiddenMask = forbiddenMask;
+    }
+
+    @Override
+    public int length() {
+        return this.num.length;
+    }
+
+    @Override
+    public byte get(final int index) {
+        return this.num[index];
+    }
+
+    @Override
+    public void set(final int index, final byte value) {
+        this.num[index] = value;
+    }
+
+    @Override
+    public void fill(final int from, final int to, final byte value) {
+        Arrays.fill(this.num, from, to, value);
+    }
+
+    @Override
+    public int indexOf(final byte value, final int from) {
+        for (int i = from; i < this.num.length; i++) {
+            if (this.num[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfForbidden(final int from) {
+        for (int i = from; i < this.num.length; i++) {
+            if (this.isForbidden(this.num[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfNonZero(final int from) {
+        for (int i = from; i < this.num.length; i++) {
+            if (this.num[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void toAscii(final int from, final int to, final byte[] dst, final int offset) {
+        for (int i = from; i < to; i++) {
+            dst[offset + i - from] = (byte)('0' + this.num[i]);
+        }
+    }
+
+    /**
+     * Digits are written to their own bytes, so writers keeping to their own runs never meet.
+     */
+    @Override
+    public boolean allowConcurrentSets(final int from) {
+        return true;
+    }
+
+    @Override
+    public void copyFrom(final DigitStorage other) {
+        final ByteDigits source = (ByteDigits)other;
+        System.arraycopy(source.num, 0, this.num, 0, this.num.length);
+    }
+
+    @Override
+    public ByteDigits copy() {
+        return new ByteDigits(this.num.clone(), this.forbiddenMask);
+    }
+
+    private boolean isForbidden(final byte value) {
+        return (this.forbiddenMask >>> value & 1) != 0;
+    }
+}
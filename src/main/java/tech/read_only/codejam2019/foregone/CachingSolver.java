@@ -0,0 +1,250 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Wraps another solver with a bounded cache of solved answers, keyed by the input's digits, so that repeated inputs
+ * are only solved once.
+ *
+ * The cache is weighted by digit count rather than by entries, so a few huge inputs cannot hold more memory than
+ * many small ones; the least recently used answers are evicted first. An input larger than the whole cache is never
+ * kept.
+ *
+ * Answers are kept as {@link FourlessValue}s, frozen from a pair once it has been solved, so the cache shares nothing
+ * mutable between threads. On a hit, {@code split} returns a new {@link FourlessPair#isFrozen() frozen} pair holding
+ * the cached values, and {@code solve} leaves it alone. Every pair returned belongs to its caller, who may close it.
+ */
+public final class CachingSolver implements Solver {
+    private static final ThreadLocal<Key> PROBE = ThreadLocal.withInitial(() -> new Key(new byte[16], 0, 0));
+
+    private final Solver delegate;
+    private final long maxWeight;
+
+    // access-ordered, so that iteration starts at the least recently used
+    private final LinkedHashMap<Key, Answer> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<FourlessPair, Key> unsolved = new ConcurrentHashMap<>();
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight The most digits of input to keep solutions for, in total.
+     * @throws IllegalArgumentException If the weight is not positive.
+     */
+    public CachingSolver(final Solver delegate, final long maxWeight) {
+        checkArgument(maxWeight > 0, "Cache must hold at least one digit.");
+
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public FourlessPair split(final String number) {
+        final Key probe = PROBE.get();
+        probe.setDigits(number);
+
+        final Answer cached = this.lookUp(probe);
+        return cached != null ? cached.toPair() : this.miss(this.delegate.split(number), probe);
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+        final Key probe = PROBE.get();
+        probe.setDigits(digits, offset, length);
+
+        final Answer cached = this.lookUp(probe);
+        return cached != null ? cached.toPair() : this.miss(this.delegate.split(digits, offset, length), probe);
+    }
+
+    /**
+     * Solves pairs that missed the cache, and then caches them. Cached pairs were solved already, and are skipped.
+     */
+    @Override
+    public void solve(final FourlessPair pair) {
+        if (pair.isFrozen()) return;
+
+        final Key key = this.unsolved.remove(pair);
+        this.delegate.solve(pair);
+
+        if (key != null) {
+            // frozen outside the lock, since it is a pass over the digits
+            this.add(key, new Answer(pair.getFirst().freeze(), pair.getSecond().freeze()));
+        }
+    }
+
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+    public synchronized int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * @return The digits of input held in the cache, in total.
+     */
+    public synchronized long weight() {
+        return this.weight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "cache: " + this.hits + " hits, " + this.misses + " misses, " + this.evictions + " evictions, " +
+               this.cache.size() + " entries holding " + this.weight + " of " + this.maxWeight + " digits\n";
+    }
+
+    @Nullable
+    private synchronized Answer lookUp(final Key probe) {
+        final Answer cached = this.cache.get(probe);
+        if (cached != null) {
+            this.hits++;
+        }
+        else {
+            this.misses++;
+        }
+        return cached;
+    }
+
+    private FourlessPair miss(final FourlessPair pair, final Key probe) {
+        if (probe.weight() <= this.maxWeight) {
+            this.unsolved.put(pair, probe.copy());
+        }
+        return pair;
+    }
+
+    private synchronized void add(final Key key, final Answer answer) {
+        // another thread may have solved the same input meanwhile
+        if (this.cache.putIfAbsent(key, answer) != null) return;
+
+        this.weight += key.weight();
+        final Iterator<Key> eldest = this.cache.keySet().iterator();
+        while (this.weight > this.maxWeight) {
+            final Key evicted = eldest.next();
+            eldest.remove();
+            this.weight -= evicted.weight();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * A cached answer. Immutable, so it can be handed to any thread.
+     */
+    private static final class Answer {
+        final FourlessValue first;
+        final FourlessValue second;
+
+        Answer(final FourlessValue first, final FourlessValue second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        FourlessPair toPair() {
+            return new FourlessPair(this.first, this.second);
+        }
+    }
+
+    /**
+     * The significant digits of an input, as ASCII, and their hash. The hash is computed in the same pass that
+     * copies and validates the digits, and is never recomputed.
+     *
+     * Each thread reuses one key to probe the cache with, so that hits allocate nothing; it is only copied to be
+     * stored.
+     */
+    private static final class Key {
+        private byte[] digits;
+        private int length;
+        private int hash;
+
+        Key(final byte[] digits, final int length, final int hash) {
+            this.digits = digits;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        void setDigits(final CharSequence number) {
+            int start = 0;
+            while (start < number.length() && number.charAt(start) == '0') {
+                start++;
+            }
+            this.ensureCapacity(number.length() - start);
+
+            int h = 0;
+            for (int i = start; i < number.length(); i++) {
+                final byte digit = FourlessNumber.digitOf(number.charAt(i));
+                this.digits[i - start] = (byte)('0' + digit);
+                h = 31 * h + digit;
+            }
+            this.hash = h;
+        }
+
+        void setDigits(final ByteBuffer buffer, final int offset, final int length) {
+            int start = offset;
+            while (start < offset + length && buffer.get(start) == '0') {
+                start++;
+            }
+            this.ensureCapacity(offset + length - start);
+
+            int h = 0;
+            for (int i = start; i < offset + length; i++) {
+                final byte digit = FourlessNumber.digitOf(buffer.get(i));
+                this.digits[i - start] = (byte)('0' + digit);
+                h = 31 * h + digit;
+            }
+            this.hash = h;
+        }
+
+        Key copy() {
+            return new Key(Arrays.copyOf(this.digits, this.length), this.length, this.hash);
+        }
+
+        /**
+         * Zero still takes up an entry, so it weighs as much as one digit.
+         */
+        long weight() {
+            return Math.max(this.length, 1);
+        }
+
+        private void ensureCapacity(final int length) {
+            if (this.digits.length < length) {
+                this.digits = new byte[Math.max(length, this.digits.length * 2)];
+            }
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key)o;
+            if (this.hash != other.hash || this.length != other.length) return false;
+            for (int i = 0; i < this.length; i++) {
+                if (this.digits[i] != other.digits[i]) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Streams cases through three stages at once: a reader thread parses and splits each number as soon as it arrives,
+ * solver threads solve them, and the calling thread writes the results in case order. While one case is being solved,
+ * the next is already being read, and the one before written, so each case costs about as long as its slowest stage
+ * rather than all three.
+ *
+ * The stages are connected by queues of at most {@code depth} cases. A reader that gets ahead waits for the solvers,
+ * and they in turn for the writer, so an input of any length, from a pipe or a socket, is streamed through in bounded
+ * memory. Results are flushed whenever the writer would otherwise wait, so that each is written as soon as it can be.
+ *
+ * Once written, a pair may be handed back to the reader, which splits a later case of the same length into it rather
+ * than allocating; see {@link Solver#split(java.nio.ByteBuffer, int, int, FourlessPair)}.
+ */
+public final class CasePipeline {
+    // marks the end of the cases, on every queue
+    private static final Case END = new Case(0, null);
+
+    private final Solver solver;
+    private final int solverThreads;
+    private final int depth;
+    private final ResultWriter writer;
+    private final boolean recycle;
+
+    /**
+     * @param solverThreads The number of threads to solve cases on.
+     * @param depth The maximum number of cases waiting between any two stages.
+     * @param recycle Whether to reuse each pair once it is written, or else {@link FourlessPair#close()} it. Only safe
+     *                if nothing else holds on to the pairs.
+     */
+    public CasePipeline(final Solver solver, final int solverThreads, final int depth, final ResultWriter writer,
+                        final boolean recycle) {
+        checkArgument(solverThreads > 0, "Must solve on at least one thread.");
+        checkArgument(depth > 0, "Queues must hold at least one case.");
+
+        this.solver = solver;
+        this.solverThreads = solverThreads;
+        this.depth = depth;
+        this.writer = writer;
+        this.recycle = recycle;
+    }
+
+    /**
+     * Read the number of cases and then each case from the input, and write every result, returning once the last
+     * has been written. The input remains owned by the caller.
+     *
+     * @throws ExecutionException If a case could not be read or solved. Every case before it has been written, and
+     *                            the other stages have stopped.
+     */
+    public void run(final ReadableByteChannel input) throws InterruptedException, ExecutionException {
+        // every case is queued to be written before it is queued to be solved, so the writer sees them in order
+        final BlockingQueue<Case> toSolve = new ArrayBlockingQueue<>(this.depth);
+        final BlockingQueue<Case> toWrite = new ArrayBlockingQueue<>(this.depth);
+        final BlockingQueue<FourlessPair> written = new ArrayBlockingQueue<>(this.depth);
+
+        final Thread[] stages = new Thread[this.solverThreads + 1];
+        stages[0] = new Thread(() -> this.read(input, toSolve, toWrite, written), "case-reader");
+        for (int i = 1; i < stages.length; i++) {
+            stages[i] = new Thread(() -> this.solve(toSolve), "case-solver-" + i);
+        }
+        for (Thread stage : stages) {
+            stage.setDaemon(true);
+            stage.start();
+        }
+
+        boolean finished = false;
+        try {
+            this.write(toWrite, written);
+            finished = true;
+        }
+        finally {
+            for (Thread stage : stages) {
+                // on success every stage has already seen the end, and interrupting the reader would close the input
+                if (finished) {
+                    stage.join();
+                }
+                else {
+                    // a case that is being solved cannot be interrupted, so it is left to finish on its own
+                    stage.interrupt();
+                }
+            }
+            if (this.recycle) {
+                for (FourlessPair pair; (pair = written.poll()) != null; ) {
+                    pair.close();
+                }
+            }
+        }
+    }
+
+    private void read(final ReadableByteChannel channel, final BlockingQueue<Case> toSolve,
+                      final BlockingQueue<Case> toWrite, final BlockingQueue<FourlessPair> written) {
+        try {
+            try {
+                final StreamInput input = new StreamInput(channel);
+                final int numCases = input.nextInt();
+                for (int i = 1; i <= numCases; i++) {
+                    if (!input.nextToken()) {
+                        throw new EOFException("Expected " + numCases + " cases, but found only " + (i - 1));
+                    }
+
+                    final FourlessPair pair = this.split(input, written.poll());
+                    final Case next = new Case(i, pair);
+                    toWrite.put(next);
+                    toSolve.put(next);
+                }
+            }
+            catch (InterruptedException e) {
+                // the writer has given up
+                return;
+            }
+            catch (Exception e) {
+                final Case failed = new Case(0, null);
+                failed.result.completeExceptionally(e);
+                toWrite.put(failed);
+            }
+
+            toWrite.put(END);
+            for (int i = 0; i < this.solverThreads; i++) {
+                toSolve.put(END);
+            }
+        }
+        catch (InterruptedException e) {
+            // the writer has given up
+        }
+    }
+
+    private FourlessPair split(final StreamInput input, @Nullable final FourlessPair reuse) {
+        if (reuse == null) {
+            return this.solver.split(input.buffer(), input.tokenOffset(), input.tokenLength());
+        }
+
+        final FourlessPair pair = this.solver.split(input.buffer(), input.tokenOffset(), input.tokenLength(), reuse);
+        if (pair != reuse) {
+            reuse.close();
+        }
+        return pair;
+    }
+
+    private void solve(final BlockingQueue<Case> toSolve) {
+        try {
+            for (Case next; (next = toSolve.take()) != END; ) {
+                try {
+                    this.solver.solve(next.pair);
+                    next.result.complete(next.pair);
+                }
+                catch (RuntimeException | Error e) {
+                    next.result.completeExceptionally(e);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // the writer has given up
+        }
+        finally {
+            ScratchPool.get().release();
+        }
+    }
+
+    private void write(final BlockingQueue<Case> toWrite, final BlockingQueue<FourlessPair> written)
+            throws InterruptedException, ExecutionException {
+        while (true) {
+            Case next = toWrite.poll();
+            if (next == null || !next.result.isDone()) {
+                // nothing is ready yet, so write out what is, rather than holding it back until the buffer fills
+                this.writer.flush();
+                if (next == null) {
+                    next = toWrite.take();
+                }
+            }
+            if (next == END) return;
+
+            final FourlessPair pair = next.result.get();
+            this.writer.writeCase(next.number, pair);
+            if (this.recycle && !written.offer(pair)) {
+                pair.close();
+            }
+        }
+    }
+
+    /**
+     * A case on its way through the pipeline. The result completes once it has been solved.
+     */
+    private static final class Case {
+        final int number;
+        @Nullable final FourlessPair pair;
+        final CompletableFuture<FourlessPair> result = new CompletableFuture<>();
+
+        Case(final int number, @Nullable final FourlessPair pair) {
+            this.number = number;
+            this.pair = pair;
+        }
+    }
+}
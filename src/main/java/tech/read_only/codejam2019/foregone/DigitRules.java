@@ -0,0 +1,188 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The base a {@link FourlessNumber} is written in, and the digits it may not contain: {@link #FOURLESS} for the
+ * original problem, but any base up to 10 will do, and any set of digits that leaves every number a pair to split
+ * into. That is, every forbidden digit must be the sum of two allowed ones, which rules out 0 and 1.
+ *
+ * Everything the solvers need to know about the digits is looked up in small tables built here once, rather than
+ * tested digit by digit: which digits are forbidden, the nearest allowed digit above and below each one, how to split
+ * a forbidden digit into two allowed ones, the digit and carry of every sum of two digits, and how the allowed digits
+ * map onto the digits of a base that has only them, which is how fourless numbers are counted. The powers of the base
+ * are kept too, for solving numbers that fit in a long. Rules are immutable, so numbers with different rules can be
+ * solved side by side on any number of threads.
+ */
+public final class DigitRules {
+    public static final int MAX_RADIX = 10;
+
+    public static final DigitRules FOURLESS = new DigitRules(10, 1 << 4);
+
+    private final int radix;
+    private final int forbiddenMask;
+
+    // by digit: whether it is forbidden
+    final boolean[] forbidden;
+    // by digit: the smallest allowed digit above it, or the radix if there is none
+    final byte[] nextAllowed;
+    // by digit: the largest allowed digit below it, or -1 if there is none
+    final byte[] prevAllowed;
+    // by forbidden digit: the smallest allowed digit that leaves an allowed digit when taken from it
+    final byte[] split;
+    final byte maxAllowed;
+
+    // the allowed digits in order, and by digit: how many of them are smaller
+    final byte[] allowed;
+    final byte[] allowedBelow;
+
+    // by the sum of two digits and a carry, from 0 to twice the radix less one: its digit, and its carry out.
+    // Differences index these too, offset by the radix, with a carry out meaning no borrow.
+    final byte[] sumDigit;
+    final byte[] sumCarry;
+
+    // by place: the radix to that power, up to the most places of a number that always fits in a long
+    final long[] powers;
+
+    private DigitRules(final int radix, final int forbiddenMask) {
+        this.radix = radix;
+        this.forbiddenMask = forbiddenMask;
+
+        this.forbidden = new boolean[radix];
+        for (int digit = 0; digit < radix; digit++) {
+            this.forbidden[digit] = (forbiddenMask >>> digit & 1) != 0;
+        }
+
+        this.nextAllowed = new byte[radix];
+        byte next = (byte)radix;
+        for (int digit = radix - 1; digit >= 0; digit--) {
+            this.nextAllowed[digit] = next;
+            if (!this.forbidden[digit]) {
+                next = (byte)digit;
+            }
+        }
+
+        this.prevAllowed = new byte[radix];
+        byte prev = -1;
+        for (int digit = 0; digit < radix; digit++) {
+            this.prevAllowed[digit] = prev;
+            if (!this.forbidden[digit]) {
+                prev = (byte)digit;
+            }
+        }
+        this.maxAllowed = prev;
+
+        this.split = new byte[radix];
+        for (int digit = 0; digit < radix; digit++) {
+            this.split[digit] = -1;
+            for (int moved = 1; moved < digit && this.forbidden[digit]; moved++) {
+                if (!this.forbidden[moved] && !this.forbidden[digit - moved]) {
+                    this.split[digit] = (byte)moved;
+                    break;
+                }
+            }
+        }
+
+        this.allowed = new byte[radix - Integer.bitCount(forbiddenMask)];
+        this.allowedBelow = new byte[radix];
+        for (int digit = 0, count = 0; digit < radix; digit++) {
+            this.allowedBelow[digit] = (byte)count;
+            if (!this.forbidden[digit]) {
+                this.allowed[count++] = (byte)digit;
+            }
+        }
+
+        this.sumDigit = new byte[2 * radix];
+        this.sumCarry = new byte[2 * radix];
+        for (int sum = 0; sum < 2 * radix; sum++) {
+            this.sumDigit[sum] = (byte)(sum % radix);
+            this.sumCarry[sum] = (byte)(sum / radix);
+        }
+
+        this.powers = new long[FourlessLong.MAX_DIGITS + 1];
+        this.powers[0] = 1;
+        for (int place = 1; place < this.powers.length; place++) {
+            this.powers[place] = this.powers[place - 1] * radix;
+        }
+    }
+
+    /**
+     * @param radix The base, from 2 to {@link #MAX_RADIX}.
+     * @param forbiddenDigits The digits to leave out. Each must be the sum of two that are left in.
+     * @throws IllegalArgumentException If the radix is out of range, or some numbers would have no pair.
+     */
+    public static DigitRules of(final int radix, final int... forbiddenDigits) {
+        checkArgument(radix >= 2 && radix <= MAX_RADIX, "Radix must be from 2 to %s.", MAX_RADIX);
+
+        int mask = 0;
+        for (int digit : forbiddenDigits) {
+            checkArgument(digit >= 0 && digit < radix, "Forbidden digits must be from 0 to %s.", radix - 1);
+            mask |= 1 << digit;
+        }
+        if (mask == FOURLESS.forbiddenMask && radix == FOURLESS.radix) return FOURLESS;
+
+        // a single digit is its own pair's only digits, so the split must exist for there to be an answer at all;
+        // the digitwise solver shows that it is then enough
+        final DigitRules rules = new DigitRules(radix, mask);
+        for (int digit : forbiddenDigits) {
+            checkArgument(rules.split[digit] > 0, "%s has no pair in %s.", digit, rules);
+        }
+        return rules;
+    }
+
+    /**
+     * As {@link #of(int, int...)}, for forbidden digits written as a string, such as {@code "4"} or {@code "47"}.
+     */
+    public static DigitRules parse(final int radix, final String forbiddenDigits) {
+        final int[] digits = new int[forbiddenDigits.length()];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = FourlessNumber.digitOf(forbiddenDigits.charAt(i));
+        }
+        return of(radix, digits);
+    }
+
+    public int getRadix() {
+        return this.radix;
+    }
+
+    /**
+     * @return The forbidden digits, as a bit per digit.
+     */
+    public int getForbiddenMask() {
+        return this.forbiddenMask;
+    }
+
+    public boolean isForbidden(final int digit) {
+        return this.forbidden[digit];
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DigitRules)) return false;
+
+        final DigitRules other = (DigitRules)o;
+        return this.radix == other.radix && this.forbiddenMask == other.forbiddenMask;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.radix + this.forbiddenMask;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("base ").append(this.radix);
+        if (this.forbiddenMask != 0) {
+            sb.append(" without ");
+        }
+        for (int digit = 0; digit < this.radix; digit++) {
+            if (this.forbidden[digit]) {
+                sb.append(digit);
+            }
+        }
+        return sb.toString();
+    }
+}
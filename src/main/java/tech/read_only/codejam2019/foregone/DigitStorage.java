@@ -0,0 +1,67 @@
+package tech.read_only.codejam2019.foregone;
+
+/**
+ * Backing store for the digits of a {@link FourlessNumber}. Index 0 is the most significant digit.
+ *
+ * Implementations only hold digits, and know which of them the number's {@link DigitRules} forbid so that they can
+ * find them quickly; all of the bookkeeping about where the forbidden digits and the leading zeroes are is left to
+ * the number itself.
+ */
+interface DigitStorage {
+    int length();
+
+    byte get(int index);
+
+    void set(int index, byte value);
+
+    /**
+     * Set every digit from {@code from} (inclusive) to {@code to} (exclusive) to the value.
+     */
+    void fill(int from, int to, byte value);
+
+    /**
+     * @return The lowest index at or after {@code from} holding the value, or -1 if there is none.
+     */
+    int indexOf(byte value, int from);
+
+    /**
+     * @return The lowest index at or after {@code from} holding a forbidden digit, or -1 if there is none.
+     */
+    int indexOfForbidden(int from);
+
+    /**
+     * @return The lowest index at or after {@code from} holding a non-zero digit, or -1 if there is none.
+     */
+    int indexOfNonZero(int from);
+
+    /**
+     * Write the digits from {@code from} (inclusive) to {@code to} (exclusive) as ASCII characters.
+     */
+    void toAscii(int from, int to, byte[] dst, int offset);
+
+    /**
+     * Overwrite these digits with the other's, which must be the same kind of storage with the same length.
+     */
+    void copyFrom(DigitStorage other);
+
+    /**
+     * @return A deep copy of these digits.
+     */
+    DigitStorage copy();
+
+    /**
+     * Get ready for several threads to {@link #set(int, byte)} and {@link #fill(int, int, byte)} the digits from
+     * {@code from} on at once, each keeping to its own runs of digits that start and end on multiples of 64. Only
+     * reads may happen alongside. Does nothing, and returns false, by default.
+     *
+     * @return Whether this storage allows that. If not, the digits must only be written from one thread at a time.
+     */
+    default boolean allowConcurrentSets(int from) {
+        return false;
+    }
+
+    /**
+     * Release any memory held outside the heap. The digits must not be used afterwards. Does nothing by default.
+     */
+    default void close() {}
+}
@@ -0,0 +1,78 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds any valid pair, in one pass over the digits: every 4 becomes a 3 in the first number and a 1 in the second.
+ * Unlike {@link SearchSolver}, the cost is always linear in the number of digits, but the two numbers are usually far
+ * apart. A number with no 4s is returned whole, paired with zero.
+ *
+ * Other rules work the same way; see {@link FourlessNumber#moveFoursInto(FourlessNumber)}.
+ */
+public final class DigitwiseSolver implements Solver {
+    public static final DigitwiseSolver INSTANCE = new DigitwiseSolver(DigitRules.FOURLESS);
+
+    private final DigitRules rules;
+    @Nullable private final ForkJoinPool pool;
+
+    /**
+     * @param rules The digits to avoid, and the base of the input.
+     */
+    public DigitwiseSolver(final DigitRules rules) {
+        this(rules, null);
+    }
+
+    /**
+     * @param pool Works through the digits of huge numbers in chunks; see {@link FourlessNumber#setPool(ForkJoinPool)}.
+     *             Remains owned by the caller.
+     */
+    public DigitwiseSolver(final DigitRules rules, @Nullable final ForkJoinPool pool) {
+        this.rules = rules;
+        this.pool = pool;
+    }
+
+    @Override
+    public FourlessPair split(final String number) {
+        final FourlessNumber whole = new FourlessNumber(number.length(), this.rules);
+        whole.setPool(this.pool);
+        whole.init(number);
+
+        return new FourlessPair(whole, new FourlessNumber(number.length(), whole.getStorage(), this.rules));
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+        final FourlessNumber whole = new FourlessNumber(length, this.rules);
+        whole.setPool(this.pool);
+        whole.init(digits, offset, length);
+
+        return new FourlessPair(whole, new FourlessNumber(length, whole.getStorage(), this.rules));
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length, final FourlessPair reuse) {
+        final FourlessNumber whole = reuse.getFirst();
+        if (whole.getMaxDigits() != length || !whole.getRules().equals(this.rules)) {
+            return this.split(digits, offset, length);
+        }
+
+        whole.setPool(this.pool);
+        whole.reset(digits, offset, length);
+        reuse.getSecond().clear();
+
+        reuse.recordWork(0, 0);
+        return reuse;
+    }
+
+    @Override
+    public void solve(final FourlessPair pair) {
+        final FourlessNumber whole = pair.getFirst();
+        final long touchedBefore = whole.digitsTouched();
+
+        whole.moveFoursInto(pair.getSecond());
+
+        pair.recordWork(1, whole.digitsTouched() - touchedBefore);
+    }
+}
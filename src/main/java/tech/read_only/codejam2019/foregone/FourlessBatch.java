@@ -0,0 +1,357 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Many cases solved together, for when most of them are short. Rather than a {@link FourlessPair} of two
+ * {@link FourlessNumber}s each, with their storage and the search's differences, every case is a slice of two shared
+ * digit arrays, one for each half, found through parallel arrays of offsets and lengths. A 15-digit case then costs 38
+ * bytes instead of a few hundred, and solving a batch is a tight loop over contiguous digits, with no objects made.
+ *
+ * Each case is halved as it is added, and {@link #solve()} then runs the same search as {@link SearchSolver} on every
+ * case not yet solved, with the same results: the first half is rounded up to the next fourless number, the second
+ * is decreased by as much and rounded down, and so on until neither needs to move.
+ *
+ * Not thread-safe. Digits are kept as values, most significant first, as in {@link ByteDigits}.
+ */
+public final class FourlessBatch {
+    private final DigitRules rules;
+
+    // by case: where its digits start in both digit arrays, and how many there are
+    private int[] offsets;
+    private int[] lengths;
+    private int size;
+    private int solved;
+
+    // the first and second halves of every case, one after the other
+    private byte[] first;
+    private byte[] second;
+    private int digits;
+
+    // scratch for the case being solved: a copy of the digits being rounded, and the difference to pass on, which is
+    // zero above diffTop
+    private byte[] old = new byte[0];
+    private byte[] difference = new byte[0];
+    private int diffTop;
+
+    public FourlessBatch(final DigitRules rules) {
+        this(rules, 16, 256);
+    }
+
+    /**
+     * @param cases How many cases to make room for up front.
+     * @param digits How many digits to make room for up front, over all cases.
+     * @throws IllegalArgumentException If either is negative.
+     */
+    public FourlessBatch(final DigitRules rules, final int cases, final int digits) {
+        checkArgument(cases >= 0 && digits >= 0, "Capacity cannot be negative.");
+
+        this.rules = rules;
+        this.offsets = new int[cases];
+        this.lengths = new int[cases];
+        this.first = new byte[digits];
+        this.second = new byte[digits];
+    }
+
+    // region cases
+
+    /**
+     * Add a case, halving it into the two halves as it is read.
+     *
+     * @param number A string consisting of only digits of the rules' radix.
+     * @return The index of the case in this batch.
+     * @throws IllegalArgumentException If a character is not a digit.
+     */
+    public int add(final CharSequence number) {
+        final int length = number.length();
+        final int offset = this.reserve(length);
+        final int radix = this.rules.getRadix();
+        int remainder = 0;
+        for (int i = 0; i < length; i++) {
+            final int value = remainder * radix + FourlessNumber.digitOf(number.charAt(i), radix);
+            this.second[offset + i] = (byte)(value >>> 1);
+            remainder = value & 1;
+        }
+        return this.commit(offset, length, remainder);
+    }
+
+    /**
+     * As {@link #add(CharSequence)}, for a slice of ASCII digits in a buffer.
+     *
+     * @param buffer Holds the digits; its position and limit are ignored.
+     */
+    public int add(final ByteBuffer buffer, final int offset, final int length) {
+        checkPositionIndexes(offset, offset + length, buffer.capacity());
+
+        final int start = this.reserve(length);
+        final int radix = this.rules.getRadix();
+        int remainder = 0;
+        for (int i = 0; i < length; i++) {
+            final int value = remainder * radix + FourlessNumber.digitOf(buffer.get(offset + i), radix);
+            this.second[start + i] = (byte)(value >>> 1);
+            remainder = value & 1;
+        }
+        return this.commit(start, length, remainder);
+    }
+
+    /**
+     * @return The number of cases added since the last {@link #clear()}.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Forget every case, keeping the arrays for the next batch.
+     */
+    public void clear() {
+        this.size = 0;
+        this.solved = 0;
+        this.digits = 0;
+    }
+
+    /**
+     * @return The first, larger, half of the case, written as {@link FourlessNumber#toString()} would.
+     */
+    public String getFirst(final int index) {
+        checkElementIndex(index, this.size);
+        return toString(this.first, this.offsets[index], this.lengths[index]);
+    }
+
+    /**
+     * @return The second, smaller, half of the case, written as {@link FourlessNumber#toString()} would.
+     */
+    public String getSecond(final int index) {
+        checkElementIndex(index, this.size);
+        return toString(this.second, this.offsets[index], this.lengths[index]);
+    }
+
+    /**
+     * Write every case's result line, numbering them on from the given case number.
+     */
+    public void writeTo(final ResultWriter writer, final int firstCaseNumber) {
+        for (int i = 0; i < this.size; i++) {
+            writer.writeCase(firstCaseNumber + i, this.first, this.second, this.offsets[i], this.lengths[i]);
+        }
+    }
+
+    /**
+     * @return The offset to write a case of this length at, after making room for it.
+     */
+    private int reserve(final int length) {
+        if (this.size == this.offsets.length) {
+            final int cases = Math.max(16, this.size * 2);
+            this.offsets = Arrays.copyOf(this.offsets, cases);
+            this.lengths = Arrays.copyOf(this.lengths, cases);
+        }
+        if (this.digits + length > this.first.length) {
+            final int digits = Math.max(this.digits + length, this.first.length * 2);
+            this.first = Arrays.copyOf(this.first, digits);
+            this.second = Arrays.copyOf(this.second, digits);
+        }
+        return this.digits;
+    }
+
+    /**
+     * Record the case whose second half was just written, making its first half that plus the remainder.
+     */
+    private int commit(final int offset, final int length, final int remainder) {
+        System.arraycopy(this.second, offset, this.first, offset, length);
+        int carry = remainder;
+        for (int i = offset + length - 1; i >= offset && carry != 0; i--) {
+            final int sum = this.first[i] + carry;
+            carry = this.rules.sumCarry[sum];
+            this.first[i] = this.rules.sumDigit[sum];
+        }
+
+        this.offsets[this.size] = offset;
+        this.lengths[this.size] = length;
+        this.digits += length;
+        return this.size++;
+    }
+
+    private static String toString(final byte[] digits, final int offset, final int length) {
+        int start = offset;
+        while (start < offset + length && digits[start] == 0) {
+            start++;
+        }
+
+        final char[] chars = new char[offset + length - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char)('0' + digits[start + i]);
+        }
+        return new String(chars);
+    }
+
+    // endregion cases
+
+    // region solver
+
+    /**
+     * Solve every case added since the last call.
+     *
+     * @throws ArithmeticException If a case cannot be rounded within its digits, which a valid case never needs.
+     */
+    public void solve() {
+        for (; this.solved < this.size; this.solved++) {
+            this.solveCase(this.offsets[this.solved], this.lengths[this.solved]);
+        }
+    }
+
+    private void solveCase(final int offset, final int length) {
+        if (this.old.length < length) {
+            this.old = new byte[length];
+            this.difference = new byte[length];
+        }
+        Arrays.fill(this.difference, 0, length, (byte)0);
+        this.diffTop = length;
+
+        // as SearchSolver: round the first half up, and then pass each difference back and forth until it is zero
+        this.roundUp(this.first, offset, length);
+        while (true) {
+            this.subtractDifference(this.second, offset, length);
+            this.roundDown(this.second, offset, length);
+            if (this.diffTop == length) return;
+
+            this.addDifference(this.first, offset, length);
+            this.roundUp(this.first, offset, length);
+            if (this.diffTop == length) return;
+        }
+    }
+
+    /**
+     * Round the digits up to the next fourless number, leaving the amount they rose by as the difference.
+     */
+    private void roundUp(final byte[] digits, final int offset, final int length) {
+        final int forbiddenIndex = this.indexOfForbidden(digits, offset, length);
+        if (forbiddenIndex < 0) {
+            this.clearDifference(length);
+            return;
+        }
+
+        System.arraycopy(digits, offset, this.old, 0, length);
+        Arrays.fill(digits, offset + forbiddenIndex + 1, offset + length, (byte)0);
+
+        final int radix = this.rules.getRadix();
+        int i = forbiddenIndex;
+        while (true) {
+            final byte next = this.rules.nextAllowed[digits[offset + i]];
+            if (next < radix) {
+                digits[offset + i] = next;
+                break;
+            }
+
+            // no larger digit is allowed, so this one wraps around to 0 and carries, perhaps onto another 4
+            digits[offset + i] = 0;
+            i = this.carryInto(digits, offset, i - 1);
+            if (!this.rules.forbidden[digits[offset + i]]) break;
+        }
+
+        this.setDifference(digits, offset, this.old, 0, i, length);
+    }
+
+    /**
+     * Round the digits down to the previous fourless number, leaving the amount they fell by as the difference.
+     */
+    private void roundDown(final byte[] digits, final int offset, final int length) {
+        final int forbiddenIndex = this.indexOfForbidden(digits, offset, length);
+        if (forbiddenIndex < 0) {
+            this.clearDifference(length);
+            return;
+        }
+
+        System.arraycopy(digits, offset, this.old, 0, length);
+        digits[offset + forbiddenIndex] = this.rules.prevAllowed[digits[offset + forbiddenIndex]];
+        Arrays.fill(digits, offset + forbiddenIndex + 1, offset + length, this.rules.maxAllowed);
+
+        this.setDifference(this.old, 0, digits, offset, forbiddenIndex, length);
+    }
+
+    private void addDifference(final byte[] digits, final int offset, final int length) {
+        final byte[] sumDigit = this.rules.sumDigit;
+        final byte[] sumCarry = this.rules.sumCarry;
+        int carry = 0;
+        for (int i = length - 1; i >= 0 && (i >= this.diffTop || carry != 0); i--) {
+            final int sum = digits[offset + i] + this.difference[i] + carry;
+            carry = sumCarry[sum];
+            digits[offset + i] = sumDigit[sum];
+        }
+    }
+
+    private void subtractDifference(final byte[] digits, final int offset, final int length) {
+        final byte[] sumDigit = this.rules.sumDigit;
+        final byte[] sumCarry = this.rules.sumCarry;
+        final int radix = this.rules.getRadix();
+        int borrow = 0;
+        for (int i = length - 1; i >= 0 && (i >= this.diffTop || borrow != 0); i--) {
+            final int sum = digits[offset + i] - this.difference[i] - borrow + radix;
+            borrow = 1 - sumCarry[sum];
+            digits[offset + i] = sumDigit[sum];
+        }
+    }
+
+    /**
+     * Set the difference to the larger digits less the smaller, which differ only from the index {@code from} down.
+     */
+    private void setDifference(final byte[] larger, final int largerOffset, final byte[] smaller,
+                               final int smallerOffset, final int from, final int length) {
+        if (this.diffTop < from) {
+            Arrays.fill(this.difference, this.diffTop, from, (byte)0);
+        }
+
+        final byte[] sumDigit = this.rules.sumDigit;
+        final byte[] sumCarry = this.rules.sumCarry;
+        final int radix = this.rules.getRadix();
+        int borrow = 0;
+        int top = length;
+        for (int i = length - 1; i >= from; i--) {
+            final int sum = larger[largerOffset + i] - smaller[smallerOffset + i] - borrow + radix;
+            borrow = 1 - sumCarry[sum];
+            this.difference[i] = sumDigit[sum];
+            if (this.difference[i] != 0) {
+                top = i;
+            }
+        }
+        this.diffTop = top;
+    }
+
+    private void clearDifference(final int length) {
+        Arrays.fill(this.difference, this.diffTop, length, (byte)0);
+        this.diffTop = length;
+    }
+
+    private int indexOfForbidden(final byte[] digits, final int offset, final int length) {
+        final boolean[] forbidden = this.rules.forbidden;
+        for (int i = 0; i < length; i++) {
+            if (forbidden[digits[offset + i]]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add one at the index, carrying as far up as needed.
+     *
+     * @return The index the carry stopped at.
+     * @throws ArithmeticException If the carry runs out of digits.
+     */
+    private int carryInto(final byte[] digits, final int offset, final int index) {
+        final int maxDigit = this.rules.getRadix() - 1;
+        for (int i = index; i >= 0; i--) {
+            if (digits[offset + i] != maxDigit) {
+                digits[offset + i]++;
+                return i;
+            }
+            digits[offset + i] = 0;
+        }
+        throw new ArithmeticException("Rounding up needs more digits than the case has.");
+    }
+
+    // endregion solver
+}
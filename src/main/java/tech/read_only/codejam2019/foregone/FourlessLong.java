@@ -0,0 +1,162 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * The same search as {@link SearchSolver}, for numbers of up to {@link #MAX_DIGITS} digits, which always fit in a
+ * {@code long}. Everything is primitive arithmetic, with the place values looked up in the {@link DigitRules}, so
+ * nothing is allocated: a short case costs a few dozen divisions rather than two {@link FourlessNumber}s and their
+ * digits.
+ *
+ * Rounding works on the most significant forbidden digit, as {@link FourlessNumber} does: rounding up clears the
+ * digits below it and moves it to the next allowed digit, carrying if there is none and repeating if the carry lands
+ * on another; rounding down moves it to the previous allowed digit and fills the digits below with the largest.
+ */
+public final class FourlessLong {
+    /**
+     * The most digits a number may have, in any radix.
+     */
+    public static final int MAX_DIGITS = 18;
+
+    private FourlessLong() {}
+
+    /**
+     * @param digits At most {@link #MAX_DIGITS} digits of the rules' radix.
+     * @throws IllegalArgumentException If there are too many digits, or a character is not a digit.
+     */
+    public static long parse(final CharSequence digits, final DigitRules rules) {
+        checkArgument(digits.length() <= MAX_DIGITS, "Input has too many digits.");
+
+        final int radix = rules.getRadix();
+        long number = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            number = number * radix + FourlessNumber.digitOf(digits.charAt(i), radix);
+        }
+        return number;
+    }
+
+    /**
+     * As {@link #parse(CharSequence, DigitRules)}, for a slice of ASCII digits in a buffer.
+     *
+     * @param buffer Holds the digits; its position and limit are ignored.
+     */
+    public static long parse(final ByteBuffer buffer, final int offset, final int length, final DigitRules rules) {
+        checkPositionIndexes(offset, offset + length, buffer.capacity());
+        checkArgument(length <= MAX_DIGITS, "Input has too many digits.");
+
+        final int radix = rules.getRadix();
+        long number = 0;
+        for (int i = offset; i < offset + length; i++) {
+            number = number * radix + FourlessNumber.digitOf(buffer.get(i), radix);
+        }
+        return number;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the number is negative, or has more than {@link #MAX_DIGITS} digits.
+     */
+    public static boolean isFourless(final long number, final DigitRules rules) {
+        checkNumber(number, rules);
+        return mostSigForbiddenPlace(number, rules) < 0;
+    }
+
+    /**
+     * @return The smallest fourless number at least as large as this one. It may have one more digit.
+     * @throws IllegalArgumentException If the number is negative, or has more than {@link #MAX_DIGITS} digits.
+     */
+    public static long next(final long number, final DigitRules rules) {
+        checkNumber(number, rules);
+        return roundUp(number, rules);
+    }
+
+    /**
+     * @return The largest fourless number no larger than this one.
+     * @throws IllegalArgumentException If the number is negative, or has more than {@link #MAX_DIGITS} digits.
+     */
+    public static long prev(final long number, final DigitRules rules) {
+        checkNumber(number, rules);
+        return roundDown(number, rules);
+    }
+
+    /**
+     * Split the number into the pair of fourless numbers closest to each other, as {@link SearchSolver} would.
+     *
+     * @return The first, larger, number of the pair; the second is the rest of the number.
+     * @throws IllegalArgumentException If the number is negative, or has more than {@link #MAX_DIGITS} digits.
+     */
+    public static long solve(final long number, final DigitRules rules) {
+        checkNumber(number, rules);
+
+        long second = number / 2;
+        long first = number - second;
+
+        // round the first half up, and then pass each difference back and forth until it is zero
+        long up = roundUp(first, rules);
+        long difference = up - first;
+        first = up;
+        while (true) {
+            second -= difference;
+            final long down = roundDown(second, rules);
+            difference = second - down;
+            second = down;
+            if (difference == 0) return first;
+
+            first += difference;
+            up = roundUp(first, rules);
+            difference = up - first;
+            first = up;
+            if (difference == 0) return first;
+        }
+    }
+
+    private static long roundUp(final long number, final DigitRules rules) {
+        final int radix = rules.getRadix();
+        long rounded = number;
+        for (int place; (place = mostSigForbiddenPlace(rounded, rules)) >= 0; ) {
+            // if there is no larger digit, the next allowed one is the radix itself, which carries
+            final long power = rules.powers[place];
+            final int digit = (int)(rounded / power % radix);
+            rounded = rounded - rounded % power + (rules.nextAllowed[digit] - digit) * power;
+        }
+        return rounded;
+    }
+
+    private static long roundDown(final long number, final DigitRules rules) {
+        final int place = mostSigForbiddenPlace(number, rules);
+        if (place < 0) return number;
+
+        final int radix = rules.getRadix();
+        final long power = rules.powers[place];
+        final int digit = (int)(number / power % radix);
+        // every digit below is the largest allowed: that digit times the repunit of the places below
+        final long below = rules.maxAllowed * ((power - 1) / (radix - 1));
+        return number - number % power + (rules.prevAllowed[digit] - digit) * power + below;
+    }
+
+    /**
+     * @return The place of the most significant forbidden digit, counting from 0 for the units, or -1 if there is none.
+     */
+    private static int mostSigForbiddenPlace(final long number, final DigitRules rules) {
+        final long[] powers = rules.powers;
+        int place = MAX_DIGITS;
+        while (place > 0 && powers[place] > number) {
+            place--;
+        }
+
+        final int radix = rules.getRadix();
+        for (; place >= 0; place--) {
+            if (rules.forbidden[(int)(number / powers[place] % radix)]) {
+                return place;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkNumber(final long number, final DigitRules rules) {
+        checkArgument(number >= 0 && number < rules.powers[MAX_DIGITS], "Number must have from 0 to %s digits.",
+                      MAX_DIGITS);
+    }
+}
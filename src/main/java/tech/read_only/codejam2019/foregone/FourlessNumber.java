@@ -1,16 +1,21 @@
 package tech.read_only.codejam2019.foregone;
 
+import com.google.common.math.IntMath;
+
 import javax.annotation.Nullable;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.function.Function;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
 /**
- * BigInteger-type class for finding numbers that do not contain any 4s. Base 10, positive numbers only.
+ * BigInteger-type class for finding numbers that do not contain any 4s, or more generally any of the digits its
+ * {@link DigitRules} forbid, in their base. Positive numbers only.
  *
  * One of the following methods may be called to find a nearby "fourless" number:
  *
@@ -19,138 +24,905 @@ import static com.google.common.base.Preconditions.checkArgument;
  * - {@link #increaseByMinimum(FourlessNumber)}
  * - {@link #decreaseByMinimum(FourlessNumber)}
  *
- * Only {@link #increment()} may make this number four-ful again.
+ * Alternatively, {@link #moveFoursInto(FourlessNumber)} splits this number into two fourless ones in a single pass.
+ *
+ * The plain arithmetic, {@link #halve()}, {@link #add(int)}, {@link #add(FourlessNumber)} and
+ * {@link #subtract(FourlessNumber)}, works in place and may leave 4s behind; so may {@link #increment()}. Here, as
+ * throughout, "4s" and "fourless" stand for whichever digits the rules forbid.
+ *
+ * Given a pool with {@link #setPool(ForkJoinPool)}, a huge number parses, halves, adds, subtracts, rounds and moves its
+ * 4s in chunks on the pool's threads, wherever a pass covers enough digits to be worth it. See {@link ParallelDigits}.
+ *
+ * A number is mutable, and belongs to one thread at a time. To share one, or keep it, {@link #freeze()} it into an
+ * immutable {@link FourlessValue}.
  */
 @SuppressWarnings("WeakerAccess")
-public class FourlessNumber implements Comparable<FourlessNumber> {
-    public static final FourlessNumber NAN = new FourlessNumber(0);
+public class FourlessNumber implements Comparable<FourlessNumber>, AutoCloseable {
+    /**
+     * Zero, with no digits at all, for use as "no minimum difference"; the solver methods also return it when they
+     * need no difference and were given no buffer. It is shared, so anything that would change it throws instead.
+     */
+    public static final FourlessNumber NAN = new FourlessNumber(0, Storage.BYTES);
 
-    private static final Pattern LEADING_ZEROES = Pattern.compile("^0+");
+    // the most digits whose rank is sure to fit in a long, even in base 10
+    private static final int LONG_RANK_DIGITS = 18;
 
-    private final byte[] num;
+    private static final Storage DEFAULT_STORAGE =
+            Storage.valueOf(System.getProperty("foregone.storage", Storage.BYTES.name()).toUpperCase(Locale.ROOT));
+
+    private final DigitStorage digits;
+    private final Storage storage;
+    private final DigitRules rules;
+    // the rules' forbidden digits, a bit per digit; see setDigit(int, byte, int)
+    private final int forbiddenMask;
     private final int maxDigits;
 
     private int mostSigIndex;
-    private int mostSig4Index = Integer.MIN_VALUE;
+    private int mostSigForbiddenIndex = Integer.MIN_VALUE;
     private boolean isZero = true;
+    // every digit after this one is zero, so the digits from the leading one to here are all the solver has to visit;
+    // -1 if they all are. Zeroing a digit leaves it where it is, so it may be past the last non-zero digit
+    private int lastDirtyIndex = -1;
+
+    // digit positions rewritten by the solvers so far; a plain counter, so it is cheap enough to always keep
+    private long digitsTouched;
+
+    // runs long passes over the digits in chunks, if this number was given a pool
+    @Nullable private ParallelDigits parallel;
+    // the value's hash, or 0 if it has not been worked out since the last change; every change starts with beginWrite
+    private int hash;
 
     // region init
 
     /**
-     * Creates a number with the specified number of digits. The backing array is not sparse, and not resizable.
-     * Thus, this object may represent a number with fewer digits, but never one with more. Leave room if you need it.
+     * How the digits of a number are stored. All of them behave identically; they differ only in speed and size.
+     * The default for new numbers is taken from the {@code foregone.storage} system property, falling back to
+     * {@link #BYTES}.
+     */
+    public enum Storage {
+        /** One digit per byte. */
+        BYTES {
+            @Override
+            DigitStorage create(final int maxDigits, final DigitRules rules) {
+                return new ByteDigits(maxDigits, rules);
+            }
+        },
+        /**
+         * Sixteen BCD digits per long, with the solver's scans and arithmetic done a word at a time. Decimal numbers
+         * only.
+         */
+        PACKED {
+            @Override
+            DigitStorage create(final int maxDigits, final DigitRules rules) {
+                return new PackedDigits(maxDigits, rules);
+            }
+
+            @Override
+            public boolean supports(final DigitRules rules) {
+                return rules.getRadix() == 10;
+            }
+        },
+        /**
+         * One digit per byte, but only the low digits in use are allocated, growing on demand. Costs memory and work
+         * in proportion to the number's own length rather than its maximum, which suits the solver's differences.
+         */
+        SPARSE {
+            @Override
+            DigitStorage create(final int maxDigits, final DigitRules rules) {
+                return new SparseDigits(maxDigits, rules);
+            }
+        },
+        /**
+         * One digit per byte, in direct memory outside the heap, so that huge numbers do not weigh on the garbage
+         * collector. Bounded by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size. Released by
+         * {@link FourlessNumber#close()}.
+         */
+        DIRECT {
+            @Override
+            DigitStorage create(final int maxDigits, final DigitRules rules) {
+                return new OffHeapDigits(maxDigits, rules, null);
+            }
+        },
+        /**
+         * As {@link #DIRECT}, but in a memory-mapped temporary file, in the {@code foregone.mapped.dir} directory or
+         * else the system's temporary directory. Bounded only by disk space, and paged in and out by the operating
+         * system.
+         */
+        MAPPED {
+            @Override
+            DigitStorage create(final int maxDigits, final DigitRules rules) {
+                return new OffHeapDigits(maxDigits, rules, OffHeapDigits.mappedDirectory());
+            }
+        };
+
+        abstract DigitStorage create(int maxDigits, DigitRules rules);
+
+        /**
+         * @return Whether numbers with these rules can be stored this way.
+         */
+        public boolean supports(final DigitRules rules) {
+            return true;
+        }
+
+        /**
+         * @return The storage to hold the differences of numbers stored this way. {@link #PACKED} numbers keep
+         *         packed differences, so that the two can be added a word at a time, and off-heap numbers keep their
+         *         differences off the heap too, since a difference may be as long as the number. The others use
+         *         {@link #SPARSE}.
+         */
+        public Storage forDifferences() {
+            return this == BYTES ? SPARSE : this;
+        }
+    }
+
+    /**
+     * @return The storage new numbers get when none is specified.
+     */
+    static Storage defaultStorage() {
+        return DEFAULT_STORAGE;
+    }
+
+    /**
+     * Creates a decimal number without 4s, with the specified number of digits, using the default {@link Storage}.
+     * Only {@link Storage#SPARSE} storage grows as needed, and then only up to this many digits. Thus, this object may
+     * represent a number with fewer digits, but never one with more. Leave room if you need it.
      *
      * @throws IllegalArgumentException If the number of digits is negative.
      */
     public FourlessNumber(int maxDigits) {
+        this(maxDigits, DigitRules.FOURLESS);
+    }
+
+    /**
+     * Creates a number with the specified number of digits and rules, using the default {@link Storage} if it supports
+     * the rules, and {@link Storage#BYTES} if not.
+     *
+     * @throws IllegalArgumentException If the number of digits is negative.
+     */
+    public FourlessNumber(int maxDigits, final DigitRules rules) {
+        this(maxDigits, DEFAULT_STORAGE.supports(rules) ? DEFAULT_STORAGE : Storage.BYTES, rules);
+    }
+
+    /**
+     * Creates a decimal number without 4s, with the specified number of digits, stored as specified.
+     *
+     * @throws IllegalArgumentException If the number of digits is negative.
+     */
+    public FourlessNumber(int maxDigits, final Storage storage) {
+        this(maxDigits, storage, DigitRules.FOURLESS);
+    }
+
+    /**
+     * Creates a number with the specified number of digits and rules, stored as specified.
+     *
+     * @throws IllegalArgumentException If the number of digits is negative, or the storage does not support the rules.
+     */
+    public FourlessNumber(int maxDigits, final Storage storage, final DigitRules rules) {
         checkArgument(maxDigits >= 0, "Number of digits cannot be negative.");
+        checkArgument(storage.supports(rules), "%s storage cannot hold numbers in %s.", storage, rules);
 
-        this.num = new byte[maxDigits];
+        this.digits = storage.create(maxDigits, rules);
+        this.storage = storage;
+        this.rules = rules;
+        this.forbiddenMask = this.rules.getForbiddenMask();
         this.maxDigits = maxDigits;
         this.mostSigIndex = maxDigits - 1;
     }
 
     /**
-     * Creates an exact copy of the other number.
+     * Creates a zero over digits made elsewhere, which behave as the storage would.
+     *
+     * @param digits Must be all zero, and hold only this number's digits.
+     */
+    FourlessNumber(final DigitStorage digits, final Storage storage, final DigitRules rules) {
+        this.digits = digits;
+        this.storage = storage;
+        this.rules = rules;
+        this.forbiddenMask = this.rules.getForbiddenMask();
+        this.maxDigits = digits.length();
+        this.mostSigIndex = this.maxDigits - 1;
+    }
+
+    /**
+     * Creates an exact copy of the other number, with the same storage and rules.
      */
     public FourlessNumber(final FourlessNumber other) {
-        this.num = Arrays.copyOf(other.num, other.num.length);
+        this.digits = other.digits.copy();
+        this.storage = other.storage;
+        this.rules = other.rules;
+        this.forbiddenMask = this.rules.getForbiddenMask();
         this.maxDigits = other.maxDigits;
-        this.mostSig4Index = other.mostSig4Index;
+        this.mostSigForbiddenIndex = other.mostSigForbiddenIndex;
         this.isZero = other.isZero;
         this.mostSigIndex = other.mostSigIndex;
+        this.lastDirtyIndex = other.lastDirtyIndex;
+        this.parallel = other.parallel;
+        this.hash = other.hash;
+    }
+
+    /**
+     * Work through this number's digits in chunks on the pool, wherever a pass covers at least
+     * {@link ParallelDigits#MIN_DIGITS} of them, rather than on the calling thread alone. Copies of this number share
+     * the pool. Has no effect on {@link Storage#PACKED} numbers, which work a word at a time instead.
+     *
+     * @param pool Remains owned by the caller; null to go back to the calling thread alone.
+     */
+    public void setPool(@Nullable final ForkJoinPool pool) {
+        this.beginWrite();
+        this.parallel = pool == null ? null : new ParallelDigits(pool);
     }
 
     /**
      * Initialize the value of this number from a string.
      * May be called more than once if you wish to re-use this object.
      *
-     * @param str A string consisting of only numeric digits.
-     * @throws IllegalArgumentException If the string has too many digits.
+     * @param str A string consisting of only digits in this number's base.
+     * @throws IllegalArgumentException If the string has too many digits, or anything other than digits.
      */
-    public void init(String str) {
-        str = LEADING_ZEROES.matcher(str).replaceFirst("");
-        if (str.isEmpty()) return;
+    public void init(final String str) {
+        this.init(str, 0, str.length());
+    }
 
-        checkArgument(str.length() <= this.maxDigits, "Input has too many digits.");
+    /**
+     * Initialize the value of this number from a slice of characters, without allocating.
+     * May be called more than once if you wish to re-use this object.
+     *
+     * If the slice is all zeroes, or empty, this number is left unchanged. If it holds something other than digits,
+     * this number is left holding a mix of its old and new digits.
+     *
+     * @throws IllegalArgumentException If the slice has too many digits, or anything other than digits.
+     * @throws IndexOutOfBoundsException If the slice does not fit in the characters.
+     */
+    public void init(final CharSequence chars, final int offset, final int length) {
+        this.beginWrite();
+        checkPositionIndexes(offset, offset + length, chars.length());
 
-        this.isZero = false;
+        int start = offset;
+        final int end = offset + length;
+        while (start < end && chars.charAt(start) == '0') {
+            start++;
+        }
 
-        final int lenDifference = this.maxDigits - str.length();
-        for (int i = 0; i < lenDifference; i++) {
-            this.setDigit(i, (byte)0);
+        final int lenDifference = this.prepareInit(end - start);
+        if (lenDifference < 0) return;
+
+        final int first = start;
+        try {
+            if (!this.parseInParallel(lenDifference, i -> chars.charAt(first + i))) {
+                for (int i = start; i < end; i++) {
+                    this.digits.set(i - start + lenDifference, digitOf(chars.charAt(i), this.rules.getRadix()));
+                }
+            }
         }
-        for (int i = 0; i < str.length(); i++) {
-            this.setDigit(i + lenDifference, Byte.valueOf(str.substring(i, i + 1)));
+        finally {
+            this.refreshState();
         }
     }
 
-    private void setDigit(final int index, final byte value) {
-        if (value == 4) {
-            if (this.mostSig4Index > index || this.mostSig4Index == Integer.MIN_VALUE) {
-                this.mostSig4Index = index;
+    /**
+     * As {@link #init(CharSequence, int, int)}, for a slice of a char array.
+     */
+    public void init(final char[] chars, final int offset, final int length) {
+        this.beginWrite();
+        checkPositionIndexes(offset, offset + length, chars.length);
+
+        int start = offset;
+        final int end = offset + length;
+        while (start < end && chars[start] == '0') {
+            start++;
+        }
+
+        final int lenDifference = this.prepareInit(end - start);
+        if (lenDifference < 0) return;
+
+        final int first = start;
+        try {
+            if (!this.parseInParallel(lenDifference, i -> chars[first + i])) {
+                for (int i = start; i < end; i++) {
+                    this.digits.set(i - start + lenDifference, digitOf(chars[i], this.rules.getRadix()));
+                }
             }
         }
-        else if (this.mostSig4Index == index) {
-            for (int i = index + 1; i < this.maxDigits; i++) {
-                if (this.num[i] == 4) {
-                    this.mostSig4Index = i;
-                    break;
+        finally {
+            this.refreshState();
+        }
+    }
+
+    /**
+     * As {@link #init(CharSequence, int, int)}, for a slice of ASCII digits.
+     */
+    public void init(final byte[] ascii, final int offset, final int length) {
+        this.beginWrite();
+        checkPositionIndexes(offset, offset + length, ascii.length);
+
+        int start = offset;
+        final int end = offset + length;
+        while (start < end && ascii[start] == '0') {
+            start++;
+        }
+
+        final int lenDifference = this.prepareInit(end - start);
+        if (lenDifference < 0) return;
+
+        final int first = start;
+        try {
+            if (!this.parseInParallel(lenDifference, i -> ascii[first + i])) {
+                for (int i = start; i < end; i++) {
+                    this.digits.set(i - start + lenDifference, digitOf(ascii[i], this.rules.getRadix()));
                 }
             }
+        }
+        finally {
+            this.refreshState();
+        }
+    }
+
+    /**
+     * As {@link #init(CharSequence, int, int)}, for a slice of ASCII digits in a buffer.
+     *
+     * @param buffer Holds the digits; its position and limit are ignored.
+     */
+    public void init(final ByteBuffer buffer, final int offset, final int length) {
+        this.beginWrite();
+        checkPositionIndexes(offset, offset + length, buffer.capacity());
+
+        if (buffer.hasArray()) {
+            this.init(buffer.array(), buffer.arrayOffset() + offset, length);
+            return;
+        }
+
+        int start = offset;
+        final int end = offset + length;
+        while (start < end && buffer.get(start) == '0') {
+            start++;
+        }
+
+        final int lenDifference = this.prepareInit(end - start);
+        if (lenDifference < 0) return;
+
+        final int first = start;
+        try {
+            if (!this.parseInParallel(lenDifference, i -> buffer.get(first + i))) {
+                for (int i = start; i < end; i++) {
+                    this.digits.set(i - start + lenDifference, digitOf(buffer.get(i), this.rules.getRadix()));
+                }
+            }
+        }
+        finally {
+            this.refreshState();
+        }
+    }
 
-            if (this.mostSig4Index == index) {
-                this.mostSig4Index = Integer.MIN_VALUE;
+    /**
+     * As {@link #init(ByteBuffer, int, int)}, but a slice of all zeroes, or an empty one, clears this number rather
+     * than leaving it unchanged, so that a number still holding an old value can be reused for any input.
+     */
+    void reset(final ByteBuffer buffer, final int offset, final int length) {
+        checkPositionIndexes(offset, offset + length, buffer.capacity());
+
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer.get(i) != '0') {
+                this.init(buffer, offset, length);
+                return;
             }
         }
+        this.clear();
+    }
+
+    /**
+     * Parse the significant digits of an input in chunks on the pool, if this number has one and there are enough.
+     *
+     * @param ascii The significant digits, from the first.
+     * @return Whether the digits were parsed; if not, it is up to the caller.
+     */
+    private boolean parseInParallel(final int lenDifference, final ParallelDigits.AsciiSource ascii) {
+        final ParallelDigits parallel = this.parallelFrom(lenDifference, null);
+        if (parallel == null) return false;
+
+        parallel.parse(this.digits, this.rules, ascii, lenDifference, this.maxDigits);
+        return true;
+    }
+
+    /**
+     * Check that the significant digits of an input fit, and zero the digits above them. The digits themselves are
+     * then written straight into storage, and the state refreshed once at the end.
+     *
+     * @return The index to write the first significant digit at, or -1 if there are none and this number should be
+     *         left unchanged.
+     */
+    private int prepareInit(final int significantDigits) {
+        if (significantDigits == 0) return -1;
+
+        checkArgument(significantDigits <= this.maxDigits, "Input has too many digits.");
+
+        final int lenDifference = this.maxDigits - significantDigits;
+        this.digits.fill(0, lenDifference, (byte)0);
+        return lenDifference;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the character is not a decimal digit.
+     */
+    static byte digitOf(final int c) {
+        return digitOf(c, 10);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the character is not a digit in the radix.
+     */
+    static byte digitOf(final int c, final int radix) {
+        final int digit = c - '0';
+        checkArgument(digit >= 0 && digit < radix, "Input must consist of only base %s digits.", radix);
+        return (byte)digit;
+    }
+
+    /**
+     * Overwrite this number with an exact copy of the other, without allocating.
+     *
+     * @throws IllegalArgumentException If the other number has a different size, storage or rules.
+     */
+    public void copyFrom(final FourlessNumber other) {
+        this.beginWrite();
+        checkArgument(other.maxDigits == this.maxDigits && other.storage == this.storage
+                      && other.rules.equals(this.rules),
+                      "Can only copy a number with the same size, storage and rules.");
+
+        this.digits.copyFrom(other.digits);
+        this.mostSigForbiddenIndex = other.mostSigForbiddenIndex;
+        this.isZero = other.isZero;
+        this.mostSigIndex = other.mostSigIndex;
+        this.lastDirtyIndex = other.lastDirtyIndex;
+        this.hash = other.hash;
+    }
+
+    /**
+     * Overwrite this number with the value, without allocating.
+     *
+     * @throws IllegalArgumentException If the value has more digits than this number has room for, or other rules.
+     */
+    public void copyFrom(final FourlessValue value) {
+        this.beginWrite();
+        checkArgument(value.digitCount() <= this.maxDigits && value.getRules().equals(this.rules),
+                      "Can only copy a value that fits, with the same rules.");
+        if (value.isZero()) {
+            this.clear();
+            return;
+        }
+
+        final int start = this.maxDigits - value.digitCount();
+        this.digits.fill(0, start, (byte)0);
+        for (int i = start; i < this.maxDigits; i++) {
+            this.digits.set(i, value.digit(i - start));
+        }
+        this.refreshState();
+    }
+
+    /**
+     * Snapshot this number's value, to share with other threads or keep while this number goes on changing. Only
+     * the printed digits are copied, packed two to a byte, and the hash is worked out along the way.
+     */
+    public FourlessValue freeze() {
+        final int count = this.digitCount();
+        final byte[] packed = new byte[(count + 1) >> 1];
+        int hash = 0;
+        for (int i = 0; i < count; i++) {
+            final byte digit = this.digits.get(this.mostSigIndex + i);
+            packed[i >> 1] |= (i & 1) == 0 ? digit << 4 : digit;
+            hash = 31 * hash + digit;
+        }
+
+        final int forbiddenIndex = this.isFourless() ? -1 : this.mostSigForbiddenIndex - this.mostSigIndex;
+        return new FourlessValue(packed, count, forbiddenIndex, this.rules, this.maxDigits, this.storage, hash);
+    }
+
+    /**
+     * Release the memory of {@link Storage#DIRECT} and {@link Storage#MAPPED} digits now, rather than whenever the
+     * garbage collector gets to them. The number must not be used afterwards; the other storages need no closing, so
+     * this does nothing for them.
+     */
+    @Override
+    public void close() {
+        this.digits.close();
+    }
+
+    /**
+     * Reset this number to zero, exactly as if it had just been constructed. Only the digits from the leading one to
+     * the last that may be non-zero are written, so clearing a short difference is cheap however wide it is.
+     */
+    public void clear() {
+        this.beginWrite();
+        if (!this.isZero) {
+            this.digits.fill(this.mostSigIndex, this.lastDirtyIndex + 1, (byte)0);
+        }
+        this.mostSigIndex = this.maxDigits - 1;
+        this.mostSigForbiddenIndex = Integer.MIN_VALUE;
+        this.isZero = true;
+        this.lastDirtyIndex = -1;
+    }
+
+    private void setDigit(final int index, final byte value) {
+        this.setDigit(index, value, this.forbiddenMask);
+    }
+
+    /**
+     * As {@link #setDigit(int, byte)}, for the solvers' loops over the digits, which read this number's
+     * {@code forbiddenMask} into a local once. Every digit written is tested against it, and a field read on each, or a
+     * table of the forbidden digits, costs the default rules about a tenth of their speed against testing for 4.
+     */
+    private void setDigit(final int index, final byte value, final int forbiddenMask) {
+        if ((forbiddenMask >>> value & 1) != 0) {
+            if (this.mostSigForbiddenIndex > index || this.mostSigForbiddenIndex == Integer.MIN_VALUE) {
+                this.mostSigForbiddenIndex = index;
+            }
+        }
+        else if (this.mostSigForbiddenIndex == index) {
+            final int nextForbiddenIndex = this.digits.indexOfForbidden(index + 1);
+            this.mostSigForbiddenIndex = nextForbiddenIndex < 0 ? Integer.MIN_VALUE : nextForbiddenIndex;
+        }
 
         this.isZero = false;
         if (value == 0) {
-            this.num[index] = 0;
-            while (this.mostSigIndex < this.maxDigits && this.num[this.mostSigIndex] == 0) {
-                this.mostSigIndex++;
+            this.digits.set(index, (byte)0);
+            if (this.mostSigIndex < this.maxDigits && this.digits.get(this.mostSigIndex) == 0) {
+                final int nonZeroIndex = this.digits.indexOfNonZero(this.mostSigIndex);
+                this.mostSigIndex = nonZeroIndex < 0 ? this.maxDigits : nonZeroIndex;
             }
 
             if (this.mostSigIndex == this.maxDigits) {
                 this.isZero = true;
             }
         }
-        else if (this.mostSigIndex > index) {
-            this.mostSigIndex = index;
+        else {
+            if (this.mostSigIndex > index) {
+                this.mostSigIndex = index;
+            }
+            if (this.lastDirtyIndex < index) {
+                this.lastDirtyIndex = index;
+            }
         }
-        this.num[index] = value;
+        this.digits.set(index, value);
+    }
+
+    /**
+     * Recompute the positions of the leading digit and the leading 4 after the digits were changed in bulk.
+     * Leaves the same state behind as writing every digit through {@link #setDigit(int, byte)} would, except that any
+     * digit may now be non-zero.
+     */
+    private void refreshState() {
+        final int nonZeroIndex = this.digits.indexOfNonZero(0);
+        this.isZero = nonZeroIndex < 0;
+        this.mostSigIndex = this.isZero ? this.maxDigits : nonZeroIndex;
+        this.lastDirtyIndex = this.isZero ? -1 : this.maxDigits - 1;
+
+        final int firstForbiddenIndex = this.digits.indexOfForbidden(0);
+        this.mostSigForbiddenIndex = firstForbiddenIndex < 0 ? Integer.MIN_VALUE : firstForbiddenIndex;
     }
 
     /**
      * Increase the value of this number by one.
      */
     public void increment() {
-        this.isZero = false;
-        for (int i = this.maxDigits - 1; i >= 0; i--) {
-            if (this.num[i] == 9) {
-                this.setDigit(i, (byte)0);
+        this.add(1);
+    }
+
+    // endregion init
+
+    // region arithmetic
+
+    /**
+     * Halve this number in place, in a single pass from its leading digit, keeping track of where the new leading
+     * digit and the new first 4 are as it goes.
+     *
+     * @return The remainder, 0 or 1.
+     */
+    public int halve() {
+        this.beginWrite();
+        if (this.isZero) return 0;
+
+        final ParallelDigits parallel = this.parallelFrom(this.mostSigIndex, null);
+        if (parallel != null) {
+            final ParallelDigits.Scan scan = parallel.halve(this.digits, this.rules, this.mostSigIndex, this.maxDigits);
+            this.mergeState(this.mostSigIndex, scan);
+            return scan.carry;
+        }
+
+        final boolean[] forbidden = this.rules.forbidden;
+        final int radix = this.rules.getRadix();
+        int remainder = 0;
+        int leadingIndex = -1;
+        int forbiddenIndex = Integer.MIN_VALUE;
+        for (int i = this.mostSigIndex; i < this.maxDigits; i++) {
+            final int value = remainder * radix + this.digits.get(i);
+            final byte half = (byte)(value >>> 1);
+            remainder = value & 1;
+
+            this.digits.set(i, half);
+            if (half != 0 && leadingIndex < 0) {
+                leadingIndex = i;
             }
-            else {
-                this.setDigit(i, (byte)(this.num[i] + 1));
-                break;
+            if (forbidden[half] && forbiddenIndex < 0) {
+                forbiddenIndex = i;
             }
         }
+
+        this.isZero = leadingIndex < 0;
+        this.mostSigIndex = this.isZero ? this.maxDigits : leadingIndex;
+        this.mostSigForbiddenIndex = forbiddenIndex;
+        // a remainder may have been halved into the digit after the last non-zero one, so it may have moved
+        this.lastDirtyIndex = this.isZero ? -1 : this.maxDigits - 1;
+        return remainder;
     }
 
-    // endregion init
+    /**
+     * Add a small value to this number, in place. Only the digits it reaches, and any carry out of them, are visited.
+     * A carry out of the top digit is dropped.
+     *
+     * @throws IllegalArgumentException If the value is negative.
+     */
+    public void add(final int value) {
+        checkArgument(value >= 0, "Can only add a non-negative value.");
+        this.beginWrite();
+
+        final int radix = this.rules.getRadix();
+        long carry = value;
+        for (int i = this.maxDigits - 1; i >= 0 && carry != 0; i--) {
+            final long sum = this.digits.get(i) + carry;
+            carry = sum / radix;
+            this.setDigit(i, (byte)(sum % radix));
+        }
+    }
+
+    /**
+     * Add the other number to this one, in place, a word at a time if both are packed. Only the other's digits, and
+     * any carry out of them, are visited. A carry out of the top digit is dropped.
+     *
+     * @param other Must be zero, or have the same number of allocated digits and the same radix.
+     * @throws IllegalArgumentException If the other number is a different size or radix.
+     */
+    public void add(final FourlessNumber other) {
+        this.checkOperand(other);
+        this.addDigits(other);
+    }
+
+    /**
+     * As {@link #add(FourlessNumber)}, but subtracts. A borrow out of the top digit is dropped, so the result wraps
+     * around if the other number is larger.
+     */
+    public void subtract(final FourlessNumber other) {
+        this.checkOperand(other);
+        this.subtractDigits(other);
+    }
+
+    /**
+     * @param other Must have the same number of allocated digits and the same radix.
+     * @return This number minus the other, or -1 if that is negative or too large for a long. Visits every digit.
+     */
+    long longDifference(final FourlessNumber other) {
+        checkArgument(other.maxDigits == this.maxDigits && other.rules.getRadix() == this.rules.getRadix(),
+                      "Can only subtract a number of the same size and radix.");
+
+        final int radix = this.rules.getRadix();
+        long result = 0;
+        // -1 once the place value no longer fits
+        long place = 1;
+        int borrow = 0;
+        boolean fits = true;
+        for (int i = this.maxDigits - 1; i >= 0; i--) {
+            int digit = this.digits.get(i) - other.digits.get(i) - borrow;
+            borrow = digit < 0 ? 1 : 0;
+            digit += borrow * radix;
+
+            if (digit != 0) {
+                if (place < 0 || digit > (Long.MAX_VALUE - result) / place) {
+                    fits = false;
+                }
+                else {
+                    result += digit * place;
+                }
+            }
+            place = place < 0 || place > Long.MAX_VALUE / radix ? -1 : place * radix;
+        }
+        return borrow != 0 || !fits ? -1 : result;
+    }
+
+    private void checkOperand(final FourlessNumber other) {
+        this.beginWrite();
+        checkArgument(other.isZero || (other.maxDigits == this.maxDigits
+                                       && other.rules.getRadix() == this.rules.getRadix()),
+                      "Can only add or subtract a number of the same size and radix.");
+    }
+
+    // endregion arithmetic
 
     // region getters
 
     public boolean isFourless() {
-        return this.mostSig4Index < 0;
+        return this.mostSigForbiddenIndex < 0;
     }
 
     public boolean isZero() {
         return this.isZero;
     }
 
+    /**
+     * @return The number of digits in this number as it is printed, i.e. without leading zeroes.
+     */
+    public int digitCount() {
+        return this.isZero ? 0 : this.maxDigits - this.mostSigIndex;
+    }
+
+    /**
+     * Write as many of this number's printed digits as fit into the buffer, as ASCII, without building a string.
+     *
+     * @param from The first printed digit to write, counting from the most significant one.
+     * @return The number of digits written.
+     */
+    public int writeDigits(final int from, final ByteBuffer out) {
+        final int count = Math.min(this.digitCount() - from, out.remaining());
+        if (count <= 0) return 0;
+
+        final int start = this.mostSigIndex + from;
+        if (out.hasArray()) {
+            this.digits.toAscii(start, start + count, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + count);
+        }
+        else {
+            for (int i = start; i < start + count; i++) {
+                out.put((byte)('0' + this.digits.get(i)));
+            }
+        }
+        return count;
+    }
+
+    public Storage getStorage() {
+        return this.storage;
+    }
+
+    public DigitRules getRules() {
+        return this.rules;
+    }
+
+    public int getMaxDigits() {
+        return this.maxDigits;
+    }
+
+    /**
+     * @return The running total of digit positions the solver methods have rewritten in this number, for
+     *         instrumentation. Not part of the number's value.
+     */
+    long digitsTouched() {
+        return this.digitsTouched;
+    }
+
     // endregion getters
 
+    // region counting
+
+    /**
+     * Count the fourless numbers below this one, in time linear in its digits. For a fourless number, that is its
+     * position among them in increasing order, 0 being the first.
+     *
+     * Fourless numbers are exactly the numerals of a base with only the allowed digits (base 9, for 4s), so mapping
+     * each digit to its place among the allowed ones gives the count directly. Past the first 4, nothing smaller with
+     * the same leading digits is fourless, so the count stops there.
+     */
+    public BigInteger rank() {
+        if (this.isZero) return BigInteger.ZERO;
+
+        final byte[] allowedBelow = this.rules.allowedBelow;
+        final int base = this.rules.allowed.length;
+        final int last = this.isFourless() ? this.maxDigits - 1 : this.mostSigForbiddenIndex;
+
+        if (this.digitCount() <= LONG_RANK_DIGITS) {
+            long rank = 0;
+            for (int i = this.mostSigIndex; i < this.maxDigits; i++) {
+                rank = rank * base + (i <= last ? allowedBelow[this.digits.get(i)] : 0);
+            }
+            return BigInteger.valueOf(rank);
+        }
+
+        final char[] numeral = new char[this.digitCount()];
+        for (int i = this.mostSigIndex; i < this.maxDigits; i++) {
+            numeral[i - this.mostSigIndex] = (char)('0' + (i <= last ? allowedBelow[this.digits.get(i)] : 0));
+        }
+        return new BigInteger(new String(numeral), base);
+    }
+
+    /**
+     * Overwrite this number with the fourless number at the position, as counted by {@link #rank()}.
+     *
+     * @throws IllegalArgumentException If the position is negative, or that number has too many digits.
+     */
+    public void unrank(final BigInteger rank) {
+        checkArgument(rank.signum() >= 0, "Rank cannot be negative.");
+        this.beginWrite();
+        if (rank.signum() == 0) {
+            this.clear();
+            return;
+        }
+
+        final byte[] allowed = this.rules.allowed;
+        final int base = allowed.length;
+        if (rank.bitLength() < Long.SIZE) {
+            long value = rank.longValue();
+            int length = 0;
+            for (long v = value; v != 0; v /= base) {
+                length++;
+            }
+            final int start = this.prepareInit(length);
+
+            for (int i = this.maxDigits - 1; i >= start; i--) {
+                this.digits.set(i, allowed[(int)(value % base)]);
+                value /= base;
+            }
+        }
+        else {
+            final String numeral = rank.toString(base);
+            final int start = this.prepareInit(numeral.length());
+
+            for (int i = 0; i < numeral.length(); i++) {
+                this.digits.set(start + i, allowed[numeral.charAt(i) - '0']);
+            }
+        }
+        this.refreshState();
+    }
+
+    /**
+     * Step to the next larger fourless number. Amortised, only a constant number of digits change.
+     *
+     * @throws IllegalArgumentException If this number is not fourless.
+     * @throws ArithmeticException If the next fourless number has too many digits.
+     */
+    public void incrementFourless() {
+        checkArgument(this.isFourless(), "Can only step from a fourless number.");
+        this.beginWrite();
+
+        final byte maxAllowed = this.rules.maxAllowed;
+        for (int i = this.maxDigits - 1; i >= 0; i--) {
+            final byte digit = this.digits.get(i);
+            if (digit != maxAllowed) {
+                this.setDigit(i, this.rules.nextAllowed[digit]);
+                return;
+            }
+            this.setDigit(i, (byte)0);
+        }
+        throw new ArithmeticException("The next fourless number needs more than " + this.maxDigits + " digits.");
+    }
+
+    /**
+     * @return How many fourless numbers there are from {@code from} to {@code to}, both inclusive. Linear in their
+     *         digits, however wide the range.
+     * @throws IllegalArgumentException If the numbers have different rules.
+     */
+    public static BigInteger count(final FourlessNumber from, final FourlessNumber to) {
+        checkArgument(from.rules.equals(to.rules), "Both ends of a range must have the same rules.");
+
+        return endRank(to).subtract(from.rank()).max(BigInteger.ZERO);
+    }
+
+    /**
+     * @return A lazy stream of the fourless numbers from {@code from} to {@code to}, both inclusive, in increasing
+     *         order. Each is a new number, with the same size and storage as {@code to}. Consecutive numbers are
+     *         stepped between directly, and parallel streams split the range into halves by count. See
+     *         {@link FourlessSpliterator}.
+     * @throws IllegalArgumentException If the numbers have different rules.
+     */
+    public static Stream<FourlessNumber> range(final FourlessNumber from, final FourlessNumber to) {
+        checkArgument(from.rules.equals(to.rules), "Both ends of a range must have the same rules.");
+
+        return StreamSupport.stream(new FourlessSpliterator(to, from.rank(), endRank(to)), false);
+    }
+
+    /**
+     * @return The rank just past the number, counting the number itself if it is fourless.
+     */
+    private static BigInteger endRank(final FourlessNumber number) {
+        final BigInteger rank = number.rank();
+        return number.isFourless() ? rank.add(BigInteger.ONE) : rank;
+    }
+
+    // endregion counting
+
     // region solvers
 
     /**
@@ -159,7 +931,30 @@ public class FourlessNumber implements Comparable<FourlessNumber> {
      * @return The additional difference required to make this number fourless.
      */
     public FourlessNumber nextNumber(final FourlessNumber minDifference) {
-        return this.findNumber(minDifference, this::increaseFromIndex, this::increaseByMinimum);
+        return this.nextNumber(minDifference, null);
+    }
+
+    /**
+     * As {@link #nextNumber(FourlessNumber)}, but writes the additional difference into a caller-owned buffer.
+     *
+     * @param difference Receives the additional difference; zero if none was needed. Must have the same number of
+     *                   allocated digits as this number, and may be the same object as {@code minDifference}.
+     * @return {@code difference}
+     */
+    public FourlessNumber nextNumber(final FourlessNumber minDifference, @Nullable final FourlessNumber difference) {
+        this.checkBuffer(difference);
+
+        // rounding from the 4 alone only makes up the minimum if that is zero; with carries, a 4 may even sit below
+        // the leading digit of a non-zero minimum
+        if (minDifference.isZero && this.mostSigForbiddenIndex > minDifference.mostSigIndex) {
+            return this.increaseFromIndex(this.mostSigForbiddenIndex, difference);
+        }
+
+        if (this.isFourless() && minDifference.isZero) {
+            return noDifference(difference);
+        }
+
+        return this.increaseByMinimum(minDifference, difference);
     }
 
     /**
@@ -168,158 +963,547 @@ public class FourlessNumber implements Comparable<FourlessNumber> {
      * @return The additional difference required to make this number fourless.
      */
     public FourlessNumber prevNumber(final FourlessNumber minDifference) {
-        return this.findNumber(minDifference, this::decreaseFromIndex, this::decreaseByMinimum);
+        return this.prevNumber(minDifference, null);
     }
 
-    private FourlessNumber findNumber(final FourlessNumber minDifference,
-                                      final Function<Integer, FourlessNumber> alterFromIndex,
-                                      final Function<FourlessNumber, FourlessNumber> alterBy) {
-        if (this.mostSig4Index > minDifference.mostSigIndex) {
-            return alterFromIndex.apply(this.mostSig4Index);
+    /**
+     * As {@link #prevNumber(FourlessNumber)}, but writes the additional difference into a caller-owned buffer.
+     *
+     * @param difference Receives the additional difference; zero if none was needed. Must have the same number of
+     *                   allocated digits as this number, and may be the same object as {@code minDifference}.
+     * @return {@code difference}
+     */
+    public FourlessNumber prevNumber(final FourlessNumber minDifference, @Nullable final FourlessNumber difference) {
+        this.checkBuffer(difference);
+
+        // rounding from the 4 alone only makes up the minimum if that is zero; with carries, a 4 may even sit below
+        // the leading digit of a non-zero minimum
+        if (minDifference.isZero && this.mostSigForbiddenIndex > minDifference.mostSigIndex) {
+            return this.decreaseFromIndex(this.mostSigForbiddenIndex, difference);
         }
 
         if (this.isFourless() && minDifference.isZero) {
-            return FourlessNumber.NAN;
+            return noDifference(difference);
         }
 
-        return alterBy.apply(minDifference);
+        return this.decreaseByMinimum(minDifference, difference);
     }
 
     public FourlessNumber increaseByMinimum(final FourlessNumber minDifference) {
-        return this.changeByMinimum(minDifference,
-                                    difference -> difference,
-                                    carry -> carry ? 1 : 0,
-                                    result -> result >= 10,
-                                    result -> result - 10,
-                                    this::increaseFromIndex);
+        return this.increaseByMinimum(minDifference, null);
+    }
+
+    /**
+     * As {@link #increaseByMinimum(FourlessNumber)}, but writes the additional difference into a caller-owned buffer.
+     * See {@link #nextNumber(FourlessNumber, FourlessNumber)} for the buffer's requirements.
+     */
+    public FourlessNumber increaseByMinimum(final FourlessNumber minDifference,
+                                            @Nullable final FourlessNumber difference) {
+        this.checkBuffer(difference);
+
+        this.addDigits(minDifference);
+
+        if (minDifference.maxDigits == 0 || this.isFourless()) {
+            return noDifference(difference);
+        }
+
+        return this.increaseFromIndex(this.mostSigForbiddenIndex, difference);
     }
 
     public FourlessNumber decreaseByMinimum(final FourlessNumber minDifference) {
-        return this.changeByMinimum(minDifference,
-                                    difference -> (byte) -difference,
-                                    carry -> carry ? -1 : 0,
-                                    result -> result < 0,
-                                    result -> result + 10,
-                                    this::decreaseFromIndex);
+        return this.decreaseByMinimum(minDifference, null);
+    }
+
+    /**
+     * As {@link #decreaseByMinimum(FourlessNumber)}, but writes the additional difference into a caller-owned buffer.
+     * See {@link #prevNumber(FourlessNumber, FourlessNumber)} for the buffer's requirements.
+     */
+    public FourlessNumber decreaseByMinimum(final FourlessNumber minDifference,
+                                            @Nullable final FourlessNumber difference) {
+        this.checkBuffer(difference);
+
+        this.subtractDigits(minDifference);
+
+        if (minDifference.maxDigits == 0 || this.isFourless()) {
+            return noDifference(difference);
+        }
+
+        return this.decreaseFromIndex(this.mostSigForbiddenIndex, difference);
+    }
+
+    /**
+     * Make this number fourless in a single pass, by moving 1 out of each of its 4s into the same place of the other
+     * number, so that 3 is left. Other forbidden digits give up the smallest allowed digit that leaves an allowed one.
+     * Together, the two numbers still sum to this number's original value.
+     * Only visits the 4s themselves, so the cost is linear in the number of digits at worst.
+     *
+     * @param other Must be zero, and have the same number of allocated digits and the same rules.
+     * @throws IllegalArgumentException If the other number is not zero, or is a different size or rules.
+     */
+    public void moveFoursInto(final FourlessNumber other) {
+        checkArgument(other.maxDigits == this.maxDigits && other.isZero && other != this
+                      && other.rules.equals(this.rules),
+                      "Can only move 4s into another zero of the same size and rules.");
+        this.beginWrite();
+        other.beginWrite();
+        if (this.isFourless()) return;
+
+        final ParallelDigits parallel = this.parallelFrom(this.mostSigForbiddenIndex, other);
+        if (parallel != null) {
+            this.digitsTouched += parallel.moveForbidden(this.digits, other.digits, this.rules,
+                                                         this.mostSigForbiddenIndex, this.maxDigits).count;
+        }
+        else {
+            final byte[] split = this.rules.split;
+            for (int i = this.mostSigForbiddenIndex; i >= 0; i = this.digits.indexOfForbidden(i + 1)) {
+                final byte digit = this.digits.get(i);
+                this.digits.set(i, (byte)(digit - split[digit]));
+                other.digits.set(i, split[digit]);
+                this.digitsTouched++;
+            }
+        }
+
+        // what is left of each 4 is non-zero, so the leading digit has not moved; the other's leading digit is where
+        // the first 4 was
+        other.mostSigIndex = this.mostSigForbiddenIndex;
+        other.isZero = false;
+        other.lastDirtyIndex = this.lastDirtyIndex;
+        this.mostSigForbiddenIndex = Integer.MIN_VALUE;
     }
 
     // endregion solvers
 
     // region solution helpers
 
-    private FourlessNumber increaseFromIndex(final int index) {
-        return this.changeFromIndex(index,
-                                    false,
-                                    digit -> (byte)(10 - digit),
-                                    carry -> carry ? -1 : 0,
-                                    0,
-                                    sigDigit -> sigDigit + 1);
-    }
-
-    private FourlessNumber decreaseFromIndex(final int index) {
-        return this.changeFromIndex(index,
-                                    true,
-                                    digit -> digit,
-                                    carry -> carry ? 1 : 0,
-                                    9,
-                                    sigDigit -> sigDigit - 1);
-    }
-
-    private FourlessNumber changeFromIndex(final int index,
-                                           final boolean initialCarry,
-                                           final Function<Byte, Byte> differenceAddition,
-                                           final Function<Boolean, Integer> carryAddition,
-                                           final int defaultDigit,
-                                           final Function<Byte, Integer> sigDigitEffect) {
-        final FourlessNumber difference = new FourlessNumber(this.maxDigits);
-
-        boolean carry = initialCarry;
-        for (int i = this.maxDigits - 1; i > index; i--) {
-            final byte val = (byte)(differenceAddition.apply(this.num[i]) + carryAddition.apply(carry));
-            if (val == 10) {
-                carry = initialCarry;
-            }
-            else {
-                carry = !initialCarry;
-                difference.setDigit(i, val);
+    /**
+     * Rounds this number up to the next multiple of the place value at the index, replacing the digit there with the
+     * next allowed one. If there is none, the digit becomes 0 and carries into the digits above instead, which are
+     * rounded up in turn wherever that leaves a 4.
+     *
+     * @return The amount this number was increased by.
+     * @throws ArithmeticException If the carry runs out of digits.
+     */
+    private FourlessNumber increaseFromIndex(final int index, @Nullable final FourlessNumber buffer) {
+        final FourlessNumber difference = this.differenceBuffer(buffer);
+        this.digitsTouched += this.maxDigits - index;
+
+        if (this.isPackedWith(difference)) {
+            // the difference below the index is the ten's complement of the digits there
+            final PackedDigits differenceDigits = (PackedDigits)difference.digits;
+            differenceDigits.copyFrom((PackedDigits)this.digits);
+            differenceDigits.negate();
+            differenceDigits.fill(0, index + 1, (byte)0);
+            difference.refreshState();
+
+            this.digits.fill(index + 1, this.maxDigits, (byte)0);
+            this.refreshState();
+            this.lastDirtyIndex = index;
+            this.roundUpDigit(index, difference.isZero ? 0 : 1, difference);
+
+            return difference;
+        }
+
+        // the digits after the last dirty one are zero already, and so is the difference there; once a non-zero digit
+        // has been seen, every higher digit of the difference is its complement
+        final int last = Math.max(this.lastDirtyIndex, index);
+        final int radix = this.rules.getRadix();
+        final int forbiddenMask = this.forbiddenMask;
+        final int differenceMask = difference.forbiddenMask;
+        int borrow = 0;
+        final ParallelDigits parallel = this.parallelOver(index + 1, last + 1, difference);
+        if (parallel != null) {
+            // the 4 at the index stays the leading 4, so zeroing the digits below it leaves this number's state alone
+            final ParallelDigits.Scan scan = parallel.roundUp(this.digits, difference.digits, this.rules, index + 1,
+                                                              last + 1);
+            difference.mergeState(index + 1, scan);
+            borrow = scan.carry;
+        }
+        else {
+            for (int i = last; i > index; i--) {
+                final int val = radix - this.digits.get(i) - borrow;
+                if (val == radix) {
+                    borrow = 0;
+                }
+                else {
+                    borrow = 1;
+                    difference.setDigit(i, (byte)val, differenceMask);
+                }
+
+                this.setDigit(i, (byte)0, forbiddenMask);
             }
+        }
+        this.lastDirtyIndex = index;
+        this.roundUpDigit(index, borrow, difference);
+
+        return difference;
+    }
 
-            this.setDigit(i, (byte)defaultDigit);
+    /**
+     * Rounds this number down to the previous place value at the index ending in the largest allowed digit, replacing
+     * the digit there with the previous allowed one.
+     *
+     * @return The amount this number was decreased by.
+     */
+    private FourlessNumber decreaseFromIndex(final int index, @Nullable final FourlessNumber buffer) {
+        final FourlessNumber difference = this.differenceBuffer(buffer);
+        this.digitsTouched += this.maxDigits - index;
+        final byte maxAllowed = this.rules.maxAllowed;
+
+        if (this.isPackedWith(difference) && maxAllowed == 9) {
+            // the difference below the index is one more than the digits there
+            final PackedDigits differenceDigits = (PackedDigits)difference.digits;
+            differenceDigits.copyFrom((PackedDigits)this.digits);
+            differenceDigits.increment();
+            differenceDigits.fill(0, index + 1, (byte)0);
+            difference.refreshState();
+
+            this.digits.fill(index + 1, this.maxDigits, (byte)9);
+            this.refreshState();
+            this.roundDownDigit(index, difference.isZero ? 0 : 1, difference);
+
+            return difference;
         }
-        this.setDigit(index, sigDigitEffect.apply(this.num[index]).byteValue());
 
-        if (index == this.maxDigits - 1) {
-            difference.setDigit(this.maxDigits - 1, (byte)1);
+        final int radix = this.rules.getRadix();
+        final int forbiddenMask = this.forbiddenMask;
+        final int differenceMask = difference.forbiddenMask;
+        int borrow = 0;
+        final ParallelDigits parallel = this.parallelFrom(index + 1, difference);
+        if (parallel != null) {
+            // as when rounding up, the 4 at the index stays the leading 4, but every digit below it is non-zero now
+            final ParallelDigits.Scan scan = parallel.roundDown(this.digits, difference.digits, this.rules, index + 1,
+                                                                this.maxDigits);
+            difference.mergeState(index + 1, scan);
+            this.lastDirtyIndex = this.maxDigits - 1;
+            borrow = scan.carry;
         }
+        else {
+            for (int i = this.maxDigits - 1; i > index; i--) {
+                int val = this.digits.get(i) - maxAllowed - borrow;
+                if (val < 0) {
+                    val += radix;
+                    borrow = 1;
+                }
+                else {
+                    borrow = 0;
+                }
 
-        if (difference.isZero) {
-            difference.setDigit(index, (byte)1);
+                if (val != 0) {
+                    difference.setDigit(i, (byte)val, differenceMask);
+                }
+                this.setDigit(i, maxAllowed, forbiddenMask);
+            }
         }
+        this.roundDownDigit(index, borrow, difference);
 
         return difference;
     }
 
-    private FourlessNumber changeByMinimum(final FourlessNumber minDifference,
-                                           final Function<Byte, Byte> differenceAddition,
-                                           final Function<Boolean, Integer> carryAddition,
-                                           final Function<Integer, Boolean> carryCheck,
-                                           final Function<Integer, Integer> carryEffect,
-                                           final Function<Integer, FourlessNumber> finalStep) {
-        boolean carry = false;
-        int high4Index = this.maxDigits;
-        for (int i = minDifference.num.length - 1; i >= 0; i--) {
-            int result = this.num[i] + differenceAddition.apply(minDifference.num[i])
-                                     + carryAddition.apply(carry);
+    /**
+     * Replace the 4 at the index with the next allowed digit, once the digits below it are all zero, and add the
+     * change to the difference.
+     *
+     * @param borrow 1 if the difference below the index borrowed from it, i.e. the digits there were not zero already.
+     */
+    private void roundUpDigit(final int index, final int borrow, final FourlessNumber difference) {
+        final int radix = this.rules.getRadix();
+        int i = index;
+        int borrowed = borrow;
+        while (true) {
+            final byte digit = this.digits.get(i);
+            final byte next = this.rules.nextAllowed[digit];
+            if (next - digit != borrowed) {
+                difference.setDigit(i, (byte)(next - digit - borrowed));
+            }
 
-            carry = carryCheck.apply(result);
-            if (carry) {
-                result = carryEffect.apply(result);
+            if (next < radix) {
+                this.setDigit(i, next);
+                return;
             }
 
-            if (result == 4) {
-                high4Index = i;
+            // no larger digit is allowed, so this one wraps around to 0; the difference already counts the carry
+            this.setDigit(i, (byte)0);
+            i = this.carryInto(i - 1);
+            if (!this.rules.forbidden[this.digits.get(i)]) return;
+
+            // every digit below the new 4 is zero now
+            borrowed = 0;
+        }
+    }
+
+    /**
+     * Replace the 4 at the index with the previous allowed digit, which always exists since 0 is allowed, and add the
+     * change to the difference.
+     *
+     * @param borrow 1 if the difference below the index borrowed from it.
+     */
+    private void roundDownDigit(final int index, final int borrow, final FourlessNumber difference) {
+        final byte digit = this.digits.get(index);
+        final byte prev = this.rules.prevAllowed[digit];
+        if (digit - prev != borrow) {
+            difference.setDigit(index, (byte)(digit - prev - borrow));
+        }
+        this.setDigit(index, prev);
+    }
+
+    /**
+     * Add one at the index, carrying as far up as needed.
+     *
+     * @return The index the carry stopped at.
+     * @throws ArithmeticException If the carry runs out of digits.
+     */
+    private int carryInto(final int index) {
+        final int maxDigit = this.rules.getRadix() - 1;
+        for (int i = index; i >= 0; i--) {
+            final byte digit = this.digits.get(i);
+            this.digitsTouched++;
+            if (digit != maxDigit) {
+                this.setDigit(i, (byte)(digit + 1));
+                return i;
             }
+            this.setDigit(i, (byte)0);
+        }
+        throw new ArithmeticException("Rounding up needs more than " + this.maxDigits + " digits.");
+    }
 
-            this.setDigit(i,  (byte)result);
+    private void checkBuffer(@Nullable final FourlessNumber difference) {
+        checkArgument(difference == null || difference.maxDigits == this.maxDigits,
+                      "Difference buffer must have the same number of digits.");
+        checkArgument(difference != this, "Difference buffer cannot be the number being changed.");
+        this.beginWrite();
+        if (difference != null) {
+            difference.beginWrite();
         }
+    }
+
+    /**
+     * Forget the cached hash, as this number is about to change.
+     *
+     * @throws IllegalStateException If this is {@link #NAN}, which may never change.
+     */
+    private void beginWrite() {
+        checkState(this != NAN, "NAN is shared, so it cannot be changed.");
+        this.hash = 0;
+    }
+
+    private FourlessNumber differenceBuffer(@Nullable final FourlessNumber buffer) {
+        if (buffer == null) {
+            return new FourlessNumber(this.maxDigits, this.storage.forDifferences(), this.rules);
+        }
+
+        buffer.clear();
+        return buffer;
+    }
 
-        if (high4Index >= this.maxDigits) {
+    private static FourlessNumber noDifference(@Nullable final FourlessNumber buffer) {
+        if (buffer == null) {
             return FourlessNumber.NAN;
         }
 
-        return finalStep.apply(high4Index);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @return Whether the solver can work on this and the other number a whole word at a time.
+     */
+    private boolean isPackedWith(final FourlessNumber other) {
+        return this.maxDigits > 0 && this.digits instanceof PackedDigits
+               && ((PackedDigits)this.digits).isAlignedWith(other.digits);
+    }
+
+    /**
+     * Adds the other number's digits to these, a word at a time if both are packed. Only the other's own digits, and
+     * any carry out of them, change; the 4s are tracked as they go. A carry out of the top digit is dropped.
+     */
+    private void addDigits(final FourlessNumber other) {
+        if (this.isPackedWith(other)) {
+            this.digitsTouched += this.maxDigits;
+            this.addPacked(other, false);
+            return;
+        }
+
+        final int radix = this.rules.getRadix();
+        final int forbiddenMask = this.forbiddenMask;
+        final int lowest = other.leadingDigitIndex();
+        // nothing carries out of the other's zeroes after its last dirty digit
+        final int last = other.lastDirtyIndex;
+        int carry = 0;
+        int i = last;
+        final ParallelDigits parallel = this.parallelFrom(lowest, null);
+        if (parallel != null) {
+            // the other's digits in chunks, and then any carry out of them as usual; all the way to the end, since the
+            // scan has to see every digit from its start to find this number's leading digit and 4
+            final ParallelDigits.Scan scan = parallel.add(this.digits, other.digits, this.rules, lowest,
+                                                          other.maxDigits, false);
+            this.mergeState(lowest, scan);
+            carry = scan.carry;
+            i = lowest - 1;
+        }
+        for (; i >= 0 && (i >= lowest || carry != 0); i--) {
+            int sum = this.digits.get(i) + other.digits.get(i) + carry;
+            if (sum >= radix) {
+                sum -= radix;
+                carry = 1;
+            }
+            else {
+                carry = 0;
+            }
+            this.setDigit(i, (byte)sum, forbiddenMask);
+        }
+        this.digitsTouched += other.maxDigits - 1 - i;
+    }
+
+    /**
+     * As {@link #addDigits(FourlessNumber)}, but subtracts. A borrow out of the top digit is dropped.
+     */
+    private void subtractDigits(final FourlessNumber other) {
+        if (this.isPackedWith(other)) {
+            this.digitsTouched += this.maxDigits;
+            this.addPacked(other, true);
+            return;
+        }
+
+        final int radix = this.rules.getRadix();
+        final int forbiddenMask = this.forbiddenMask;
+        final int lowest = other.leadingDigitIndex();
+        final int last = other.lastDirtyIndex;
+        int borrow = 0;
+        int i = last;
+        final ParallelDigits parallel = this.parallelFrom(lowest, null);
+        if (parallel != null) {
+            final ParallelDigits.Scan scan = parallel.add(this.digits, other.digits, this.rules, lowest,
+                                                          other.maxDigits, true);
+            this.mergeState(lowest, scan);
+            borrow = scan.carry;
+            i = lowest - 1;
+        }
+        for (; i >= 0 && (i >= lowest || borrow != 0); i--) {
+            int result = this.digits.get(i) - other.digits.get(i) - borrow;
+            if (result < 0) {
+                result += radix;
+                borrow = 1;
+            }
+            else {
+                borrow = 0;
+            }
+            this.setDigit(i, (byte)result, forbiddenMask);
+        }
+        this.digitsTouched += other.maxDigits - 1 - i;
+    }
+
+    /**
+     * Adds or subtracts the other number word by word.
+     */
+    private void addPacked(final FourlessNumber other, final boolean subtract) {
+        ((PackedDigits)this.digits).add((PackedDigits)other.digits, subtract);
+        this.refreshState();
+    }
+
+    /**
+     * @param other Another number whose digits from the index on will be written alongside these, if any.
+     * @return The chunked loops to use on the digits from the index on, or null if this number has no pool, there are
+     *         too few of them, or either storage cannot be written by several threads at once.
+     */
+    @Nullable
+    private ParallelDigits parallelFrom(final int index, @Nullable final FourlessNumber other) {
+        return this.parallelOver(index, this.maxDigits, other);
+    }
+
+    /**
+     * As {@link #parallelFrom(int, FourlessNumber)}, for a pass that stops short of the last digit.
+     */
+    @Nullable
+    private ParallelDigits parallelOver(final int index, final int end, @Nullable final FourlessNumber other) {
+        if (this.parallel == null || !ParallelDigits.isWorthSplitting(index, end)) return null;
+        if (!this.digits.allowConcurrentSets(index)) return null;
+        if (other != null && !other.digits.allowConcurrentSets(index)) return null;
+
+        return this.parallel;
+    }
+
+    /**
+     * Bring the positions of the leading digit and the leading 4 up to date after every digit from the index on was
+     * rewritten in chunks, leaving the same state behind as writing each through {@link #setDigit(int, byte)} would.
+     */
+    private void mergeState(final int index, final ParallelDigits.Scan scan) {
+        if (this.mostSigForbiddenIndex < 0 || this.mostSigForbiddenIndex >= index) {
+            this.mostSigForbiddenIndex = scan.forbidden < 0 ? Integer.MIN_VALUE : scan.forbidden;
+        }
+        if (this.isZero || this.mostSigIndex >= index) {
+            this.isZero = scan.leading < 0;
+            this.mostSigIndex = this.isZero ? this.maxDigits : scan.leading;
+        }
+        this.lastDirtyIndex = this.isZero ? -1 : this.maxDigits - 1;
+    }
+
+    /**
+     * @return The index of this number's leading digit, which is the last that must be visited to add or subtract it,
+     *         or past the end if it is zero.
+     */
+    private int leadingDigitIndex() {
+        return this.isZero ? this.maxDigits : this.mostSigIndex;
     }
 
     // endregion solution helpers
 
     // region standard overrides
 
+    /**
+     * Only the digits from the leading one to the last either number may have non-zero are compared; the ones above
+     * and below are zero in both.
+     */
     @Override
     public boolean equals(@Nullable final Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         final FourlessNumber other = (FourlessNumber) o;
-        return maxDigits == other.maxDigits &&
-               mostSigIndex == other.mostSigIndex &&
-               mostSig4Index == other.mostSig4Index &&
-               isZero == other.isZero &&
-               Arrays.equals(num, other.num);
+        if (!(maxDigits == other.maxDigits &&
+              rules.equals(other.rules) &&
+              mostSigIndex == other.mostSigIndex &&
+              mostSigForbiddenIndex == other.mostSigForbiddenIndex &&
+              isZero == other.isZero)) {
+            return false;
+        }
+
+        final int last = Math.max(lastDirtyIndex, other.lastDirtyIndex);
+        for (int i = leadingDigitIndex(); i <= last; i++) {
+            if (digits.get(i) != other.digits.get(i)) return false;
+        }
+        return true;
     }
 
+    /**
+     * Hashes the value alone, so that equal values hash alike whatever their number of digits. Only the digits up to
+     * the last dirty one are read, and only once per change.
+     */
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(new Object[]{ maxDigits, mostSigIndex, mostSig4Index, isZero,
-                                                 IntStream.range(0, num.length).map(i -> num[i]).boxed().toArray() });
+        int result = this.hash;
+        if (result == 0 && !this.isZero) {
+            for (int i = this.mostSigIndex; i <= this.lastDirtyIndex; i++) {
+                result = 31 * result + this.digits.get(i);
+            }
+            // each zero after the last dirty digit adds nothing but another factor of 31
+            result *= IntMath.pow(31, this.maxDigits - 1 - this.lastDirtyIndex);
+            this.hash = result;
+        }
+        return result;
     }
 
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder();
-        for (byte b : this.num) {
-            sb.append(b);
+        final StringBuilder sb = new StringBuilder(this.digitCount());
+        final int start = this.leadingDigitIndex();
+        final int last = Math.max(this.lastDirtyIndex, start - 1);
+        for (int i = start; i <= last; i++) {
+            sb.append((char)('0' + this.digits.get(i)));
         }
-        return LEADING_ZEROES.matcher(sb.toString()).replaceFirst("");
+        for (int i = last + 1; i < this.maxDigits; i++) {
+            sb.append('0');
+        }
+        return sb.toString();
     }
 
     @Override
@@ -341,7 +1525,15 @@ public class FourlessNumber implements Comparable<FourlessNumber> {
             return 1;
         }
 
-        return Integer.signum(Byte.compare(this.num[this.mostSigIndex], other.num[other.mostSigIndex]));
+        // as many digits each, so the first that differs decides; past both last dirty digits, both are all zero
+        final int span = Math.max(this.lastDirtyIndex - this.mostSigIndex, other.lastDirtyIndex - other.mostSigIndex);
+        for (int i = 0; i <= span; i++) {
+            final int difference = this.digits.get(this.mostSigIndex + i) - other.digits.get(other.mostSigIndex + i);
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+        }
+        return 0;
     }
 
     // endregion standard overrides
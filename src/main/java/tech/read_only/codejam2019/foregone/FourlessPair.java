@@ -0,0 +1,131 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+
+/**
+ * The two numbers a case is split into. While being solved they are the search's working state; once solved, they
+ * are the case's answer.
+ *
+ * A pair may instead hold an answer that is already known, as frozen values, in which case it needs no solving, and
+ * its numbers are only thawed if asked for.
+ */
+public final class FourlessPair implements AutoCloseable {
+    @Nullable private FourlessNumber first;
+    @Nullable private FourlessNumber second;
+    @Nullable private final FourlessValue firstValue;
+    @Nullable private final FourlessValue secondValue;
+
+    private int rounds;
+    private long digitsTouched;
+
+    public FourlessPair(final FourlessNumber first, final FourlessNumber second) {
+        this.first = first;
+        this.second = second;
+        this.firstValue = null;
+        this.secondValue = null;
+    }
+
+    /**
+     * A solved pair, holding the answer as values, which it never copies.
+     */
+    public FourlessPair(final FourlessValue first, final FourlessValue second) {
+        this.firstValue = first;
+        this.secondValue = second;
+    }
+
+    /**
+     * @return The larger number, which the search only ever increases. Thawed on first use if this pair holds values.
+     */
+    public FourlessNumber getFirst() {
+        if (this.first == null) {
+            this.first = this.firstValue.thaw();
+        }
+        return this.first;
+    }
+
+    /**
+     * @return The smaller number, which the search only ever decreases. Thawed on first use if this pair holds values.
+     */
+    public FourlessNumber getSecond() {
+        if (this.second == null) {
+            this.second = this.secondValue.thaw();
+        }
+        return this.second;
+    }
+
+    /**
+     * @return Whether this pair holds a known answer as values, rather than numbers to be solved.
+     */
+    public boolean isFrozen() {
+        return this.firstValue != null;
+    }
+
+    /**
+     * @return The first of the values this pair holds, or null if it holds numbers.
+     */
+    @Nullable
+    public FourlessValue getFirstValue() {
+        return this.firstValue;
+    }
+
+    /**
+     * @return The second of the values this pair holds, or null if it holds numbers.
+     */
+    @Nullable
+    public FourlessValue getSecondValue() {
+        return this.secondValue;
+    }
+
+    /**
+     * @return The printed digits of both halves of the answer, in total.
+     */
+    public long digitCount() {
+        return this.isFrozen() ? (long)this.firstValue.digitCount() + this.secondValue.digitCount()
+                               : (long)this.first.digitCount() + this.second.digitCount();
+    }
+
+    /**
+     * Record how much work solving this pair took. Called by the {@link Solver}.
+     *
+     * @param rounds How many times the numbers were adjusted.
+     * @param digitsTouched How many digit positions were rewritten, over all rounds.
+     */
+    public void recordWork(final int rounds, final long digitsTouched) {
+        this.rounds = rounds;
+        this.digitsTouched = digitsTouched;
+    }
+
+    /**
+     * @return How many rounds the solver took, or 0 if it has not been solved.
+     */
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    /**
+     * @return How many digit positions the solver rewrote, over all rounds.
+     */
+    public long getDigitsTouched() {
+        return this.digitsTouched;
+    }
+
+    /**
+     * Release both numbers' off-heap memory, if they have any. See {@link FourlessNumber#close()}.
+     */
+    @Override
+    public void close() {
+        // values hold nothing to release, so only numbers, including any thawed from them, are closed
+        if (this.first != null) {
+            this.first.close();
+        }
+        if (this.second != null) {
+            this.second.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.isFrozen() ? this.firstValue.toString() + ' ' + this.secondValue.toString()
+                               : this.first.toString() + ' ' + this.second.toString();
+    }
+}
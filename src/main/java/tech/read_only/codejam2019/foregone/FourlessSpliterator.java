@@ -0,0 +1,96 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The fourless numbers with ranks in a half-open range, in increasing order; see {@link FourlessNumber#rank()}.
+ *
+ * Only the first number is found by unranking. Every later one is a single {@link FourlessNumber#incrementFourless()}
+ * step from the last, so no non-fourless numbers are ever visited. Splits halve the range of ranks, so that each half
+ * holds the same number of elements however unevenly the fourless numbers are spread.
+ */
+final class FourlessSpliterator implements Spliterator<FourlessNumber> {
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final FourlessNumber template;
+    private BigInteger from;
+    private final BigInteger to;
+
+    // the number at rank from, once needed
+    @Nullable private FourlessNumber next;
+
+    /**
+     * @param template Gives the elements their size, storage and rules.
+     * @param from The first rank, inclusive.
+     * @param to The last rank, exclusive.
+     */
+    FourlessSpliterator(final FourlessNumber template, final BigInteger from, final BigInteger to) {
+        this.template = template;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super FourlessNumber> action) {
+        if (this.from.compareTo(this.to) >= 0) return false;
+
+        action.accept(this.advance());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super FourlessNumber> action) {
+        while (this.from.compareTo(this.to) < 0) {
+            action.accept(this.advance());
+        }
+    }
+
+    @Nullable
+    @Override
+    public Spliterator<FourlessNumber> trySplit() {
+        final BigInteger half = this.to.subtract(this.from).shiftRight(1);
+        if (half.signum() == 0) return null;
+
+        final BigInteger mid = this.from.add(half);
+        final FourlessSpliterator prefix = new FourlessSpliterator(this.template, this.from, mid);
+        prefix.next = this.next;
+
+        this.from = mid;
+        this.next = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.to.subtract(this.from).max(BigInteger.ZERO).min(LONG_MAX).longValue();
+    }
+
+    @Override
+    public int characteristics() {
+        final int sized = this.to.subtract(this.from).compareTo(LONG_MAX) <= 0 ? SIZED | SUBSIZED : 0;
+        return ORDERED | DISTINCT | NONNULL | IMMUTABLE | sized;
+    }
+
+    /**
+     * @return A copy of the number at the first rank, which is then moved on.
+     */
+    private FourlessNumber advance() {
+        FourlessNumber current = this.next;
+        if (current == null) {
+            current = new FourlessNumber(this.template.getMaxDigits(), this.template.getStorage(),
+                                         this.template.getRules());
+            current.unrank(this.from);
+            this.next = current;
+        }
+
+        final FourlessNumber element = new FourlessNumber(current);
+        this.from = this.from.add(BigInteger.ONE);
+        if (this.from.compareTo(this.to) < 0) {
+            current.incrementFourless();
+        }
+        return element;
+    }
+}
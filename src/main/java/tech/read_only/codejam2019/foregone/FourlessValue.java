@@ -0,0 +1,162 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * An immutable snapshot of a {@link FourlessNumber}: only its printed digits, packed two to a byte, and its rules.
+ * Unlike the number, a value can be published to other threads, shared between them and kept in caches without
+ * copying or locking, and its hash is worked out once, when it is frozen.
+ *
+ * Values are made by {@link FourlessNumber#freeze()}, and turned back into numbers to work on by {@link #thaw()} or
+ * {@link FourlessNumber#copyFrom(FourlessValue)}; both are a single pass over the digits.
+ *
+ * Equality and order are numeric: values with the same digits and rules are equal, whatever the size and storage of
+ * the numbers they were frozen from.
+ */
+public final class FourlessValue implements Comparable<FourlessValue> {
+    // printed digit i is in the high half of byte i / 2 if i is even, and the low half if odd
+    private final byte[] packed;
+    private final int digitCount;
+    private final int forbiddenIndex;
+    private final DigitRules rules;
+    private final int maxDigits;
+    private final FourlessNumber.Storage storage;
+    private final int hash;
+
+    /**
+     * @param forbiddenIndex The printed index of the first forbidden digit, or -1 if there is none.
+     * @param digitHash The hash of the digits, worked out while packing them.
+     */
+    FourlessValue(final byte[] packed, final int digitCount, final int forbiddenIndex, final DigitRules rules,
+                  final int maxDigits, final FourlessNumber.Storage storage, final int digitHash) {
+        this.packed = packed;
+        this.digitCount = digitCount;
+        this.forbiddenIndex = forbiddenIndex;
+        this.rules = rules;
+        this.maxDigits = maxDigits;
+        this.storage = storage;
+        this.hash = 31 * digitHash + rules.hashCode();
+    }
+
+    /**
+     * @return A new number holding this value, as large and stored the same way as the number it was frozen from.
+     */
+    public FourlessNumber thaw() {
+        final FourlessNumber number = new FourlessNumber(this.maxDigits, this.storage, this.rules);
+        number.copyFrom(this);
+        return number;
+    }
+
+    /**
+     * @param index A printed digit, counting from the most significant one.
+     * @throws IndexOutOfBoundsException If there is no such digit.
+     */
+    public byte digitAt(final int index) {
+        checkElementIndex(index, this.digitCount);
+        return this.digit(index);
+    }
+
+    /**
+     * As {@link #digitAt(int)}, without checking the index.
+     */
+    byte digit(final int index) {
+        final int pair = this.packed[index >> 1];
+        return (byte)((index & 1) == 0 ? (pair >>> 4) & 0xF : pair & 0xF);
+    }
+
+    /**
+     * @return The number of printed digits, i.e. without leading zeroes.
+     */
+    public int digitCount() {
+        return this.digitCount;
+    }
+
+    public boolean isZero() {
+        return this.digitCount == 0;
+    }
+
+    public boolean isFourless() {
+        return this.forbiddenIndex < 0;
+    }
+
+    public DigitRules getRules() {
+        return this.rules;
+    }
+
+    /**
+     * @return The size of the number this value was frozen from, which {@link #thaw()} gives back.
+     */
+    public int getMaxDigits() {
+        return this.maxDigits;
+    }
+
+    public FourlessNumber.Storage getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * As {@link FourlessNumber#writeDigits(int, ByteBuffer)}: write as many of the printed digits as fit, as ASCII.
+     *
+     * @param from The first printed digit to write, counting from the most significant one.
+     * @return The number of digits written.
+     */
+    public int writeDigits(final int from, final ByteBuffer out) {
+        final int count = Math.min(this.digitCount - from, out.remaining());
+        if (count <= 0) return 0;
+
+        for (int i = from; i < from + count; i++) {
+            out.put((byte)('0' + this.digit(i)));
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FourlessValue)) return false;
+
+        final FourlessValue other = (FourlessValue)o;
+        if (this.hash != other.hash || this.digitCount != other.digitCount || !this.rules.equals(other.rules)) {
+            return false;
+        }
+        for (int i = 0; i < this.packed.length; i++) {
+            if (this.packed[i] != other.packed[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.digitCount);
+        for (int i = 0; i < this.digitCount; i++) {
+            sb.append((char)('0' + this.digit(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compares numerically, assuming both values have the same radix: more digits is larger, and then the first
+     * digit that differs decides. Two digits are compared at a time.
+     */
+    @Override
+    public int compareTo(final FourlessValue other) {
+        if (this.digitCount != other.digitCount) {
+            return this.digitCount < other.digitCount ? -1 : 1;
+        }
+
+        for (int i = 0; i < this.packed.length; i++) {
+            if (this.packed[i] != other.packed[i]) {
+                return Integer.compare(this.packed[i] & 0xFF, other.packed[i] & 0xFF);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,97 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A fixed-size histogram of non-negative longs, for percentiles of latencies and other per-case counts.
+ *
+ * Values below 16 are counted exactly; above that, each power of two is split into 8 buckets, so a percentile is
+ * never more than 12.5% above the true value. The maximum is exact. Recording is lock-free and safe from any thread;
+ * reads made while others are recording may not include the latest values.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+
+    // the lowest power of two that is split into sub-buckets, up to the highest a long can hold
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+    private static final int BUCKETS = EXACT_LIMIT + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @throws IllegalArgumentException If the value is negative.
+     */
+    public void record(final long value) {
+        checkArgument(value >= 0, "Cannot record a negative value.");
+
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return this.count.get();
+    }
+
+    /**
+     * @return The largest value recorded, or 0 if there are none.
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile Between 0 (exclusive) and 100 (inclusive).
+     * @return A value at least as large as the given percentage of the values recorded, or 0 if there are none.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public long percentile(final double percentile) {
+        checkArgument(percentile > 0 && percentile <= 100, "Percentile must be in (0, 100].");
+
+        final long total = this.count.get();
+        if (total == 0) return 0;
+
+        final long rank = (long)Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + this.percentile(50) + " p99=" + this.percentile(99) + " max=" + this.max();
+    }
+
+    private static int bucketOf(final long value) {
+        if (value < EXACT_LIMIT) {
+            return (int)value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(final int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+
+        final int exponent = (bucket - EXACT_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        final int subBucket = (bucket - EXACT_LIMIT) % SUB_BUCKETS;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ((long)(SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+}
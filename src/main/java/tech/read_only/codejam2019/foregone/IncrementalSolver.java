@@ -0,0 +1,133 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Solves a run of nearby numbers, N, then N + d, and so on, each starting from the answer to the one before, with the
+ * same pairs as {@link SearchSolver} would give solving them one at a time.
+ *
+ * The search's answer is the smallest fourless first number, no smaller than half of N, that leaves a fourless second
+ * number. When that first number is also the smallest fourless number no smaller than half of N, it stays the answer
+ * for N + d as long as adding d to the second number alone leaves that fourless and no larger than the first. Then
+ * only the digits the addition carries through change, which over a sweep of a range is a constant number per value,
+ * amortised. Otherwise the search runs again, from halves of N that are themselves kept up to date a carry at a time
+ * rather than parsed and halved again.
+ *
+ * Not thread safe. The pair handed out is this solver's own, and changes with the next number.
+ */
+public final class IncrementalSolver {
+    private final SearchSolver solver;
+    private final FourlessNumber high;
+    private final FourlessNumber low;
+    private final FourlessPair pair;
+
+    private boolean started;
+    private boolean odd;
+    // whether the first number is the smallest fourless number no smaller than half of N
+    private boolean atBound;
+    // no more than the first number minus the second; a long is plenty, as each step only takes a delta off it
+    private long gap;
+    private long searches;
+
+    /**
+     * @param maxDigits Enough digits for every number of the sweep; a carry out of the top digit is dropped, as by
+     *                  {@link FourlessNumber#add(int)}.
+     */
+    public IncrementalSolver(final DigitRules rules, final int maxDigits) {
+        checkArgument(maxDigits > 0, "Numbers need at least one digit.");
+
+        this.solver = new SearchSolver(rules);
+        this.high = new FourlessNumber(maxDigits, rules);
+        this.low = new FourlessNumber(maxDigits, rules);
+        this.pair = new FourlessPair(new FourlessNumber(maxDigits, rules), new FourlessNumber(maxDigits, rules));
+    }
+
+    /**
+     * Solve the first number of the sweep from scratch.
+     *
+     * @return The solved pair.
+     * @throws IllegalArgumentException If the number has too many digits, or digits outside the radix.
+     */
+    public FourlessPair start(final String number) {
+        this.low.clear();
+        this.low.init(number);
+        return this.startFromLow();
+    }
+
+    /**
+     * As {@link #start(String)}, reading the number's ASCII digits straight out of the buffer.
+     */
+    public FourlessPair start(final ByteBuffer digits, final int offset, final int length) {
+        this.low.reset(digits, offset, length);
+        return this.startFromLow();
+    }
+
+    private FourlessPair startFromLow() {
+        this.odd = this.low.halve() == 1;
+        this.high.copyFrom(this.low);
+        this.high.add(this.odd ? 1 : 0);
+        this.started = true;
+
+        this.search();
+        return this.pair;
+    }
+
+    /**
+     * Move on to the number {@code delta} larger than the last one, and solve it.
+     *
+     * @return The solved pair, the same object as before.
+     * @throws IllegalArgumentException If the delta is negative.
+     * @throws IllegalStateException If the sweep has not been started.
+     */
+    public FourlessPair advance(final int delta) {
+        checkArgument(delta >= 0, "Can only sweep upwards.");
+        checkState(this.started, "Start the sweep before advancing it.");
+
+        // of the two halves, the one that was rounded down gets the odd one out
+        final int half = delta >>> 1;
+        this.high.add(this.odd ? half : delta - half);
+        this.low.add(this.odd ? delta - half : half);
+        this.odd ^= (delta & 1) == 1;
+
+        final FourlessNumber second = this.pair.getSecond();
+        second.add(delta);
+        this.gap -= delta;
+
+        // the first number is at least half of N exactly when it is no smaller than the second, and then it is still
+        // the smallest fourless number that is
+        if (this.atBound && this.gap >= 0 && second.isFourless()) {
+            // a plain addition, which the solvers' count of digits touched leaves out
+            this.pair.recordWork(1, 0);
+            return this.pair;
+        }
+
+        this.search();
+        return this.pair;
+    }
+
+    /**
+     * @return How many numbers of the sweep needed a search, counting the first.
+     */
+    public long getSearches() {
+        return this.searches;
+    }
+
+    private void search() {
+        final FourlessNumber first = this.pair.getFirst();
+        final FourlessNumber second = this.pair.getSecond();
+        first.copyFrom(this.high);
+        second.copyFrom(this.low);
+
+        this.solver.solve(this.pair);
+        this.searches++;
+
+        // the first round moves the first number to the smallest fourless one above the half, and any later round
+        // moves it further
+        this.atBound = this.pair.getRounds() == 2;
+        final long difference = first.longDifference(second);
+        this.gap = difference < 0 ? Long.MAX_VALUE : difference;
+    }
+}
@@ -0,0 +1,120 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+/**
+ * Wraps another solver, timing each case and measuring what it allocates, and passes the results to a
+ * {@link SolveListener}. Splitting is not measured.
+ *
+ * Nothing is measured while the listener is disabled, so the only cost left behind is checking whether it is.
+ */
+public final class InstrumentedSolver implements Solver {
+    private final Solver delegate;
+    private final SolveListener listener;
+
+    public InstrumentedSolver(final Solver delegate, final SolveListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * Instrument the solver with the given listener, if any, and with Flight Recorder events, if this JVM has them.
+     * Each {@link SolveEvent} carries a case's statistics, and costs nothing unless a recording has it enabled.
+     *
+     * @return The solver, wrapped if there was anything to listen.
+     */
+    public static Solver instrument(final Solver solver, @Nullable final SolveListener listener) {
+        SolveListener combined = listener;
+        final SolveListener flightRecorder = flightRecorderListener();
+        if (flightRecorder != null) {
+            combined = combined == null ? flightRecorder : combined.andThen(flightRecorder);
+        }
+
+        return combined == null ? solver : new InstrumentedSolver(solver, combined);
+    }
+
+    @Override
+    public FourlessPair split(final String number) {
+        return this.delegate.split(number);
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+        return this.delegate.split(digits, offset, length);
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length, final FourlessPair reuse) {
+        return this.delegate.split(digits, offset, length, reuse);
+    }
+
+    @Override
+    public void solve(final FourlessPair pair) {
+        if (!this.listener.isEnabled()) {
+            this.delegate.solve(pair);
+            return;
+        }
+
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+
+        this.delegate.solve(pair);
+
+        final long nanos = System.nanoTime() - start;
+        final long allocatedAfter = allocatedBytes();
+        this.listener.caseSolved(this.delegate, pair, nanos,
+                                 allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+    }
+
+    /**
+     * @return The bytes allocated by the current thread so far, or -1 if that cannot be measured.
+     */
+    private static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean allocations = Allocations.COUNTER;
+        return allocations == null ? -1 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Loaded on the first measured case, since looking up the management bean takes a while and most runs measure
+     * nothing.
+     */
+    private static final class Allocations {
+        @Nullable
+        static final com.sun.management.ThreadMXBean COUNTER = allocationCounter();
+
+        @Nullable
+        private static com.sun.management.ThreadMXBean allocationCounter() {
+            try {
+                final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+                // if allocation counting is supported but turned off, the counts come back as -1
+                if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported()) {
+                    return (com.sun.management.ThreadMXBean)threads;
+                }
+            }
+            catch (LinkageError | UnsupportedOperationException e) {
+                // not a HotSpot JVM
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The listener is only loaded by name, since runtimes linked without the {@code jdk.jfr} module lack it.
+     */
+    @Nullable
+    private static SolveListener flightRecorderListener() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (SolveListener)Class.forName(InstrumentedSolver.class.getPackage().getName() + ".JfrSolveListener")
+                                       .getDeclaredConstructor()
+                                       .newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
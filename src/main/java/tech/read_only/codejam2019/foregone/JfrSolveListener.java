@@ -0,0 +1,40 @@
+package tech.read_only.codejam2019.foregone;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Emits a {@link SolveEvent} for each case, while a Flight Recorder recording has the event enabled.
+ * Created by name from {@link InstrumentedSolver}, so that nothing else links against {@code jdk.jfr}.
+ */
+final class JfrSolveListener implements SolveListener {
+
+    @Override
+    public void caseSolved(final Solver solver, final FourlessPair pair, final long nanos, final long allocatedBytes) {
+        final SolveEvent event = new SolveEvent();
+        event.solver = solver.getClass().getSimpleName();
+        event.digits = pair.getFirst().getMaxDigits();
+        event.rounds = pair.getRounds();
+        event.digitsTouched = pair.getDigitsTouched();
+        event.allocated = allocatedBytes;
+        event.solveTime = nanos;
+        event.commit();
+    }
+
+    /**
+     * Loading the first event class starts Flight Recorder up, which takes longer than solving most inputs, so the
+     * event is left alone until a recording has started it anyway.
+     */
+    @Override
+    public boolean isEnabled() {
+        return FlightRecorder.isInitialized() && Events.SOLVE.isEnabled();
+    }
+
+    /**
+     * Loaded on first use.
+     */
+    private static final class Events {
+        // asked before every case, so it is looked up once rather than read off a new event each time
+        static final EventType SOLVE = EventType.getEventType(SolveEvent.class);
+    }
+}
@@ -0,0 +1,143 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Reads whitespace-separated tokens from a file through a memory-mapped window, so that input never has to be copied
+ * onto the heap. The window slides along the file as it is read, which lets files far larger than one mapping (2GB)
+ * be processed in constant heap.
+ *
+ * After {@link #nextToken()}, the token's bytes are found in {@link #buffer()} at {@link #tokenOffset()}.
+ */
+public final class MappedInput implements Closeable {
+    private static final int DEFAULT_WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int minWindow;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+
+    private int tokenOffset;
+    private int tokenLength;
+
+    public MappedInput(final Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param minWindow The number of bytes to map at a time. Grows as needed to fit the longest token.
+     */
+    public MappedInput(final Path path, final int minWindow) throws IOException {
+        checkArgument(minWindow > 0, "Window must not be empty.");
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.minWindow = minWindow;
+        this.map(0, minWindow);
+    }
+
+    /**
+     * Advances to the next token.
+     *
+     * @return False if the end of the file was reached first.
+     */
+    public boolean nextToken() throws IOException {
+        while (true) {
+            while (this.position < this.window.limit() && isWhitespace(this.window.get(this.position))) {
+                this.position++;
+            }
+
+            if (this.position < this.window.limit()) break;
+            if (this.windowStart + this.window.limit() >= this.size) return false;
+
+            this.map(this.windowStart + this.position, this.minWindow);
+        }
+
+        int end = this.position;
+        while (true) {
+            while (end < this.window.limit() && !isWhitespace(this.window.get(end))) {
+                end++;
+            }
+
+            if (end < this.window.limit() || this.windowStart + end >= this.size) break;
+
+            // the token runs off the end of the window, so remap starting at the token with room for more of it
+            final int scanned = end - this.position;
+            checkState(scanned < Integer.MAX_VALUE / 2, "Token is too long to map.");
+            this.map(this.windowStart + this.position, Math.max(this.minWindow, scanned * 2));
+            end = scanned;
+        }
+
+        this.tokenOffset = this.position;
+        this.tokenLength = end - this.position;
+        this.position = end;
+        return true;
+    }
+
+    /**
+     * Reads the next token as a non-negative int.
+     *
+     * @throws EOFException If there are no more tokens.
+     * @throws NumberFormatException If the token is not a number that fits in an int.
+     */
+    public int nextInt() throws IOException {
+        if (!this.nextToken()) {
+            throw new EOFException("Expected a number.");
+        }
+
+        long value = 0;
+        for (int i = this.tokenOffset; i < this.tokenOffset + this.tokenLength; i++) {
+            final int digit = this.window.get(i) - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Expected a number, but token " + this.tokenLocation() + " is not.");
+            }
+        }
+        return (int)value;
+    }
+
+    /**
+     * @return The mapped window holding the current token. Only valid until the next call to {@link #nextToken()}.
+     */
+    public MappedByteBuffer buffer() {
+        return this.window;
+    }
+
+    public int tokenOffset() {
+        return this.tokenOffset;
+    }
+
+    public int tokenLength() {
+        return this.tokenLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private void map(final long start, final int length) throws IOException {
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, this.size - start));
+        this.windowStart = start;
+        this.position = 0;
+    }
+
+    private String tokenLocation() {
+        return "at byte " + (this.windowStart + this.tokenOffset);
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
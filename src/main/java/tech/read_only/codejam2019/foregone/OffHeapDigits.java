@@ -0,0 +1,303 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * One digit per byte, as {@link ByteDigits}, but outside the heap: in direct memory, or in a memory-mapped temporary
+ * file. A number of a billion digits then costs the garbage collector nothing to keep, and the operating system can
+ * page a mapped one out under pressure.
+ *
+ * As in {@link ByteDigits}, forbidden digits are found by scanning rather than tracked as they are written. As in
+ * {@link SparseDigits}, everything above the highest non-zero digit set since the last clear is known to be zero, so
+ * that clearing and scanning a number that is mostly leading zeroes, such as the solver's differences, only cover the
+ * digits actually in use.
+ * Temporary files are deleted as soon as they are mapped, so nothing is left behind even if the process dies.
+ * The memory is released by {@link #close()}, or failing that whenever the garbage collector notices the buffer is
+ * gone.
+ */
+final class OffHeapDigits implements DigitStorage {
+    private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
+
+    // releases a direct or mapped buffer's memory now, rather than when it is collected
+    private static final Consumer<ByteBuffer> FREE = findFree();
+
+    private final int length;
+    private final int forbiddenMask;
+    @Nullable private final Path directory;
+
+    private ByteBuffer memory;
+
+    // every digit above this index is zero, so that zeroing and scanning skip them
+    private int top;
+
+    /**
+     * @param directory Where to map the digits to a temporary file, or null to keep them in direct memory.
+     * @throws IllegalArgumentException If the digits would not fit in one buffer.
+     * @throws UncheckedIOException If the temporary file cannot be created or mapped.
+     */
+    OffHeapDigits(final int length, final DigitRules rules, @Nullable final Path directory) {
+        this(length, rules.getForbiddenMask(), directory);
+    }
+
+    private OffHeapDigits(final int length, final int forbiddenMask, @Nullable final Path directory) {
+        this.length = length;
+        this.forbiddenMask = forbiddenMask;
+        this.directory = directory;
+        this.memory = allocate(length, directory).order(ByteOrder.nativeOrder());
+        this.top = length;
+    }
+
+    /**
+     * @return The directory to map digits in: the {@code foregone.mapped.dir} system property, falling back to the
+     *         system's temporary directory.
+     */
+    static Path mappedDirectory() {
+        return Paths.get(System.getProperty("foregone.mapped.dir", System.getProperty("java.io.tmpdir")));
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public byte get(final int index) {
+        this.checkIndex(index);
+        return this.memory.get(index);
+    }
+
+    @Override
+    public void set(final int index, final byte value) {
+        this.checkIndex(index);
+        this.memory.put(index, value);
+        if (value != 0 && index < this.top) {
+            this.top = index;
+        }
+    }
+
+    @Override
+    public void fill(final int from, final int to, final byte value) {
+        if (from >= to) return;
+        this.checkIndex(from);
+        this.checkIndex(to - 1);
+
+        if (value != 0) {
+            this.fillRange(from, to, value);
+            this.top = Math.min(this.top, from);
+            return;
+        }
+
+        // the digits above the top are zero already
+        final int start = Math.max(from, this.top);
+        if (start >= to) return;
+
+        this.fillRange(start, to, (byte)0);
+        if (start == this.top && to == this.length) {
+            this.top = this.length;
+        }
+    }
+
+    private void fillRange(final int from, final int to, final byte value) {
+        // a byte at a time up to a word boundary, and then a word at a time
+        final long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        int i = from;
+        for (; i < to && (i & 7) != 0; i++) {
+            this.memory.put(i, value);
+        }
+        for (; i + 8 <= to; i += 8) {
+            this.memory.putLong(i, pattern);
+        }
+        for (; i < to; i++) {
+            this.memory.put(i, value);
+        }
+    }
+
+    @Override
+    public int indexOf(final byte value, final int from) {
+        if (value == 0 && from < this.top) {
+            return from < this.length ? from : -1;
+        }
+        for (int i = from; i < this.length; i++) {
+            if (this.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfForbidden(final int from) {
+        // 0 is never forbidden, so neither are the digits above the top
+        final int start = Math.max(from, this.top);
+        if (start >= this.length) return -1;
+
+        this.checkOpen();
+        for (int i = start; i < this.length; i++) {
+            if (this.isForbidden(this.memory.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfNonZero(final int from) {
+        final int start = Math.max(from, this.top);
+        if (start >= this.length) return -1;
+        this.checkIndex(start);
+
+        // skip whole words of zeroes, and then find the digit within the word
+        int i = start;
+        for (; i < this.length && (i & 7) != 0; i++) {
+            if (this.memory.get(i) != 0) return i;
+        }
+        while (i + 8 <= this.length && this.memory.getLong(i) == 0) {
+            i += 8;
+        }
+        for (; i < this.length; i++) {
+            if (this.memory.get(i) != 0) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void toAscii(final int from, final int to, final byte[] dst, final int offset) {
+        if (from >= to) return;
+        this.checkIndex(from);
+        this.checkIndex(to - 1);
+
+        // one bulk copy out of the buffer, and then the digits made characters in place
+        final ByteBuffer digits = this.memory.duplicate();
+        digits.position(from);
+        digits.get(dst, offset, to - from);
+        for (int i = offset; i < offset + to - from; i++) {
+            dst[i] += '0';
+        }
+    }
+
+    /**
+     * Raises the top above the digits to be written, so that setting them never moves it.
+     */
+    @Override
+    public boolean allowConcurrentSets(final int from) {
+        this.checkOpen();
+        this.top = Math.min(this.top, from);
+        return true;
+    }
+
+    @Override
+    public void copyFrom(final DigitStorage other) {
+        final OffHeapDigits source = (OffHeapDigits)other;
+        this.checkOpen();
+        source.checkOpen();
+
+        // above both tops, both are zero already
+        final int start = Math.min(this.top, source.top);
+        copyRange(source.memory, this.memory, start, this.length);
+        this.top = source.top;
+    }
+
+    @Override
+    public OffHeapDigits copy() {
+        final OffHeapDigits copy = new OffHeapDigits(this.length, this.forbiddenMask, this.directory);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Release the memory now. Every later access throws, instead of touching memory that is no longer there.
+     */
+    @Override
+    public void close() {
+        final ByteBuffer memory = this.memory;
+        if (memory == CLOSED) return;
+
+        this.memory = CLOSED;
+        FREE.accept(memory);
+    }
+
+    private void checkIndex(final int index) {
+        this.checkOpen();
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Digit " + index + " of " + this.length);
+        }
+    }
+
+    private void checkOpen() {
+        if (this.memory == CLOSED) {
+            throw new IllegalStateException("Digits were closed.");
+        }
+    }
+
+    private static void copyRange(final ByteBuffer source, final ByteBuffer target, final int from, final int to) {
+        if (from >= to) return;
+
+        final ByteBuffer src = source.duplicate();
+        src.limit(to).position(from);
+        final ByteBuffer dst = target.duplicate();
+        dst.limit(to).position(from);
+        dst.put(src);
+    }
+
+    private boolean isForbidden(final byte value) {
+        return (this.forbiddenMask >>> value & 1) != 0;
+    }
+
+    private static ByteBuffer allocate(final int size, @Nullable final Path directory) {
+        if (directory == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        try {
+            final Path file = Files.createTempFile(directory, "foregone", ".digits");
+            // mapping outlives the channel, so the file is gone as soon as it is mapped; new pages read as zero
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Buffers are freed through {@code Unsafe.invokeCleaner}. Where that is not reachable, the memory is left to the
+     * garbage collector.
+     */
+    private static Consumer<ByteBuffer> findFree() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> {};
+        }
+    }
+
+    @Nullable
+    private static Object invoke(final Method method, final Object target, final Object... args) {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
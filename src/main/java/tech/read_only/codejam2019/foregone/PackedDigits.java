@@ -0,0 +1,271 @@
+package tech.read_only.codejam2019.foregone;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sixteen digits per {@code long}, as packed BCD nibbles. The most significant digit of each word sits in its top
+ * nibble, and the digits are right-aligned so that the last word is always full; any padding is at the top of word 0
+ * and is kept zero.
+ *
+ * Scans and arithmetic work a whole word at a time (SWAR), rather than a digit at a time.
+ */
+final class PackedDigits implements DigitStorage {
+    private static final int DIGITS_PER_WORD = 16;
+
+    private static final long ONES = 0x1111111111111111L;
+    private static final long SIXES = 0x6666666666666666L;
+    private static final long SEVENS = 0x7777777777777777L;
+    private static final long HIGH_BITS = 0x8888888888888888L;
+    private static final long NINES = 0x9999999999999999L;
+    private static final long CARRY_BITS = 0x1111111111111110L;
+    private static final long TOP_SIX = 0x6000000000000000L;
+
+    private final long[] words;
+    private final int length;
+    private final int padding;
+
+    // every forbidden digit, repeated in every nibble
+    private final long[] forbiddenPatterns;
+
+    /**
+     * @throws IllegalArgumentException If the rules are not for decimal digits.
+     */
+    PackedDigits(final int length, final DigitRules rules) {
+        checkArgument(rules.getRadix() == 10, "Packed digits can only be decimal.");
+
+        this.words = new long[(length + DIGITS_PER_WORD - 1) / DIGITS_PER_WORD];
+        this.length = length;
+        this.padding = this.words.length * DIGITS_PER_WORD - length;
+        this.forbiddenPatterns = new long[Integer.bitCount(rules.getForbiddenMask())];
+        for (int digit = 0, i = 0; digit < 10; digit++) {
+            if (rules.isForbidden(digit)) {
+                this.forbiddenPatterns[i++] = digit * ONES;
+            }
+        }
+    }
+
+    private PackedDigits(final PackedDigits other) {
+        this.words = other.words.clone();
+        this.length = other.length;
+        this.padding = other.padding;
+        this.forbiddenPatterns = other.forbiddenPatterns;
+    }
+
+    // region DigitStorage
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public byte get(final int index) {
+        final int pos = index + this.padding;
+        return (byte)((this.words[pos >>> 4] >>> shift(pos)) & 0xF);
+    }
+
+    @Override
+    public void set(final int index, final byte value) {
+        final int pos = index + this.padding;
+        final int shift = shift(pos);
+        final int w = pos >>> 4;
+        this.words[w] = (this.words[w] & ~(0xFL << shift)) | ((long)value << shift);
+    }
+
+    @Override
+    public void fill(final int from, final int to, final byte value) {
+        if (from >= to) return;
+
+        final long pattern = value * ONES;
+        final int start = from + this.padding;
+        final int end = to + this.padding;
+        final int lastWord = (end - 1) >>> 4;
+        for (int w = start >>> 4; w <= lastWord; w++) {
+            final int base = w * DIGITS_PER_WORD;
+            final long mask = nibblesFrom(start - base) & ~nibblesFrom(end - base);
+            this.words[w] = (this.words[w] & ~mask) | (pattern & mask);
+        }
+    }
+
+    @Override
+    public int indexOf(final byte value, final int from) {
+        final long pattern = value * ONES;
+        final int start = from + this.padding;
+        for (int w = start >>> 4; w < this.words.length; w++) {
+            long matches = zeroNibbles(this.words[w] ^ pattern);
+            if (w == start >>> 4) {
+                matches &= nibblesFrom(start & 15);
+            }
+
+            if (matches != 0) {
+                return this.indexAt(w, matches);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfForbidden(final int from) {
+        final int start = from + this.padding;
+        for (int w = start >>> 4; w < this.words.length; w++) {
+            long matches = 0;
+            for (long pattern : this.forbiddenPatterns) {
+                matches |= zeroNibbles(this.words[w] ^ pattern);
+            }
+            if (w == start >>> 4) {
+                matches &= nibblesFrom(start & 15);
+            }
+
+            if (matches != 0) {
+                return this.indexAt(w, matches);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfNonZero(final int from) {
+        final int start = from + this.padding;
+        for (int w = start >>> 4; w < this.words.length; w++) {
+            long nonZero = this.words[w];
+            if (w == start >>> 4) {
+                nonZero &= nibblesFrom(start & 15);
+            }
+
+            if (nonZero != 0) {
+                return this.indexAt(w, nonZero);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void toAscii(final int from, final int to, final byte[] dst, final int offset) {
+        int out = offset;
+        int pos = from + this.padding;
+        final int end = to + this.padding;
+        while (pos < end) {
+            final long word = this.words[pos >>> 4];
+            final int wordEnd = Math.min(end, (pos | 15) + 1);
+            for (; pos < wordEnd; pos++) {
+                dst[out++] = (byte)('0' + ((word >>> shift(pos)) & 0xF));
+            }
+        }
+    }
+
+    @Override
+    public void copyFrom(final DigitStorage other) {
+        System.arraycopy(((PackedDigits)other).words, 0, this.words, 0, this.words.length);
+    }
+
+    @Override
+    public PackedDigits copy() {
+        return new PackedDigits(this);
+    }
+
+    // endregion DigitStorage
+
+    // region word arithmetic
+
+    /**
+     * @return Whether these digits can be combined word-for-word with the other's.
+     */
+    boolean isAlignedWith(final DigitStorage other) {
+        return other instanceof PackedDigits && ((PackedDigits)other).length == this.length;
+    }
+
+    /**
+     * Add (or subtract) the other's digits to these, which must be aligned. A final carry or borrow is dropped.
+     */
+    void add(final PackedDigits other, final boolean subtract) {
+        // a - b is computed as a + (9s complement of b) + 1, where a carry out means there was no borrow
+        int carry = subtract ? 1 : 0;
+        for (int w = this.words.length - 1; w >= 0; w--) {
+            final long addend = subtract ? NINES - other.words[w] : other.words[w];
+            carry = this.addWord(w, this.words[w], addend, carry);
+        }
+        this.clearPadding();
+    }
+
+    /**
+     * Replace these digits with their ten's complement, i.e. {@code 10^length - this}, or zero if already zero.
+     */
+    void negate() {
+        int carry = 1;
+        for (int w = this.words.length - 1; w >= 0; w--) {
+            carry = this.addWord(w, 0, NINES - this.words[w], carry);
+        }
+        this.clearPadding();
+    }
+
+    /**
+     * Add one to these digits, dropping a final carry.
+     */
+    void increment() {
+        int carry = 1;
+        for (int w = this.words.length - 1; w >= 0 && carry != 0; w--) {
+            carry = this.addWord(w, this.words[w], 0, carry);
+        }
+        this.clearPadding();
+    }
+
+    /**
+     * Adds two words of 16 BCD digits each, plus a carry, storing the result in word {@code w}.
+     * Every digit is biased by 6 so that binary carries coincide with decimal ones; the bias is then removed from
+     * every digit that did not carry.
+     *
+     * @return The carry out of the top digit.
+     */
+    private int addWord(final int w, final long a, final long b, final int carry) {
+        final long biased = a + SIXES;
+        final long addend = b + carry;
+        final long sum = biased + addend;
+        final boolean carryOut = Long.compareUnsigned(sum, biased) < 0;
+
+        final long noCarryIn = ~(sum ^ biased ^ addend) & CARRY_BITS;
+        long bias = (noCarryIn >>> 2) | (noCarryIn >>> 3);
+        if (!carryOut) {
+            bias |= TOP_SIX;
+        }
+
+        this.words[w] = sum - bias;
+        return carryOut ? 1 : 0;
+    }
+
+    private void clearPadding() {
+        if (this.words.length > 0) {
+            this.words[0] &= nibblesFrom(this.padding);
+        }
+    }
+
+    // endregion word arithmetic
+
+    // region bit tricks
+
+    private static int shift(final int pos) {
+        return (15 - (pos & 15)) << 2;
+    }
+
+    /**
+     * @return A mask of every nibble in a word from the given position (0 being the top nibble) onwards.
+     *         Positions outside of the word are clamped to it.
+     */
+    private static long nibblesFrom(final int pos) {
+        if (pos <= 0) return -1L;
+        return pos >= DIGITS_PER_WORD ? 0 : -1L >>> (pos << 2);
+    }
+
+    /**
+     * @return The high bit of every nibble that is zero, and nothing else. Exact, since no nibble carries into the
+     *         next one.
+     */
+    private static long zeroNibbles(final long word) {
+        return ~(((word & SEVENS) + SEVENS) | word) & HIGH_BITS;
+    }
+
+    private int indexAt(final int w, final long nibbleBits) {
+        return w * DIGITS_PER_WORD + (Long.numberOfLeadingZeros(nibbleBits) >>> 2) - this.padding;
+    }
+
+    // endregion bit tricks
+}
@@ -0,0 +1,409 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The digit loops of a single huge {@link FourlessNumber}, run in chunks on a {@link ForkJoinPool}.
+ *
+ * Chunks start on multiples of {@link #CHUNK} digits, so that no two of them share a word of any storage, and each is
+ * written by one thread only; see {@link DigitStorage#allowConcurrentSets(int)}.
+ * Carries, borrows and halving remainders do cross chunks, and are resolved by carry-select: every chunk first works
+ * out, reading only, what it would pass on for either of the two values it may receive. A quick sequential pass over
+ * the chunks then settles which one each actually receives, and a second parallel pass writes the digits. The same
+ * pass finds each chunk's leading non-zero and forbidden digits, and the number's are then the minimum over chunks.
+ *
+ * Every method covers the digits from {@code from} (inclusive) to {@code to} (exclusive) only, and most return a
+ * {@link Scan} of what they wrote there.
+ */
+final class ParallelDigits {
+    // digits per chunk; a whole number of words of packed digits, so that no word straddles two chunks
+    static final int CHUNK = 1 << 16;
+
+    // fewer digits than this are done faster on one thread than by handing them out
+    static final int MIN_DIGITS = 1 << 20;
+
+    private final ForkJoinPool pool;
+
+    ParallelDigits(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * What a parallel pass wrote: the indexes of the first non-zero and first forbidden digits, each -1 if there are
+     * none, and whatever carry, borrow or remainder came out of the far end.
+     */
+    static final class Scan {
+        int leading = -1;
+        int forbidden = -1;
+        int carry;
+        long count;
+    }
+
+    /**
+     * @return Whether a range is long enough to be worth splitting up.
+     */
+    static boolean isWorthSplitting(final int from, final int to) {
+        return to - from >= MIN_DIGITS;
+    }
+
+    /**
+     * Halve the digits, from the most significant, as {@link FourlessNumber#halve()} does.
+     *
+     * @return The remainder as the carry.
+     */
+    Scan halve(final DigitStorage digits, final DigitRules rules, final int from, final int to) {
+        final int radix = rules.getRadix();
+
+        // what remainder each chunk leaves, if it receives 0 or 1
+        final int chunks = chunkCount(from, to);
+        final int[] outs = new int[chunks];
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            // in an even radix, each remainder is just the parity of the digit it came from
+            if ((radix & 1) == 0) {
+                outs[chunk] = (digits.get(end - 1) & 1) * 3;
+                return;
+            }
+
+            int remainder0 = 0;
+            int remainder1 = 1;
+            for (int i = start; i < end; i++) {
+                final byte digit = digits.get(i);
+                remainder0 = (remainder0 * radix + digit) & 1;
+                remainder1 = (remainder1 * radix + digit) & 1;
+            }
+            outs[chunk] = remainder0 | remainder1 << 1;
+        });
+
+        final int[] ins = new int[chunks];
+        int remainder = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            ins[chunk] = remainder;
+            remainder = outs[chunk] >>> remainder & 1;
+        }
+
+        final Scan scan = this.writeChunks(from, to, rules.forbidden, (chunk, start, end, found) -> {
+            int carry = ins[chunk];
+            for (int i = start; i < end; i++) {
+                final int value = carry * radix + digits.get(i);
+                final byte half = (byte)(value >>> 1);
+                carry = value & 1;
+                digits.set(i, half);
+                found.saw(i, half);
+            }
+        });
+        scan.carry = remainder;
+        return scan;
+    }
+
+    /**
+     * Add the other's digits to these, or subtract them, from the least significant.
+     *
+     * @return The carry or borrow out of the most significant digit.
+     */
+    Scan add(final DigitStorage digits, final DigitStorage other, final DigitRules rules, final int from, final int to,
+             final boolean subtract) {
+        final byte[] sumDigit = rules.sumDigit;
+        final byte[] sumCarry = rules.sumCarry;
+        // a digit less another and a borrow, offset by the radix, carries exactly when nothing is borrowed
+        final int offset = subtract ? rules.getRadix() : 0;
+        final int sign = subtract ? -1 : 1;
+
+        final int chunks = chunkCount(from, to);
+        final int[] outs = new int[chunks];
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            int carry0 = 0;
+            int carry1 = 1;
+            int i = end - 1;
+            // once both carries agree, so does everything after them
+            for (; i >= start && carry0 != carry1; i--) {
+                final int sum = digits.get(i) + sign * other.get(i) + offset;
+                carry0 = carryOut(sumCarry[sum + sign * carry0], subtract);
+                carry1 = carryOut(sumCarry[sum + sign * carry1], subtract);
+            }
+            final boolean agreed = carry0 == carry1;
+            for (; i >= start; i--) {
+                final int sum = digits.get(i) + sign * other.get(i) + offset;
+                carry0 = carryOut(sumCarry[sum + sign * carry0], subtract);
+            }
+            outs[chunk] = carry0 | (agreed ? carry0 : carry1) << 1;
+        });
+        final int[] ins = new int[chunks];
+        final int carryOut = settleUpwards(outs, ins);
+
+        final Scan scan = this.writeChunks(from, to, rules.forbidden, (chunk, start, end, found) -> {
+            int carry = ins[chunk];
+            for (int i = end - 1; i >= start; i--) {
+                final int sum = digits.get(i) + sign * (other.get(i) + carry) + offset;
+                carry = carryOut(sumCarry[sum], subtract);
+                digits.set(i, sumDigit[sum]);
+                found.saw(i, sumDigit[sum]);
+            }
+        });
+        scan.carry = carryOut;
+        return scan;
+    }
+
+    /**
+     * Zero the digits, writing into the difference, which must be zero there, how much that takes to round them up
+     * to the next multiple of the place value above them; as {@link FourlessNumber}'s {@code increaseFromIndex}.
+     *
+     * @return A scan of the difference, with a borrow out of the top if any digit was non-zero.
+     */
+    Scan roundUp(final DigitStorage digits, final DigitStorage difference, final DigitRules rules, final int from,
+                 final int to) {
+        final int radix = rules.getRadix();
+
+        // every digit above the lowest non-zero one borrows, so a chunk passes on a borrow if it has any non-zero digit
+        final int chunks = chunkCount(from, to);
+        final int[] outs = new int[chunks];
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            int i = start;
+            while (i < end && digits.get(i) == 0) {
+                i++;
+            }
+            outs[chunk] = i < end ? 3 : 2;
+        });
+        final int[] ins = new int[chunks];
+        final int borrowOut = settleUpwards(outs, ins);
+
+        final Scan scan = this.writeChunks(from, to, rules.forbidden, (chunk, start, end, found) -> {
+            int borrow = ins[chunk];
+            for (int i = end - 1; i >= start; i--) {
+                final int value = radix - digits.get(i) - borrow;
+                if (value != radix) {
+                    borrow = 1;
+                    if (value != 0) {
+                        difference.set(i, (byte)value);
+                        found.saw(i, (byte)value);
+                    }
+                }
+            }
+            digits.fill(start, end, (byte)0);
+        });
+        scan.carry = borrowOut;
+        return scan;
+    }
+
+    /**
+     * Fill the digits with the largest allowed digit, writing into the difference, which must be zero there, how much
+     * that takes off them; as {@link FourlessNumber}'s {@code decreaseFromIndex}.
+     *
+     * @return A scan of the difference, with a borrow out of the top if the digits were below the filled ones.
+     */
+    Scan roundDown(final DigitStorage digits, final DigitStorage difference, final DigitRules rules, final int from,
+                   final int to) {
+        final int radix = rules.getRadix();
+        final byte maxAllowed = rules.maxAllowed;
+
+        final int chunks = chunkCount(from, to);
+        final int[] outs = new int[chunks];
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            int borrow0 = 0;
+            int borrow1 = 1;
+            int i = end - 1;
+            for (; i >= start && borrow0 != borrow1; i--) {
+                final int value = digits.get(i) - maxAllowed;
+                borrow0 = value - borrow0 < 0 ? 1 : 0;
+                borrow1 = value - borrow1 < 0 ? 1 : 0;
+            }
+            final boolean agreed = borrow0 == borrow1;
+            for (; i >= start; i--) {
+                borrow0 = digits.get(i) - maxAllowed - borrow0 < 0 ? 1 : 0;
+            }
+            outs[chunk] = borrow0 | (agreed ? borrow0 : borrow1) << 1;
+        });
+        final int[] ins = new int[chunks];
+        final int borrowOut = settleUpwards(outs, ins);
+
+        final Scan scan = this.writeChunks(from, to, rules.forbidden, (chunk, start, end, found) -> {
+            int borrow = ins[chunk];
+            for (int i = end - 1; i >= start; i--) {
+                int value = digits.get(i) - maxAllowed - borrow;
+                borrow = value < 0 ? 1 : 0;
+                value += borrow * radix;
+                if (value != 0) {
+                    difference.set(i, (byte)value);
+                    found.saw(i, (byte)value);
+                }
+            }
+            digits.fill(start, end, maxAllowed);
+        });
+        scan.carry = borrowOut;
+        return scan;
+    }
+
+    /**
+     * Move part of every forbidden digit into the other digits, which must be zero there, as
+     * {@link FourlessNumber#moveFoursInto(FourlessNumber)} does.
+     *
+     * @return A scan of the other digits, with the number of digits moved as the count.
+     */
+    Scan moveForbidden(final DigitStorage digits, final DigitStorage other, final DigitRules rules, final int from,
+                       final int to) {
+        final byte[] split = rules.split;
+        final long[] moved = new long[chunkCount(from, to)];
+        final Scan scan = this.writeChunks(from, to, rules.forbidden, (chunk, start, end, found) -> {
+            for (int i = start; i < end; i++) {
+                final byte digit = digits.get(i);
+                if (rules.forbidden[digit]) {
+                    digits.set(i, (byte)(digit - split[digit]));
+                    other.set(i, split[digit]);
+                    found.saw(i, split[digit]);
+                    moved[chunk]++;
+                }
+            }
+        });
+        for (long count : moved) {
+            scan.count += count;
+        }
+        return scan;
+    }
+
+    /**
+     * Parse ASCII digits into the digits, one digit for each character, starting at {@code from}. Unlike the other
+     * passes, this one leaves finding the leading digits to the number, which scans for them anyway.
+     *
+     * @throws IllegalArgumentException If a character is not a digit.
+     */
+    void parse(final DigitStorage digits, final DigitRules rules, final AsciiSource ascii, final int from,
+               final int to) {
+        final int radix = rules.getRadix();
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                digits.set(i, FourlessNumber.digitOf(ascii.charAt(i - from), radix));
+            }
+        });
+    }
+
+    /**
+     * The characters being parsed, by their index in the input.
+     */
+    @FunctionalInterface
+    interface AsciiSource {
+        int charAt(int index);
+    }
+
+    // region chunks
+
+    @FunctionalInterface
+    private interface ChunkAction {
+        void run(int chunk, int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(int chunk, int from, int to, Found found);
+    }
+
+    /**
+     * The first non-zero and forbidden digits one chunk writes.
+     */
+    private static final class Found {
+        private final boolean[] forbiddenDigits;
+        int leading = -1;
+        int forbidden = -1;
+
+        Found(final boolean[] forbiddenDigits) {
+            this.forbiddenDigits = forbiddenDigits;
+        }
+
+        /**
+         * Note a digit written. Digits may be seen in any order.
+         */
+        void saw(final int index, final byte digit) {
+            if (digit != 0 && (this.leading < 0 || index < this.leading)) {
+                this.leading = index;
+            }
+            if (this.forbiddenDigits[digit] && (this.forbidden < 0 || index < this.forbidden)) {
+                this.forbidden = index;
+            }
+        }
+    }
+
+    /**
+     * Run the writer over every chunk, and reduce what each found to the first of all.
+     */
+    private Scan writeChunks(final int from, final int to, final boolean[] forbiddenDigits, final ChunkWriter writer) {
+        final Found[] found = new Found[chunkCount(from, to)];
+        this.forEachChunk(from, to, (chunk, start, end) -> {
+            found[chunk] = new Found(forbiddenDigits);
+            writer.write(chunk, start, end, found[chunk]);
+        });
+
+        // chunks are in order, so the first to find anything found the first
+        final Scan scan = new Scan();
+        for (Found chunk : found) {
+            if (scan.leading < 0) scan.leading = chunk.leading;
+            if (scan.forbidden < 0) scan.forbidden = chunk.forbidden;
+        }
+        return scan;
+    }
+
+    /**
+     * Settle the carry into every chunk, from the least significant, which receives none.
+     *
+     * @param outs By chunk: the carry out if none comes in, with the carry out if one does in the next bit.
+     * @param ins Receives the carry into every chunk.
+     * @return The carry out of the most significant chunk.
+     */
+    private static int settleUpwards(final int[] outs, final int[] ins) {
+        int carry = 0;
+        for (int chunk = outs.length - 1; chunk >= 0; chunk--) {
+            ins[chunk] = carry;
+            carry = outs[chunk] >>> carry & 1;
+        }
+        return carry;
+    }
+
+    private static int carryOut(final byte sumCarry, final boolean subtract) {
+        return subtract ? 1 - sumCarry : sumCarry;
+    }
+
+    private static int chunkCount(final int from, final int to) {
+        return from >= to ? 0 : (to - 1) / CHUNK - from / CHUNK + 1;
+    }
+
+    private void forEachChunk(final int from, final int to, final ChunkAction action) {
+        final int chunks = chunkCount(from, to);
+        if (chunks == 0) return;
+
+        final int base = from / CHUNK;
+        this.pool.invoke(new Chunks(0, chunks, chunk -> {
+            final int start = Math.max(from, (base + chunk) * CHUNK);
+            final int end = (int)Math.min(to, (base + chunk + 1L) * CHUNK);
+            action.run(chunk, start, end);
+        }));
+    }
+
+    /**
+     * Splits a run of chunks in half until there is one each.
+     */
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int last;
+        private final IntConsumer action;
+
+        Chunks(final int first, final int last, final IntConsumer action) {
+            this.first = first;
+            this.last = last;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.last - this.first == 1) {
+                this.action.accept(this.first);
+                return;
+            }
+
+            final int middle = (this.first + this.last) >>> 1;
+            invokeAll(new Chunks(this.first, middle, this.action), new Chunks(middle, this.last, this.action));
+        }
+    }
+
+    // endregion chunks
+}
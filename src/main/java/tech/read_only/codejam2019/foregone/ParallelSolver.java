@@ -0,0 +1,80 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Solves cases concurrently on an executor, while still writing their results in the order they were submitted.
+ *
+ * At most {@code window} cases are in flight at once; submitting another first waits for, and writes, the oldest.
+ * This bounds memory to the window, and keeps a slow case from holding up more than a window's worth of others.
+ */
+public final class ParallelSolver {
+    private final Solver solver;
+    private final ExecutorService executor;
+    private final int window;
+    private final ResultWriter writer;
+    private final boolean closeWritten;
+
+    private final ArrayDeque<Future<FourlessPair>> inFlight = new ArrayDeque<>();
+    private int nextCaseToWrite = 1;
+
+    /**
+     * @param executor Runs the solver. Remains owned by the caller.
+     * @param window The maximum number of cases to hold in memory at once.
+     */
+    public ParallelSolver(final Solver solver, final ExecutorService executor, final int window,
+                          final ResultWriter writer) {
+        this(solver, executor, window, writer, false);
+    }
+
+    /**
+     * @param closeWritten Whether to {@link FourlessPair#close()} each pair once it is written, releasing any off-heap
+     *                     digits straight away. Only safe if nothing else holds on to the pairs.
+     */
+    public ParallelSolver(final Solver solver, final ExecutorService executor, final int window,
+                          final ResultWriter writer, final boolean closeWritten) {
+        checkArgument(window > 0, "Window must hold at least one case.");
+
+        this.solver = solver;
+        this.executor = executor;
+        this.window = window;
+        this.writer = writer;
+        this.closeWritten = closeWritten;
+    }
+
+    /**
+     * Queue up the next case, already split by the solver, waiting for room in the window if necessary.
+     */
+    public void submit(final FourlessPair pair) throws InterruptedException, ExecutionException {
+        while (this.inFlight.size() >= this.window) {
+            this.writeOldest();
+        }
+
+        this.inFlight.add(this.executor.submit(() -> {
+            this.solver.solve(pair);
+            return pair;
+        }));
+    }
+
+    /**
+     * Wait for every submitted case, writing the results of each.
+     */
+    public void finish() throws InterruptedException, ExecutionException {
+        while (!this.inFlight.isEmpty()) {
+            this.writeOldest();
+        }
+    }
+
+    private void writeOldest() throws InterruptedException, ExecutionException {
+        final FourlessPair solved = this.inFlight.remove().get();
+        this.writer.writeCase(this.nextCaseToWrite++, solved);
+        if (this.closeWritten) {
+            solved.close();
+        }
+    }
+}
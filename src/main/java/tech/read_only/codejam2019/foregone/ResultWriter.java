@@ -0,0 +1,219 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Writes {@code Case #i: a b} result lines into one large reusable buffer, copying digits straight out of each
+ * {@link FourlessNumber}, and hands the buffer to the channel only when it fills up or is flushed.
+ *
+ * The channel remains owned by the caller, and is never closed by this writer.
+ */
+public final class ResultWriter implements Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] CASE_PREFIX = "Case #".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CASE_SEPARATOR = ": ".getBytes(StandardCharsets.US_ASCII);
+
+    // the longest int, plus the case separator
+    private static final int MAX_CASE_HEADER = CASE_PREFIX.length + 10 + CASE_SEPARATOR.length;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public ResultWriter(final WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ResultWriter(final WritableByteChannel channel, final int bufferSize) {
+        checkArgument(bufferSize >= MAX_CASE_HEADER, "Buffer must fit at least a case header.");
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Write one result line, in the same format as the original {@code println}.
+     */
+    public void writeCase(final int caseNumber, final FourlessNumber first, final FourlessNumber second) {
+        this.writeHeader(caseNumber);
+        this.writeNumber(first);
+        this.writeByte((byte)' ');
+        this.writeNumber(second);
+        this.writeByte((byte)'\n');
+    }
+
+    /**
+     * As {@link #writeCase(int, FourlessNumber, FourlessNumber)}, for a solved pair, whether it holds numbers or values.
+     */
+    public void writeCase(final int caseNumber, final FourlessPair pair) {
+        if (pair.isFrozen()) {
+            this.writeCase(caseNumber, pair.getFirstValue(), pair.getSecondValue());
+        }
+        else {
+            this.writeCase(caseNumber, pair.getFirst(), pair.getSecond());
+        }
+    }
+
+    /**
+     * As {@link #writeCase(int, FourlessNumber, FourlessNumber)}, for an answer that was frozen into values.
+     */
+    public void writeCase(final int caseNumber, final FourlessValue first, final FourlessValue second) {
+        this.writeHeader(caseNumber);
+        this.writeNumber(first);
+        this.writeByte((byte)' ');
+        this.writeNumber(second);
+        this.writeByte((byte)'\n');
+    }
+
+    /**
+     * As {@link #writeCase(int, FourlessNumber, FourlessNumber)}, for a case of a {@link FourlessBatch}: the digit
+     * values of both halves, at the same offset in their arrays.
+     */
+    void writeCase(final int caseNumber, final byte[] first, final byte[] second, final int offset, final int length) {
+        this.writeHeader(caseNumber);
+        this.writeDigits(first, offset, offset + length);
+        this.writeByte((byte)' ');
+        this.writeDigits(second, offset, offset + length);
+        this.writeByte((byte)'\n');
+    }
+
+    /**
+     * As {@link #writeCase(int, FourlessNumber, FourlessNumber)}, for a case solved by {@link FourlessLong}.
+     *
+     * @param first Has at most {@link FourlessLong#MAX_DIGITS} digits, as does the second.
+     */
+    void writeCase(final int caseNumber, final long first, final long second, final int radix) {
+        this.writeHeader(caseNumber);
+        this.writeLong(first, radix);
+        this.writeByte((byte)' ');
+        this.writeLong(second, radix);
+        this.writeByte((byte)'\n');
+    }
+
+    /**
+     * Write a number's digits, skipping its leading zeroes. Zero is written as nothing at all, as
+     * {@link FourlessNumber#toString()} does.
+     */
+    public void writeNumber(final FourlessNumber number) {
+        final int count = number.digitCount();
+        int written = 0;
+        while (written < count) {
+            this.ensureRemaining(1);
+            written += number.writeDigits(written, this.buffer);
+        }
+    }
+
+    /**
+     * As {@link #writeNumber(FourlessNumber)}, for a value.
+     */
+    public void writeNumber(final FourlessValue value) {
+        final int count = value.digitCount();
+        int written = 0;
+        while (written < count) {
+            this.ensureRemaining(1);
+            written += value.writeDigits(written, this.buffer);
+        }
+    }
+
+    /**
+     * Write the start of a result line, up to where the first number goes.
+     */
+    private void writeHeader(final int caseNumber) {
+        this.ensureRemaining(MAX_CASE_HEADER);
+        this.buffer.put(CASE_PREFIX);
+        this.putInt(caseNumber);
+        this.buffer.put(CASE_SEPARATOR);
+    }
+
+    /**
+     * Write digit values from {@code from} (inclusive) to {@code to} (exclusive) as ASCII, skipping leading zeroes.
+     */
+    private void writeDigits(final byte[] digits, final int from, final int to) {
+        int start = from;
+        while (start < to && digits[start] == 0) {
+            start++;
+        }
+
+        while (start < to) {
+            this.ensureRemaining(1);
+            final int count = Math.min(to - start, this.buffer.remaining());
+            final byte[] out = this.buffer.array();
+            final int position = this.buffer.arrayOffset() + this.buffer.position();
+            for (int i = 0; i < count; i++) {
+                out[position + i] = (byte)('0' + digits[start + i]);
+            }
+            this.buffer.position(this.buffer.position() + count);
+            start += count;
+        }
+    }
+
+    /**
+     * Write a non-negative number in the radix, with zero written as nothing, as {@link FourlessNumber} would.
+     */
+    private void writeLong(final long value, final int radix) {
+        int count = 0;
+        for (long rest = value; rest > 0; rest /= radix) {
+            count++;
+        }
+        // no more digits than a case header, which the buffer always fits
+        checkArgument(count <= FourlessLong.MAX_DIGITS, "Number has too many digits.");
+
+        // digits come out least significant first, so fill them in from the end
+        this.ensureRemaining(count);
+        final byte[] out = this.buffer.array();
+        final int position = this.buffer.arrayOffset() + this.buffer.position();
+        long rest = value;
+        for (int i = position + count - 1; i >= position; i--) {
+            out[i] = (byte)('0' + rest % radix);
+            rest /= radix;
+        }
+        this.buffer.position(this.buffer.position() + count);
+    }
+
+    @Override
+    public void flush() {
+        this.buffer.flip();
+        try {
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            // whatever the channel did not take stays pending, for the next flush to retry
+            this.buffer.compact();
+        }
+    }
+
+    private void writeByte(final byte b) {
+        this.ensureRemaining(1);
+        this.buffer.put(b);
+    }
+
+    private void putInt(final int value) {
+        checkArgument(value >= 0, "Case numbers cannot be negative.");
+
+        int divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            this.buffer.put((byte)('0' + value / divisor % 10));
+        }
+    }
+
+    private void ensureRemaining(final int bytes) {
+        if (this.buffer.remaining() < bytes) {
+            this.flush();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package tech.read_only.codejam2019.foregone;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A small per-thread cache of {@link FourlessNumber} buffers, for use as the difference buffers of
+ * {@link FourlessNumber#nextNumber(FourlessNumber, FourlessNumber)} and friends.
+ *
+ * Buffers are keyed by their number of digits, storage and rules; when the pool is full, the least recently used one is
+ * closed and replaced. A buffer stays owned by the pool, so it is only valid until the next {@link #acquire(int)} on
+ * the same thread. Threads that hold off-heap buffers and outlive their work should {@link #release()} them.
+ */
+public final class ScratchPool {
+    private static final int SIZE = 4;
+
+    private static final ThreadLocal<ScratchPool> POOLS = ThreadLocal.withInitial(ScratchPool::new);
+
+    private final FourlessNumber[] buffers = new FourlessNumber[SIZE];
+    private final long[] lastUsed = new long[SIZE];
+    private long clock;
+
+    private ScratchPool() {}
+
+    /**
+     * @return The pool belonging to the current thread.
+     */
+    public static ScratchPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * @return A zeroed buffer with exactly the requested number of digits, in the default storage.
+     * @throws IllegalArgumentException If the number of digits is negative.
+     */
+    public FourlessNumber acquire(final int maxDigits) {
+        return this.acquire(maxDigits, FourlessNumber.defaultStorage());
+    }
+
+    /**
+     * @return A zeroed decimal buffer without 4s, with exactly the requested number of digits, stored as requested.
+     * @throws IllegalArgumentException If the number of digits is negative.
+     */
+    public FourlessNumber acquire(final int maxDigits, final FourlessNumber.Storage storage) {
+        return this.acquire(maxDigits, storage, DigitRules.FOURLESS);
+    }
+
+    /**
+     * @return A zeroed buffer with exactly the requested number of digits and rules, stored as requested.
+     * @throws IllegalArgumentException If the number of digits is negative, or the storage does not support the rules.
+     */
+    public FourlessNumber acquire(final int maxDigits, final FourlessNumber.Storage storage, final DigitRules rules) {
+        checkArgument(maxDigits >= 0, "Number of digits cannot be negative.");
+
+        int victim = 0;
+        for (int i = 0; i < SIZE; i++) {
+            final FourlessNumber buffer = this.buffers[i];
+            if (buffer != null && buffer.getMaxDigits() == maxDigits && buffer.getStorage() == storage
+                && buffer.getRules().equals(rules)) {
+                this.lastUsed[i] = ++this.clock;
+                buffer.clear();
+                return buffer;
+            }
+
+            if (this.lastUsed[i] < this.lastUsed[victim]) {
+                victim = i;
+            }
+        }
+
+        if (this.buffers[victim] != null) {
+            this.buffers[victim].close();
+        }
+        final FourlessNumber buffer = new FourlessNumber(maxDigits, storage, rules);
+        this.buffers[victim] = buffer;
+        this.lastUsed[victim] = ++this.clock;
+        return buffer;
+    }
+
+    /**
+     * Close and forget every buffer in this pool, releasing any off-heap memory they hold now. The pool stays usable.
+     */
+    public void release() {
+        for (int i = 0; i < SIZE; i++) {
+            if (this.buffers[i] != null) {
+                this.buffers[i].close();
+                this.buffers[i] = null;
+                this.lastUsed[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the pair of fourless numbers closest to each other, by splitting the number into halves and alternately
+ * pushing them apart with {@link FourlessNumber#nextNumber(FourlessNumber, FourlessNumber)} and
+ * {@link FourlessNumber#prevNumber(FourlessNumber, FourlessNumber)} until neither needs to move. The number of rounds
+ * depends on the digits.
+ */
+public final class SearchSolver implements Solver {
+    public static final SearchSolver INSTANCE = new SearchSolver(DigitRules.FOURLESS);
+
+    private final DigitRules rules;
+    @Nullable private final ForkJoinPool pool;
+
+    /**
+     * @param rules The digits to avoid, and the base of the input.
+     */
+    public SearchSolver(final DigitRules rules) {
+        this(rules, null);
+    }
+
+    /**
+     * @param pool Works through the digits of huge numbers in chunks; see {@link FourlessNumber#setPool(ForkJoinPool)}.
+     *             Remains owned by the caller.
+     */
+    public SearchSolver(final DigitRules rules, @Nullable final ForkJoinPool pool) {
+        this.rules = rules;
+        this.pool = pool;
+    }
+
+    /**
+     * @return The number split into two halves, the first being the larger if it is odd.
+     */
+    @Override
+    public FourlessPair split(final String numStr) {
+        final FourlessNumber check2 = new FourlessNumber(numStr.length(), this.rules);
+        check2.setPool(this.pool);
+        check2.init(numStr);
+
+        return split(check2);
+    }
+
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+        final FourlessNumber check2 = new FourlessNumber(length, this.rules);
+        check2.setPool(this.pool);
+        check2.init(digits, offset, length);
+
+        return split(check2);
+    }
+
+    /**
+     * Halves the number into the reused pair's second number, and copies it into the first, allocating nothing.
+     */
+    @Override
+    public FourlessPair split(final ByteBuffer digits, final int offset, final int length, final FourlessPair reuse) {
+        final FourlessNumber check2 = reuse.getSecond();
+        if (check2.getMaxDigits() != length || !check2.getRules().equals(this.rules)) {
+            return this.split(digits, offset, length);
+        }
+
+        check2.setPool(this.pool);
+        check2.reset(digits, offset, length);
+        final int remainder = check2.halve();
+        final FourlessNumber check1 = reuse.getFirst();
+        check1.setPool(this.pool);
+        check1.copyFrom(check2);
+        check1.add(remainder);
+
+        reuse.recordWork(0, 0);
+        return reuse;
+    }
+
+    /**
+     * Halve the number in place, and give its copy the remainder.
+     */
+    private static FourlessPair split(final FourlessNumber check2) {
+        final int remainder = check2.halve();
+        final FourlessNumber check1 = new FourlessNumber(check2);
+        check1.add(remainder);
+
+        return new FourlessPair(check1, check2);
+    }
+
+    /**
+     * Search in place for the pair of fourless numbers closest to the halves. The difference buffer comes from the
+     * calling thread's {@link ScratchPool}.
+     */
+    @Override
+    public void solve(final FourlessPair halves) {
+        final FourlessNumber check2 = halves.getSecond();
+        final FourlessNumber.Storage storage = check2.getStorage().forDifferences();
+        solve(halves, ScratchPool.get().acquire(check2.getMaxDigits(), storage, this.rules));
+    }
+
+    private static void solve(final FourlessPair halves, final FourlessNumber difference) {
+        final FourlessNumber check1 = halves.getFirst();
+        final FourlessNumber check2 = halves.getSecond();
+        final long touchedBefore = check1.digitsTouched() + check2.digitsTouched();
+
+        // do one up front, to guarantee we've checked both at least once before exiting the loop
+        check1.nextNumber(FourlessNumber.NAN, difference);
+        int rounds = 1;
+        for (int i = 0; ; i = (i+1)%2) {
+            rounds++;
+            // each difference is consumed before being overwritten, so one buffer serves the whole search
+            if (i == 0) {
+                check2.prevNumber(difference, difference);
+            } else {
+                check1.nextNumber(difference, difference);
+            }
+
+            if (difference.isZero()) {
+                break;
+            }
+        }
+
+        halves.recordWork(rounds, check1.digitsTouched() + check2.digitsTouched() - touchedBefore);
+    }
+}
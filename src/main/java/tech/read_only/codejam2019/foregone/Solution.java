@@ -1,71 +1,505 @@
 package tech.read_only.codejam2019.foregone;
 
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reads the cases from stdin, or from the input file if one is given.
+ *
+ * Usage: {@code Solution [--solver=search|digitwise] [--forbidden=DIGITS] [--radix=N] [--threads=N] [--window=N]
+ * [--pipeline] [--digit-threads=N] [--cache=N] [--small-batch=N] [--metrics] [inputFile]}, or
+ * {@code Solution --range [--forbidden=DIGITS] [--radix=N] [inputFile]}, or
+ * {@code Solution --serve=PORT [--batch=N] [--max-in-flight=N] [--solver=...] [--forbidden=DIGITS] [--radix=N]
+ * [--threads=N] [--cache=N] [--metrics]}
+ *
+ * - {@code --solver}: The {@link Solver} to use. {@code search} (the default) finds the closest pair;
+ *   {@code digitwise} finds any pair, in a single pass.
+ * - {@code --forbidden}: The digits neither number may contain, such as {@code 47}. Defaults to {@code 4}.
+ * - {@code --radix}: The base of the input and output, up to 10. Defaults to 10. See {@link DigitRules}.
+ * - {@code --threads}: Solve cases on this many worker threads, rather than on the main thread.
+ * - {@code --window}: With {@code --threads}, the most cases to hold in memory at once. Defaults to 4 per thread.
+ * - {@code --pipeline}: Read, solve and write cases at the same time, on separate threads connected by queues of up
+ *   to {@code --window} cases, solving on {@code --threads} threads (one by default). See {@link CasePipeline}. The
+ *   window defaults to 256 per thread, since short cases are handed between stages faster in bulk.
+ * - {@code --digit-threads}: Work through the digits of each huge case in chunks on this many threads, so that even a
+ *   single case uses every core. See {@link FourlessNumber#setPool(ForkJoinPool)}.
+ * - {@code --cache}: Keep the solutions of repeated inputs, up to this many digits of input in total. See
+ *   {@link CachingSolver}.
+ * - {@code --small-batch}: Solve runs of short cases this many at a time in a {@link FourlessBatch}, rather than one
+ *   pair of numbers each. Only with the search solver on the main thread, without a cache or metrics.
+ * - {@code --range}: Each case is a range of numbers, {@code FROM TO}, both inclusive, and every number in it gets its
+ *   own result line, numbered on from the last, as though each had been a case of its own. The range is swept by an
+ *   {@link IncrementalSolver}, each number starting from the answer to the one before. Only with the search solver on
+ *   the main thread, without a cache, metrics or small batches.
+ * - {@code --metrics}: Collect {@link SolverMetrics}, published over JMX while running and printed to stderr at the end.
+ *   Only cases that miss the cache are measured.
+ * - {@code --serve}: Rather than reading any input, serve requests on this port until killed. See {@link SolverServer}.
+ *   Without {@code --threads}, cases are solved on virtual threads where the runtime has them.
+ * - {@code --batch}: With {@code --serve}, the most cases to solve in one task. Defaults to 64.
+ * - {@code --max-in-flight}: With {@code --serve}, the most requests to accept at once. Defaults to 256.
+ *
+ * Flight Recorder events are emitted for each case solved by a {@link Solver} whenever a recording enables them, with
+ * or without metrics.
+ *
+ * With the search solver on the main thread, without a cache, metrics or pipeline, cases of up to
+ * {@link FourlessLong#MAX_DIGITS} digits are solved as primitive longs by {@link FourlessLong}, with the same results
+ * but no objects and no Flight Recorder events.
+ */
 public class Solution {
     public static void main(final String[] args) {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        final Options options = Options.parse(args);
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(System.out));
+        final SolverMetrics metrics = options.metrics ? new SolverMetrics() : null;
+        final Solver instrumented = InstrumentedSolver.instrument(options.solver, metrics);
+        final CachingSolver cache = options.cacheDigits > 0 ? new CachingSolver(instrumented, options.cacheDigits) : null;
+        final Solver solver = cache != null ? cache : instrumented;
+        final SmallCases small = options.smallBatch > 0 ? new SmallCases(options.rules, options.smallBatch, writer) : null;
+        final LongCases fast = options.fastPath() ? new LongCases(options.rules, writer, small) : null;
 
+        ForkJoinPool pool = null;
+        ObjectName metricsName = null;
         try {
-            final int numCases = Integer.valueOf(reader.readLine());
-            for (int i = 1; i <= numCases; i++) {
-                System.out.print("Case #" + i + ": ");
-                solveAndPrint(reader.readLine().trim());
+            if (metrics != null) {
+                metricsName = metrics.register();
+            }
+
+            if (options.servePort >= 0) {
+                serve(options, solver);
+                return;
+            }
+
+            if (options.range) {
+                solveRanges(options, writer);
+                return;
+            }
+
+            if (options.pipeline) {
+                solvePipelined(options, solver, writer);
+                return;
+            }
+
+            ParallelSolver parallel = null;
+            if (options.threads > 0) {
+                pool = new ForkJoinPool(options.threads);
+                // every pair belongs to its case, cache hits included, so each can be released once written
+                parallel = new ParallelSolver(solver, pool, options.window, writer, true);
+            }
+
+            if (options.inputFile != null) {
+                solveFile(options.inputFile, solver, parallel, writer, fast, small);
+            }
+            else {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+                final int numCases = Integer.valueOf(reader.readLine());
+                for (int i = 1; i <= numCases; i++) {
+                    final String number = reader.readLine().trim();
+                    if (fast != null && fast.solve(i, number)) continue;
+                    if (small != null && small.add(i, number)) continue;
+
+                    solveAndPrint(i, solver.split(number), solver, parallel, writer);
+                }
+                if (small != null) {
+                    small.flush(numCases + 1);
+                }
+            }
+
+            if (parallel != null) {
+                parallel.finish();
             }
         }
         catch (Exception e) {
             throw new RuntimeException(e);
         }
+        finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            if (options.digitPool != null) {
+                options.digitPool.shutdownNow();
+            }
+            writer.flush();
+            if (metrics != null) {
+                System.err.print(metrics);
+                if (cache != null) {
+                    System.err.print(cache);
+                }
+                unregister(metricsName);
+            }
+        }
     }
 
-    private static void solveAndPrint(final String numStr) {
-        final FourlessNumber check2 = new FourlessNumber(numStr.length());
-        final boolean carry = initializeHalfNumber(numStr, check2);
+    private static void serve(final Options options, final Solver solver) throws Exception {
+        final ExecutorService executor = options.threads > 0 ? new ForkJoinPool(options.threads)
+                                                             : SolverServer.newSolverExecutor();
+        try (SolverServer server = new SolverServer(new InetSocketAddress(options.servePort), solver, executor,
+                                                    options.batch, options.maxInFlight)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.err.println("Serving on port " + server.getPort());
+            server.awaitClose();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Streaming mode: the input is read, solved and written by the stages of a {@link CasePipeline}, all at once.
+     */
+    private static void solvePipelined(final Options options, final Solver solver, final ResultWriter writer)
+            throws Exception {
+        final CasePipeline pipeline = new CasePipeline(solver, Math.max(options.threads, 1), options.window, writer,
+                                                       true);
+        if (options.inputFile == null) {
+            pipeline.run(Channels.newChannel(System.in));
+            return;
+        }
+
+        try (FileChannel input = FileChannel.open(Paths.get(options.inputFile), StandardOpenOption.READ)) {
+            pipeline.run(input);
+        }
+    }
+
+    /**
+     * Range mode: each case's range is swept by one {@link IncrementalSolver}, as wide as its upper end.
+     */
+    private static void solveRanges(final Options options, final ResultWriter writer) throws IOException {
+        if (options.inputFile == null) {
+            sweepRanges(new StreamInput(Channels.newChannel(System.in)), options.rules, writer);
+            return;
+        }
+
+        try (FileChannel input = FileChannel.open(Paths.get(options.inputFile), StandardOpenOption.READ)) {
+            sweepRanges(new StreamInput(input), options.rules, writer);
+        }
+    }
 
-        final FourlessNumber check1 = new FourlessNumber(check2);
-        if (carry) {
-            check1.increment();
+    private static void sweepRanges(final StreamInput input, final DigitRules rules, final ResultWriter writer)
+            throws IOException {
+        final int numRanges = input.nextInt();
+        int caseNumber = 1;
+        for (int i = 1; i <= numRanges; i++) {
+            final String from = nextRangeEnd(input, numRanges, i);
+            final String to = nextRangeEnd(input, numRanges, i);
+
+            final FourlessNumber start = new FourlessNumber(to.length(), rules);
+            start.init(from);
+            final FourlessNumber end = new FourlessNumber(to.length(), rules);
+            end.init(to);
+            final long steps = end.longDifference(start);
+            checkArgument(steps >= 0 && steps < Integer.MAX_VALUE - caseNumber,
+                          "Range %s to %s ends before it starts, or has too many numbers.", from, to);
+
+            final IncrementalSolver sweep = new IncrementalSolver(rules, to.length());
+            FourlessPair pair = sweep.start(from);
+            writer.writeCase(caseNumber++, pair);
+            for (long step = 0; step < steps; step++) {
+                pair = sweep.advance(1);
+                writer.writeCase(caseNumber++, pair);
+            }
         }
+    }
 
-        solve(check1, check2);
-        System.out.println(check1.toString() + ' ' + check2.toString());
+    private static String nextRangeEnd(final StreamInput input, final int numRanges, final int range)
+            throws IOException {
+        if (!input.nextToken()) {
+            throw new IllegalArgumentException("Expected " + numRanges + " ranges, but found only " + (range - 1));
+        }
+        return new String(input.buffer().array(), input.tokenOffset(), input.tokenLength(), StandardCharsets.US_ASCII);
+    }
+
+    private static void unregister(@Nullable final ObjectName name) {
+        if (name == null) return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (JMException e) {
+            throw new RuntimeException(e);
+        }
     }
 
-    private static void solve(final FourlessNumber check1, final FourlessNumber check2) {
-        // do one up front, to guarantee we've checked both at least once before exiting the loop
-        FourlessNumber difference = check1.nextNumber(FourlessNumber.NAN);
-        for (int i = 0; ; i = (i+1)%2) {
-            if (i == 0) {
-                difference = check2.prevNumber(difference);
-            } else {
-                difference = check1.nextNumber(difference);
+    /**
+     * Batch mode: the input file is memory-mapped, and each number is split straight out of the mapping.
+     */
+    private static void solveFile(final String path, final Solver solver, @Nullable final ParallelSolver parallel,
+                                  final ResultWriter writer, @Nullable final LongCases fast,
+                                  @Nullable final SmallCases small) throws Exception {
+        try (MappedInput input = new MappedInput(Paths.get(path))) {
+            final int numCases = input.nextInt();
+            for (int i = 1; i <= numCases; i++) {
+                if (!input.nextToken()) {
+                    throw new IllegalArgumentException("Expected " + numCases + " cases, but found only " + (i - 1));
+                }
+
+                if (fast != null && fast.solve(i, input.buffer(), input.tokenOffset(), input.tokenLength())) continue;
+                if (small != null && small.add(i, input.buffer(), input.tokenOffset(), input.tokenLength())) continue;
+
+                final FourlessPair pair = solver.split(input.buffer(), input.tokenOffset(), input.tokenLength());
+                solveAndPrint(i, pair, solver, parallel, writer);
+            }
+            if (small != null) {
+                small.flush(numCases + 1);
             }
+        }
+    }
+
+    private static void solveAndPrint(final int caseNumber, final FourlessPair pair, final Solver solver,
+                                      @Nullable final ParallelSolver parallel, final ResultWriter writer)
+            throws InterruptedException, ExecutionException {
+        if (parallel != null) {
+            parallel.submit(pair);
+            return;
+        }
+
+        solver.solve(pair);
+        writer.writeCase(caseNumber, pair);
+        pair.close();
+    }
+
+    /**
+     * Solves cases of up to {@link FourlessLong#MAX_DIGITS} digits as primitive longs, allocating nothing. Any batch of
+     * small cases is flushed first, so that results are still written in case order.
+     */
+    private static final class LongCases {
+        private final DigitRules rules;
+        private final ResultWriter writer;
+        @Nullable private final SmallCases small;
 
-            if (difference.isZero()) {
-                break;
+        LongCases(final DigitRules rules, final ResultWriter writer, @Nullable final SmallCases small) {
+            this.rules = rules;
+            this.writer = writer;
+            this.small = small;
+        }
+
+        /**
+         * @return Whether the case was short enough to solve. If not, it is up to the caller to solve.
+         */
+        boolean solve(final int caseNumber, final String number) {
+            if (number.length() > FourlessLong.MAX_DIGITS) return false;
+
+            this.write(caseNumber, FourlessLong.parse(number, this.rules));
+            return true;
+        }
+
+        /**
+         * As {@link #solve(int, String)}, for a slice of ASCII digits.
+         */
+        boolean solve(final int caseNumber, final ByteBuffer digits, final int offset, final int length) {
+            if (length > FourlessLong.MAX_DIGITS) return false;
+
+            this.write(caseNumber, FourlessLong.parse(digits, offset, length, this.rules));
+            return true;
+        }
+
+        private void write(final int caseNumber, final long number) {
+            if (this.small != null) {
+                this.small.flush(caseNumber);
             }
+
+            final long first = FourlessLong.solve(number, this.rules);
+            this.writer.writeCase(caseNumber, first, number - first, this.rules.getRadix());
         }
     }
 
-    private static boolean initializeHalfNumber(final String numStr, final FourlessNumber check1) {
-        final StringBuilder sb = new StringBuilder();
-        boolean carry = false;
-        for (int i = 0; i < numStr.length(); i++) {
-            final int val = Integer.valueOf(numStr.substring(i, i + 1));
+    /**
+     * Gathers runs of short cases into a {@link FourlessBatch}, and solves and writes them a whole batch at a time.
+     * A longer case first flushes the batch, so that results are still written in case order.
+     */
+    private static final class SmallCases {
+        // the longest case to batch; longer ones are few enough that their objects do not matter
+        private static final int MAX_DIGITS = 64;
 
-            if (carry) {
-                sb.append(val/2 + 5);
+        private final FourlessBatch batch;
+        private final int limit;
+        private final ResultWriter writer;
+
+        SmallCases(final DigitRules rules, final int limit, final ResultWriter writer) {
+            this.batch = new FourlessBatch(rules, limit, limit * 20);
+            this.limit = limit;
+            this.writer = writer;
+        }
+
+        /**
+         * @return Whether the case was short enough to batch. If not, it is up to the caller to solve.
+         */
+        boolean add(final int caseNumber, final String number) {
+            if (number.length() > MAX_DIGITS) {
+                this.flush(caseNumber);
+                return false;
             }
-            else {
-                sb.append(val/2);
+
+            this.batch.add(number);
+            this.flushIfFull(caseNumber);
+            return true;
+        }
+
+        /**
+         * As {@link #add(int, String)}, for a slice of ASCII digits.
+         */
+        boolean add(final int caseNumber, final ByteBuffer digits, final int offset, final int length) {
+            if (length > MAX_DIGITS) {
+                this.flush(caseNumber);
+                return false;
+            }
+
+            this.batch.add(digits, offset, length);
+            this.flushIfFull(caseNumber);
+            return true;
+        }
+
+        /**
+         * Solve and write every case in the batch, the last of which comes just before the given case.
+         */
+        void flush(final int nextCaseNumber) {
+            if (this.batch.size() == 0) return;
+
+            this.batch.solve();
+            this.batch.writeTo(this.writer, nextCaseNumber - this.batch.size());
+            this.batch.clear();
+        }
+
+        private void flushIfFull(final int caseNumber) {
+            if (this.batch.size() == this.limit) {
+                this.flush(caseNumber + 1);
             }
+        }
+    }
 
-            carry = val % 2 == 1;
+    private static final class Options {
+        @Nullable String inputFile;
+        Solver solver = SearchSolver.INSTANCE;
+        String solverName = "search";
+        String forbidden = "4";
+        int radix = 10;
+        int threads;
+        int window;
+        long cacheDigits;
+        boolean metrics;
+        boolean pipeline;
+        boolean range;
+        int servePort = -1;
+        int batch = 64;
+        int maxInFlight = 256;
+        int smallBatch;
+        int digitThreads;
+        DigitRules rules = DigitRules.FOURLESS;
+        @Nullable ForkJoinPool digitPool;
+
+        /**
+         * @throws IllegalArgumentException If an argument is not recognised, or has a bad value.
+         */
+        static Options parse(@Nullable final String[] args) {
+            final Options options = new Options();
+            if (args == null) return options;
+
+            for (String arg : args) {
+                if (arg.startsWith("--solver=")) {
+                    options.solverName = arg.substring(arg.indexOf('=') + 1);
+                }
+                else if (arg.startsWith("--forbidden=")) {
+                    options.forbidden = arg.substring(arg.indexOf('=') + 1);
+                }
+                else if (arg.startsWith("--radix=")) {
+                    options.radix = intValue(arg);
+                }
+                else if (arg.startsWith("--threads=")) {
+                    options.threads = intValue(arg);
+                }
+                else if (arg.startsWith("--window=")) {
+                    options.window = intValue(arg);
+                }
+                else if (arg.startsWith("--digit-threads=")) {
+                    options.digitThreads = intValue(arg);
+                }
+                else if (arg.startsWith("--cache=")) {
+                    options.cacheDigits = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+                }
+                else if (arg.startsWith("--serve=")) {
+                    options.servePort = intValue(arg);
+                }
+                else if (arg.startsWith("--batch=")) {
+                    options.batch = intValue(arg);
+                }
+                else if (arg.startsWith("--small-batch=")) {
+                    options.smallBatch = intValue(arg);
+                }
+                else if (arg.startsWith("--max-in-flight=")) {
+                    options.maxInFlight = intValue(arg);
+                }
+                else if (arg.equals("--metrics")) {
+                    options.metrics = true;
+                }
+                else if (arg.equals("--pipeline")) {
+                    options.pipeline = true;
+                }
+                else if (arg.equals("--range")) {
+                    options.range = true;
+                }
+                else {
+                    checkArgument(!arg.startsWith("--"), "Unknown option: %s", arg);
+                    checkArgument(options.inputFile == null, "Only one input file may be given.");
+                    options.inputFile = arg;
+                }
+            }
+
+            checkArgument(options.threads >= 0 && options.window >= 0 && options.cacheDigits >= 0,
+                          "Options cannot be negative.");
+            checkArgument(options.batch > 0 && options.maxInFlight > 0, "Batches and in-flight limits cannot be 0.");
+            checkArgument(options.smallBatch >= 0 && options.digitThreads >= 0, "Options cannot be negative.");
+            options.rules = DigitRules.parse(options.radix, options.forbidden);
+            options.solver = Solver.forName(options.solverName, options.rules);
+            checkArgument(options.smallBatch == 0
+                          || (options.solver instanceof SearchSolver && options.threads == 0
+                              && options.cacheDigits == 0 && !options.metrics && options.servePort < 0
+                              && !options.pipeline),
+                          "--small-batch only works with the search solver, without threads, cache, metrics, "
+                          + "pipeline or serving.");
+            checkArgument(!options.pipeline || options.servePort < 0, "--pipeline does not work with --serve.");
+            checkArgument(!options.range
+                          || (options.solver instanceof SearchSolver && options.threads == 0
+                              && options.cacheDigits == 0 && !options.metrics && options.servePort < 0
+                              && !options.pipeline && options.smallBatch == 0 && options.digitThreads == 0),
+                          "--range only works with the search solver on the main thread, without a cache, metrics, "
+                          + "small batches, pipeline or serving.");
+            if (options.window == 0) {
+                options.window = (options.pipeline ? 256 : 4) * Math.max(options.threads, 1);
+            }
+            // only started once everything checks out, so that nothing is left running
+            if (options.digitThreads > 0) {
+                options.digitPool = new ForkJoinPool(options.digitThreads);
+                options.solver = Solver.forName(options.solverName, options.rules, options.digitPool);
+            }
+            return options;
         }
 
-        check1.init(sb.toString());
+        /**
+         * @return Whether cases short enough to fit in a long are solved by {@link LongCases}, which gives the same
+         *         results as the search solver would, but bypasses any cache and instrumentation.
+         */
+        boolean fastPath() {
+            return this.solver instanceof SearchSolver && this.threads == 0 && this.cacheDigits == 0 && !this.metrics
+                   && this.servePort < 0 && !this.pipeline && !this.range;
+        }
 
-        return carry;
+        private static int intValue(final String arg) {
+            return Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+        }
     }
 }
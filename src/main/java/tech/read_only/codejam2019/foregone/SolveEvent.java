@@ -0,0 +1,40 @@
+package tech.read_only.codejam2019.foregone;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one solved case. Only referenced from {@link JfrSolveListener}.
+ */
+@Name("tech.read_only.codejam2019.foregone.Solve")
+@Label("Solve Case")
+@Category("Foregone")
+@Description("A case split into two fourless numbers.")
+@StackTrace(false)
+final class SolveEvent extends Event {
+    @Label("Solver")
+    String solver;
+
+    @Label("Digits")
+    int digits;
+
+    @Label("Rounds")
+    int rounds;
+
+    @Label("Digits Touched")
+    long digitsTouched;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    @Label("Solve Time")
+    @Timespan
+    long solveTime;
+}
@@ -0,0 +1,46 @@
+package tech.read_only.codejam2019.foregone;
+
+/**
+ * Told about every case solved through an {@link InstrumentedSolver}.
+ */
+public interface SolveListener {
+    /**
+     * @param solver The solver that did the work.
+     * @param pair The solved pair, with the {@link FourlessPair#getRounds() rounds} and
+     *             {@link FourlessPair#getDigitsTouched() digits touched} it took.
+     * @param nanos The wall time spent solving.
+     * @param allocatedBytes The bytes allocated on the heap while solving, or -1 if this JVM cannot measure it.
+     */
+    void caseSolved(Solver solver, FourlessPair pair, long nanos, long allocatedBytes);
+
+    /**
+     * @return Whether this listener currently wants to hear about cases. If not, cases are not measured at all.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return A listener that passes each case on to this one and then to the other, if each is enabled.
+     */
+    default SolveListener andThen(final SolveListener other) {
+        final SolveListener first = this;
+        return new SolveListener() {
+            @Override
+            public void caseSolved(final Solver solver, final FourlessPair pair, final long nanos,
+                                   final long allocatedBytes) {
+                if (first.isEnabled()) {
+                    first.caseSolved(solver, pair, nanos, allocatedBytes);
+                }
+                if (other.isEnabled()) {
+                    other.caseSolved(solver, pair, nanos, allocatedBytes);
+                }
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return first.isEnabled() || other.isEnabled();
+            }
+        };
+    }
+}
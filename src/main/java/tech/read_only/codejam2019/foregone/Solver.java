@@ -0,0 +1,78 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A strategy for splitting a number into two fourless numbers that sum to it.
+ *
+ * Work is done in two steps, so that the input can be consumed on the thread reading it while the rest is done
+ * elsewhere: {@code split} copies the number into a pair of working numbers, and {@code solve} then turns that pair
+ * into the answer in place. Implementations must be safe to use from several threads at once.
+ */
+public interface Solver {
+    /**
+     * @param number A string consisting of only numeric digits.
+     */
+    FourlessPair split(String number);
+
+    /**
+     * As {@link #split(String)}, but for a slice of ASCII digits, which is no longer needed once this returns.
+     */
+    FourlessPair split(ByteBuffer digits, int offset, int length);
+
+    /**
+     * As {@link #split(ByteBuffer, int, int)}, but writing into the numbers of a solved pair that is no longer needed,
+     * rather than allocating new ones, if they have exactly as many digits as the slice. Unless overridden, the pair is
+     * simply not used.
+     *
+     * @param reuse A pair returned by this solver, which nothing else holds on to any more.
+     * @return The reused pair, or a new one if it did not fit; in that case, the old pair is left untouched.
+     */
+    default FourlessPair split(final ByteBuffer digits, final int offset, final int length, final FourlessPair reuse) {
+        return this.split(digits, offset, length);
+    }
+
+    /**
+     * Turn a pair returned by this solver's {@code split} into the answer, in place.
+     */
+    void solve(FourlessPair pair);
+
+    /**
+     * @param name {@code search} or {@code digitwise}.
+     * @throws IllegalArgumentException If there is no solver by that name.
+     */
+    static Solver forName(final String name) {
+        return forName(name, DigitRules.FOURLESS);
+    }
+
+    /**
+     * As {@link #forName(String)}, for a solver that avoids the digits the rules forbid instead of 4s.
+     *
+     * @throws IllegalArgumentException If there is no solver by that name.
+     */
+    static Solver forName(final String name, final DigitRules rules) {
+        return forName(name, rules, null);
+    }
+
+    /**
+     * As {@link #forName(String, DigitRules)}, for a solver that works through the digits of huge numbers in chunks
+     * on the pool; see {@link FourlessNumber#setPool(ForkJoinPool)}.
+     *
+     * @param pool Remains owned by the caller; null to solve each number on one thread.
+     * @throws IllegalArgumentException If there is no solver by that name.
+     */
+    static Solver forName(final String name, final DigitRules rules, @Nullable final ForkJoinPool pool) {
+        final boolean shared = rules == DigitRules.FOURLESS && pool == null;
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "search":
+                return shared ? SearchSolver.INSTANCE : new SearchSolver(rules, pool);
+            case "digitwise":
+                return shared ? DigitwiseSolver.INSTANCE : new DigitwiseSolver(rules, pool);
+            default:
+                throw new IllegalArgumentException("Unknown solver: " + name);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package tech.read_only.codejam2019.foregone;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Aggregates every solved case into histograms of its latency, rounds, digits touched per round, and allocations.
+ * Readable directly, or over JMX once {@link #register() registered}.
+ */
+public final class SolverMetrics implements SolveListener, SolverMetricsMXBean {
+    public static final String OBJECT_NAME = "tech.read_only.codejam2019.foregone:type=SolverMetrics";
+
+    private final Histogram latencyNanos = new Histogram();
+    private final Histogram rounds = new Histogram();
+    private final Histogram digitsTouchedPerRound = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+
+    @Override
+    public void caseSolved(final Solver solver, final FourlessPair pair, final long nanos, final long allocatedBytes) {
+        this.latencyNanos.record(Math.max(nanos, 0));
+        this.rounds.record(pair.getRounds());
+        this.digitsTouchedPerRound.record(pair.getRounds() == 0 ? 0 : pair.getDigitsTouched() / pair.getRounds());
+        if (allocatedBytes >= 0) {
+            this.allocatedBytes.record(allocatedBytes);
+        }
+    }
+
+    /**
+     * Register with the platform MBean server, under {@link #OBJECT_NAME}.
+     *
+     * @return The name registered, to unregister with once done.
+     * @throws JMException If something else is already registered under the name.
+     */
+    public ObjectName register() throws JMException {
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    public Histogram getLatencyNanos() {
+        return this.latencyNanos;
+    }
+
+    public Histogram getRounds() {
+        return this.rounds;
+    }
+
+    public Histogram getDigitsTouchedPerRound() {
+        return this.digitsTouchedPerRound;
+    }
+
+    public Histogram getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    // region MXBean
+
+    @Override
+    public long getCases() {
+        return this.latencyNanos.count();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return this.latencyNanos.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return this.latencyNanos.percentile(99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return this.latencyNanos.max();
+    }
+
+    @Override
+    public long getRoundsP50() {
+        return this.rounds.percentile(50);
+    }
+
+    @Override
+    public long getRoundsP99() {
+        return this.rounds.percentile(99);
+    }
+
+    @Override
+    public long getRoundsMax() {
+        return this.rounds.max();
+    }
+
+    @Override
+    public long getDigitsTouchedPerRoundP50() {
+        return this.digitsTouchedPerRound.percentile(50);
+    }
+
+    @Override
+    public long getDigitsTouchedPerRoundP99() {
+        return this.digitsTouchedPerRound.percentile(99);
+    }
+
+    @Override
+    public long getDigitsTouchedPerRoundMax() {
+        return this.digitsTouchedPerRound.max();
+    }
+
+    @Override
+    public long getAllocatedBytesP50() {
+        return this.allocatedBytes.percentile(50);
+    }
+
+    @Override
+    public long getAllocatedBytesP99() {
+        return this.allocatedBytes.percentile(99);
+    }
+
+    @Override
+    public long getAllocatedBytesMax() {
+        return this.allocatedBytes.max();
+    }
+
+    // endregion MXBean
+
+    @Override
+    public String toString() {
+        return "cases: " + this.getCases() + '\n' +
+               "latency (ns): " + this.latencyNanos + '\n' +
+               "rounds: " + this.rounds + '\n' +
+               "digits touched per round: " + this.digitsTouchedPerRound + '\n' +
+               "allocated (bytes): " + this.allocatedBytes + '\n';
+    }
+}
@@ -0,0 +1,32 @@
+package tech.read_only.codejam2019.foregone;
+
+/**
+ * The JMX view of {@link SolverMetrics}. Percentiles are approximate, within 12.5%; maximums are exact.
+ */
+public interface SolverMetricsMXBean {
+    long getCases();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyMaxNanos();
+
+    long getRoundsP50();
+
+    long getRoundsP99();
+
+    long getRoundsMax();
+
+    long getDigitsTouchedPerRoundP50();
+
+    long getDigitsTouchedPerRoundP99();
+
+    long getDigitsTouchedPerRoundMax();
+
+    long getAllocatedBytesP50();
+
+    long getAllocatedBytesP99();
+
+    long getAllocatedBytesMax();
+}
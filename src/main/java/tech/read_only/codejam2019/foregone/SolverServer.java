@@ -0,0 +1,367 @@
+package tech.read_only.codejam2019.foregone;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps a solver resident, and serves it over HTTP, so that a job pays JVM startup and JIT warm-up once rather than
+ * per file.
+ *
+ * {@code POST /solve} with a body in the same format as the CLI's input; the response is the same as the CLI's output.
+ * Cases are split on the thread handling the request, then queued; a dispatcher drains the queue in batches, which
+ * mixes cases from concurrent requests, and runs each batch as one task on the executor. So many small requests cost
+ * one task per batch, rather than one per case.
+ *
+ * Backpressure comes in two layers: beyond {@code maxInFlight} requests being solved, new ones are turned away at
+ * once with {@code 503 Service Unavailable}, and requests already admitted wait for room in the bounded case queue.
+ */
+public final class SolverServer implements Closeable {
+    private static final int QUEUED_CASES_PER_BATCH = 4;
+
+    private final Solver solver;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Case> queue;
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Thread dispatcher;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    /**
+     * Starts serving at once.
+     *
+     * @param address Where to listen. Port 0 picks any free port; see {@link #getPort()}.
+     * @param executor Runs the batches of cases. Remains owned by the caller.
+     * @param batchSize The most cases to solve in one task.
+     * @param maxInFlight The most requests to solve at once. A request no longer counts once it is being answered.
+     * @throws IOException If the address cannot be bound.
+     */
+    public SolverServer(final InetSocketAddress address, final Solver solver, final ExecutorService executor,
+                        final int batchSize, final int maxInFlight) throws IOException {
+        checkArgument(batchSize > 0 && maxInFlight > 0, "Batches and in-flight requests must allow at least one.");
+
+        this.solver = solver;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queue = new ArrayBlockingQueue<>(batchSize * QUEUED_CASES_PER_BATCH);
+
+        this.handlers = newTaskExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext("/solve", this::handle);
+        this.server.setExecutor(this.handlers);
+
+        this.dispatcher = new Thread(this::dispatch, "solver-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        this.server.start();
+    }
+
+    /**
+     * @return An executor that starts a virtual thread per task where the runtime has them (Java 21 and later), and
+     *         otherwise a work-stealing pool with a thread per processor.
+     */
+    public static ExecutorService newSolverExecutor() {
+        final ExecutorService virtual = newVirtualThreadExecutor();
+        return virtual != null ? virtual : new ForkJoinPool();
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Block until this server is closed.
+     */
+    public void awaitClose() throws InterruptedException {
+        this.closed.await();
+    }
+
+    /**
+     * Stop accepting requests, and give those in progress a second to finish.
+     */
+    @Override
+    public void close() {
+        this.server.stop(1);
+        this.dispatcher.interrupt();
+        this.handlers.shutdownNow();
+        this.closed.countDown();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Use POST.\n");
+                return;
+            }
+            if (!this.inFlight.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Too many requests in flight.\n");
+                return;
+            }
+
+            final Request request;
+            try {
+                request = this.solve(exchange);
+            }
+            finally {
+                // given back before answering, so that a client may send its next request as soon as it has its answer
+                this.inFlight.release();
+            }
+            if (request != null) {
+                answer(exchange, request);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "Server is shutting down.\n");
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return The request, once every case of it is done with, or null if it was bad and has been answered already.
+     */
+    @Nullable
+    private Request solve(final HttpExchange exchange) throws IOException, InterruptedException {
+        final Request request;
+        try {
+            request = this.parse(ByteBuffer.wrap(ByteStreams.toByteArray(exchange.getRequestBody())));
+        }
+        catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + '\n');
+            return null;
+        }
+
+        for (int i = 0; i < request.pairs.length; i++) {
+            this.queue.put(new Case(request, i));
+        }
+        request.remaining.await();
+        return request;
+    }
+
+    private static void answer(final HttpExchange exchange, final Request request) throws IOException {
+        // every case is done with, and a cache only ever hands out pairs of their own, so nothing else uses the pairs
+        try {
+            if (request.failure != null) {
+                respond(exchange, 500, request.failure + "\n");
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                final ResultWriter writer = new ResultWriter(Channels.newChannel(body), request.outputSize());
+                for (int i = 0; i < request.pairs.length; i++) {
+                    writer.writeCase(i + 1, request.pairs[i]);
+                }
+                writer.flush();
+            }
+        }
+        finally {
+            request.close();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the body is not a case count followed by that many numbers.
+     */
+    private Request parse(final ByteBuffer body) {
+        final Tokens tokens = new Tokens(body);
+        checkArgument(tokens.next(), "Expected a number of cases.");
+
+        // every case takes at least two bytes, so a count beyond that is a mistake rather than a reason to allocate
+        long numCases = 0;
+        for (int i = tokens.offset; i < tokens.offset + tokens.length; i++) {
+            numCases = numCases * 10 + FourlessNumber.digitOf(body.get(i));
+            checkArgument(numCases <= body.capacity() / 2, "Too many cases for the size of the request.");
+        }
+
+        final Request request = new Request(new FourlessPair[(int)numCases]);
+        try {
+            for (int i = 0; i < numCases; i++) {
+                checkArgument(tokens.next(), "Expected %s cases, but found only %s.", numCases, i);
+                request.pairs[i] = this.solver.split(body, tokens.offset, tokens.length);
+            }
+        }
+        catch (RuntimeException e) {
+            request.close();
+            throw e;
+        }
+        return request;
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                final List<Case> batch = new ArrayList<>(this.batchSize);
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, this.batchSize - 1);
+
+                try {
+                    this.executor.execute(() -> this.solveBatch(batch));
+                }
+                catch (RejectedExecutionException e) {
+                    // nothing will solve these cases, so their requests fail rather than wait for them forever
+                    for (Case c : batch) {
+                        c.request.failure = e;
+                        c.request.remaining.countDown();
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void solveBatch(final List<Case> batch) {
+        try {
+            for (Case c : batch) {
+                try {
+                    this.solver.solve(c.request.pairs[c.index]);
+                }
+                catch (RuntimeException e) {
+                    c.request.failure = e;
+                }
+                finally {
+                    c.request.remaining.countDown();
+                }
+            }
+        }
+        finally {
+            // a batch may get a thread of its own, which would otherwise keep off-heap buffers until it is collected
+            ScratchPool.get().release();
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String message)
+            throws IOException {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * Request handlers mostly wait for their cases, so they get a thread each: virtual ones where possible.
+     */
+    private static ExecutorService newTaskExecutor() {
+        final ExecutorService virtual = newVirtualThreadExecutor();
+        return virtual != null ? virtual : Executors.newCachedThreadPool();
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class Request {
+        final FourlessPair[] pairs;
+        final CountDownLatch remaining;
+        @Nullable volatile RuntimeException failure;
+
+        Request(final FourlessPair[] pairs) {
+            this.pairs = pairs;
+            this.remaining = new CountDownLatch(pairs.length);
+        }
+
+        /**
+         * Release the off-heap memory of every case split so far, once none of them is being solved.
+         */
+        void close() {
+            for (FourlessPair pair : this.pairs) {
+                if (pair != null) {
+                    pair.close();
+                }
+            }
+        }
+
+        /**
+         * @return Enough buffer for the whole response, within the bounds of a {@link ResultWriter}'s default size.
+         */
+        int outputSize() {
+            long size = 64;
+            for (FourlessPair pair : this.pairs) {
+                size += 32 + pair.digitCount();
+            }
+            return (int)Math.min(size, 1 << 20);
+        }
+    }
+
+    private static final class Case {
+        final Request request;
+        final int index;
+
+        Case(final Request request, final int index) {
+            this.request = request;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Whitespace-separated tokens in a buffer, found in place.
+     */
+    private static final class Tokens {
+        private final ByteBuffer buffer;
+        private int position;
+
+        int offset;
+        int length;
+
+        Tokens(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean next() {
+            final int limit = this.buffer.limit();
+            while (this.position < limit && isWhitespace(this.buffer.get(this.position))) {
+                this.position++;
+            }
+            if (this.position == limit) return false;
+
+            this.offset = this.position;
+            while (this.position < limit && !isWhitespace(this.buffer.get(this.position))) {
+                this.position++;
+            }
+            this.length = this.position - this.offset;
+            return true;
+        }
+
+        private static boolean isWhitespace(final byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+    }
+}
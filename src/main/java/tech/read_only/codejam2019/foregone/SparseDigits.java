@@ -0,0 +1,198 @@
+package tech.read_only.codejam2019.foregone;
+
+/**
+ * Only the low digits are stored, growing on demand; every digit above them is zero. Suited to the differences the
+ * solver works with, which are mostly a short run of low digits: one that touches 3 digits costs 3 digits of memory
+ * and work, however long the number.
+ *
+ * The stored digits are kept in a {@link ByteDigits} that is replaced by one twice the size whenever a non-zero digit
+ * is set above it. Within it, everything above the highest non-zero digit set since the last clear is known to be
+ * zero, so clearing and scanning only cover the digits actually in use.
+ */
+final class SparseDigits implements DigitStorage {
+    private static final int MIN_CAPACITY = 16;
+
+    private final int length;
+    private final DigitRules rules;
+
+    // the lowest low.length() digits of the number
+    private ByteDigits low;
+
+    // how many of the low digits may be non-zero
+    private int used;
+
+    SparseDigits(final int length, final DigitRules rules) {
+        this(length, rules, new ByteDigits(Math.min(length, MIN_CAPACITY), rules), 0);
+    }
+
+    private SparseDigits(final int length, final DigitRules rules, final ByteDigits low, final int used) {
+        this.length = length;
+        this.rules = rules;
+        this.low = low;
+        this.used = used;
+    }
+
+    /**
+     * @return The number of digits allocated, which is at most the length.
+     */
+    int capacity() {
+        return this.low.length();
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public byte get(final int index) {
+        return index < this.top() ? 0 : this.low.get(index - this.offset());
+    }
+
+    @Override
+    public void set(final int index, final byte value) {
+        if (index < this.top()) {
+            if (value == 0) return;
+
+            this.grow(this.length - index);
+            this.used = this.length - index;
+        }
+        this.low.set(index - this.offset(), value);
+    }
+
+    @Override
+    public void fill(final int from, final int to, final byte value) {
+        if (from >= to) return;
+
+        if (value == 0) {
+            final int top = this.top();
+            if (to <= top) return;
+
+            final int start = Math.max(from, top);
+            this.low.fill(start - this.offset(), to - this.offset(), (byte)0);
+            if (start == top && to == this.length) {
+                this.used = 0;
+            }
+            return;
+        }
+
+        if (from < this.top()) {
+            // the digits between the fill and the old top are zero already, being above it
+            this.grow(this.length - from);
+            this.used = this.length - from;
+        }
+        this.low.fill(from - this.offset(), to - this.offset(), value);
+    }
+
+    @Override
+    public int indexOf(final byte value, final int from) {
+        final int top = this.top();
+        if (value == 0 && from < top) {
+            return from < this.length ? from : -1;
+        }
+
+        final int start = Math.max(from, top);
+        if (start >= this.length) return -1;
+
+        final int index = this.low.indexOf(value, start - this.offset());
+        return index < 0 ? -1 : index + this.offset();
+    }
+
+    @Override
+    public int indexOfForbidden(final int from) {
+        // 0 is never forbidden, so neither are the digits above the top
+        final int start = Math.max(from, this.top());
+        if (start >= this.length) return -1;
+
+        final int index = this.low.indexOfForbidden(start - this.offset());
+        return index < 0 ? -1 : index + this.offset();
+    }
+
+    @Override
+    public int indexOfNonZero(final int from) {
+        final int start = Math.max(from, this.top());
+        if (start >= this.length) return -1;
+
+        final int index = this.low.indexOfNonZero(start - this.offset());
+        return index < 0 ? -1 : index + this.offset();
+    }
+
+    @Override
+    public void toAscii(final int from, final int to, final byte[] dst, final int offset) {
+        final int zeroesTo = Math.min(Math.max(from, this.top()), to);
+        for (int i = from; i < zeroesTo; i++) {
+            dst[offset + i - from] = '0';
+        }
+        if (zeroesTo < to) {
+            this.low.toAscii(zeroesTo - this.offset(), to - this.offset(), dst, offset + zeroesTo - from);
+        }
+    }
+
+    /**
+     * Grows to store every digit from {@code from} on, starting on a multiple of 64 as the chunks of
+     * {@link ParallelDigits} do, and raises the top above them so that setting them never grows it again.
+     */
+    @Override
+    public boolean allowConcurrentSets(final int from) {
+        final int offset = Math.min(from, this.offset()) & ~63;
+        if (offset != this.offset()) {
+            this.resize(this.length - offset);
+        }
+        this.used = Math.max(this.used, this.length - from);
+        return true;
+    }
+
+    @Override
+    public void copyFrom(final DigitStorage other) {
+        final SparseDigits source = (SparseDigits)other;
+        if (source.capacity() == this.capacity()) {
+            this.low.copyFrom(source.low);
+        }
+        else {
+            this.low = source.low.copy();
+        }
+        this.used = source.used;
+    }
+
+    @Override
+    public SparseDigits copy() {
+        return new SparseDigits(this.length, this.rules, this.low.copy(), this.used);
+    }
+
+    /**
+     * @return The index of the highest digit that may be non-zero. Every digit above it is zero.
+     */
+    private int top() {
+        return this.length - this.used;
+    }
+
+    /**
+     * @return The index of the highest digit stored.
+     */
+    private int offset() {
+        return this.length - this.low.length();
+    }
+
+    /**
+     * Make sure at least this many low digits are stored.
+     */
+    private void grow(final int digits) {
+        final int capacity = this.low.length();
+        if (digits <= capacity) return;
+
+        this.resize(Math.min(Math.max(digits, capacity * 2), this.length));
+    }
+
+    /**
+     * Store exactly this many low digits, which must be enough for all the ones in use.
+     */
+    private void resize(final int capacity) {
+        final int oldCapacity = this.low.length();
+        final ByteDigits grown = new ByteDigits(capacity, this.rules);
+        final int shift = capacity - oldCapacity;
+        for (int i = oldCapacity - this.used; i < oldCapacity; i++) {
+            grown.set(i + shift, this.low.get(i));
+        }
+        this.low = grown;
+    }
+}
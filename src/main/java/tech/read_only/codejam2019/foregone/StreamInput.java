@@ -0,0 +1,161 @@
+package tech.read_only.codejam2019.foregone;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Reads whitespace-separated tokens from a channel as they arrive, such as from a pipe or a socket, through one
+ * reusable heap buffer. Unlike {@link MappedInput}, the input need not be a file, nor have a known length; the buffer
+ * only grows to fit the longest token, so a stream of any length is read in bounded memory.
+ *
+ * After {@link #nextToken()}, the token's bytes are found in {@link #buffer()} at {@link #tokenOffset()}. The channel
+ * remains owned by the caller, and is never closed by this reader.
+ */
+public final class StreamInput {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+
+    // bytes read but not yet consumed are at [position, limit)
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private boolean ended;
+
+    private int tokenOffset;
+    private int tokenLength;
+
+    public StreamInput(final ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize The number of bytes to read at a time. Grows as needed to fit the longest token.
+     */
+    public StreamInput(final ReadableByteChannel channel, final int bufferSize) {
+        checkArgument(bufferSize > 0, "Buffer must not be empty.");
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Advances to the next token, blocking until it has been read in full.
+     *
+     * @return False if the end of the stream was reached first.
+     */
+    public boolean nextToken() throws IOException {
+        while (true) {
+            final byte[] bytes = this.buffer.array();
+            while (this.position < this.limit && isWhitespace(bytes[this.position])) {
+                this.position++;
+            }
+
+            if (this.position < this.limit) break;
+            if (!this.fill()) return false;
+        }
+
+        int end = this.position;
+        while (true) {
+            final byte[] bytes = this.buffer.array();
+            while (end < this.limit && !isWhitespace(bytes[end])) {
+                end++;
+            }
+
+            if (end < this.limit || this.ended) break;
+
+            // the token runs off the end of what has been read, so move it to the front and read more of it
+            final int scanned = end - this.position;
+            this.fill();
+            end = scanned;
+        }
+
+        this.tokenOffset = this.position;
+        this.tokenLength = end - this.position;
+        this.position = end;
+        return true;
+    }
+
+    /**
+     * Reads the next token as a non-negative int.
+     *
+     * @throws EOFException If there are no more tokens.
+     * @throws NumberFormatException If the token is not a number that fits in an int.
+     */
+    public int nextInt() throws IOException {
+        if (!this.nextToken()) {
+            throw new EOFException("Expected a number.");
+        }
+
+        final byte[] bytes = this.buffer.array();
+        long value = 0;
+        for (int i = this.tokenOffset; i < this.tokenOffset + this.tokenLength; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Expected a number, but the token is not.");
+            }
+        }
+        return (int)value;
+    }
+
+    /**
+     * @return The buffer holding the current token. Only valid until the next call to {@link #nextToken()}, which may
+     *         overwrite it, or replace it with a larger one.
+     */
+    public ByteBuffer buffer() {
+        return this.buffer;
+    }
+
+    public int tokenOffset() {
+        return this.tokenOffset;
+    }
+
+    public int tokenLength() {
+        return this.tokenLength;
+    }
+
+    /**
+     * Move the unconsumed bytes to the front of the buffer, growing it if they already fill it, and read more after
+     * them.
+     *
+     * @return False if the end of the stream was reached instead.
+     */
+    private boolean fill() throws IOException {
+        if (this.ended) return false;
+
+        final int unconsumed = this.limit - this.position;
+        if (unconsumed == this.buffer.capacity()) {
+            checkState(unconsumed < Integer.MAX_VALUE / 2, "Token is too long to buffer.");
+            final ByteBuffer larger = ByteBuffer.allocate(unconsumed * 2);
+            larger.put(this.buffer.array(), this.position, unconsumed);
+            this.buffer = larger;
+        }
+        else {
+            System.arraycopy(this.buffer.array(), this.position, this.buffer.array(), 0, unconsumed);
+        }
+        this.position = 0;
+        this.limit = unconsumed;
+
+        this.buffer.limit(this.buffer.capacity()).position(unconsumed);
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+
+        if (read < 0) {
+            this.ended = true;
+            return false;
+        }
+        this.limit += read;
+        return true;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,57 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ByteDigitsTests {
+    private static int bruteIndexOf4(final byte[] expected, final int from) {
+        for (int i = from; i < expected.length; i++) {
+            if (expected[i] == 4) return i;
+        }
+        return -1;
+    }
+
+    @Test
+    public void tracksFoursThroughSetsAndFills() {
+        final Random random = new Random(4);
+        final int length = 300;
+        final ByteDigits digits = new ByteDigits(length, DigitRules.FOURLESS);
+        final byte[] expected = new byte[length];
+
+        for (int round = 0; round < 2000; round++) {
+            if (random.nextBoolean()) {
+                final int index = random.nextInt(length);
+                final byte value = (byte)(random.nextBoolean() ? 4 : random.nextInt(10));
+                digits.set(index, value);
+                expected[index] = value;
+            }
+            else {
+                final int from = random.nextInt(length);
+                final int to = from + random.nextInt(length - from + 1);
+                final byte value = (byte)(random.nextInt(4) == 0 ? 4 : random.nextInt(10));
+                digits.fill(from, to, value);
+                for (int i = from; i < to; i++) {
+                    expected[i] = value;
+                }
+            }
+
+            final int from = random.nextInt(length + 1);
+            assertEquals(bruteIndexOf4(expected, from), digits.indexOf((byte)4, from));
+        }
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        final ByteDigits digits = new ByteDigits(100, DigitRules.FOURLESS);
+        digits.set(70, (byte)4);
+
+        final ByteDigits copy = digits.copy();
+        copy.set(70, (byte)5);
+
+        assertEquals(70, digits.indexOf((byte)4, 0));
+        assertEquals(-1, copy.indexOf((byte)4, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class CachingSolverTests {
+    private static FourlessPair solve(final Solver solver, final String input) {
+        final FourlessPair pair = solver.split(input);
+        solver.solve(pair);
+        return pair;
+    }
+
+    @Test
+    public void repeatsHit() {
+        final CachingSolver cache = new CachingSolver(SearchSolver.INSTANCE, 100);
+
+        final FourlessPair first = solve(cache, "940");
+        final FourlessPair second = solve(cache, "940");
+
+        assertNotSame(first, second);
+        assertTrue(second.isFrozen());
+        assertEquals(solve(SearchSolver.INSTANCE, "940").toString(), second.toString());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.weight());
+    }
+
+    @Test
+    public void keysIgnoreHowTheInputArrived() {
+        final CachingSolver cache = new CachingSolver(DigitwiseSolver.INSTANCE, 100);
+        final FourlessPair fromString = solve(cache, "1404");
+
+        final byte[] ascii = " 001404 ".getBytes(StandardCharsets.US_ASCII);
+        final FourlessPair fromBuffer = cache.split(ByteBuffer.wrap(ascii), 1, 6);
+        cache.solve(fromBuffer);
+
+        assertTrue(fromBuffer.isFrozen());
+        assertEquals(fromString.toString(), fromBuffer.toString());
+        assertEquals("1303 101", fromBuffer.toString());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void closingAHitLeavesTheCacheIntact() {
+        final CachingSolver cache = new CachingSolver(SearchSolver.INSTANCE, 100);
+        solve(cache, "4444").close();
+
+        final FourlessPair hit = solve(cache, "4444");
+        // thawing the hit gives its caller numbers of their own, which it is free to change and close
+        hit.getFirst().increment();
+        hit.close();
+
+        assertEquals(solve(SearchSolver.INSTANCE, "4444").toString(), solve(cache, "4444").toString());
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByWeight() {
+        final CachingSolver cache = new CachingSolver(SearchSolver.INSTANCE, 10);
+
+        solve(cache, "1234");
+        solve(cache, "5678");
+        solve(cache, "1234");
+        // 4 + 4 + 3 digits is too many, so the least recently used, 5678, goes
+        solve(cache, "999");
+
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertEquals(7, cache.weight());
+
+        // 1234 is still there, but 5678 has to be solved again
+        solve(cache, "1234");
+        solve(cache, "5678");
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    public void hugeInputsAreNotKept() {
+        final CachingSolver cache = new CachingSolver(SearchSolver.INSTANCE, 3);
+
+        solve(cache, "12");
+        final FourlessPair huge = solve(cache, "123456");
+        assertNotSame(huge, solve(cache, "123456"));
+
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.evictions());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void worksWithParallelSolver() throws Exception {
+        final CachingSolver cache = new CachingSolver(SearchSolver.INSTANCE, 1000);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final ParallelSolver parallel = new ParallelSolver(cache, executor, 4, writer);
+            for (int i = 0; i < 50; i++) {
+                parallel.submit(cache.split(i % 2 == 0 ? "44" : "4004"));
+            }
+            parallel.finish();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        writer.flush();
+
+        final String[] lines = out.toString().split("\n");
+        assertEquals(50, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            final String expected = solve(SearchSolver.INSTANCE, i % 2 == 0 ? "44" : "4004").toString();
+            assertEquals("Case #" + (i + 1) + ": " + expected, lines[i]);
+        }
+        assertEquals(50, cache.hits() + cache.misses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadDigits() {
+        new CachingSolver(SearchSolver.INSTANCE, 10).split("12x");
+    }
+}
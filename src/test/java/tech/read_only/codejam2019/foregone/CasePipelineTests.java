@@ -0,0 +1,179 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CasePipelineTests {
+    private static final String[] INPUTS = {
+            "87346598763245099823476345", "4", "18763452348762349872435", "128", "520987345763245002000",
+            "909009000090000009", "1088", "87346598", "444", "128", "4444", "1000"
+    };
+
+    private static String input(final String... cases) {
+        return cases.length + "\n" + String.join("\n", cases) + "\n";
+    }
+
+    private static String sequential(final Solver solver) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < INPUTS.length; i++) {
+            final FourlessPair halves = solver.split(INPUTS[i]);
+            solver.solve(halves);
+            sb.append("Case #").append(i + 1).append(": ").append(halves).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String pipelined(final Solver solver, final int threads, final int depth, final String input)
+            throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+        final CasePipeline pipeline = new CasePipeline(solver, threads, depth, writer, true);
+
+        pipeline.run(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII))));
+        writer.flush();
+        return out.toString();
+    }
+
+    @Test
+    public void keepsCaseOrder() throws Exception {
+        for (Solver solver : new Solver[] { SearchSolver.INSTANCE, DigitwiseSolver.INSTANCE }) {
+            assertEquals(sequential(solver), pipelined(solver, 1, 16, input(INPUTS)));
+            assertEquals(sequential(solver), pipelined(solver, 3, 2, input(INPUTS)));
+            // every stage waits on the next, so that no more than one case is ever queued
+            assertEquals(sequential(solver), pipelined(solver, 2, 1, input(INPUTS)));
+        }
+    }
+
+    @Test
+    public void splitsIntoReusedPairs() {
+        final ByteBuffer digits = ByteBuffer.wrap("4444 1088 0000 12".getBytes(StandardCharsets.US_ASCII));
+        for (Solver solver : new Solver[] { SearchSolver.INSTANCE, DigitwiseSolver.INSTANCE }) {
+            final FourlessPair first = solver.split(digits, 0, 4);
+            solver.solve(first);
+
+            final FourlessPair second = solver.split(digits, 5, 4, first);
+            assertSame(first, second);
+            assertEquals(0, second.getRounds());
+            solver.solve(second);
+            assertEquals(solver.toString(), solve(solver, "1088"), second.toString());
+
+            // all zeroes must not leave the old digits behind
+            assertSame(second, solver.split(digits, 10, 4, second));
+            solver.solve(second);
+            assertEquals(solve(solver, "0"), second.toString());
+
+            // a different length does not fit
+            assertNotSame(second, solver.split(digits, 15, 2, second));
+        }
+    }
+
+    @Test
+    public void streamsCasesAsTheyArrive() throws Exception {
+        final PipedOutputStream cases = new PipedOutputStream();
+        final PipedInputStream in = new PipedInputStream(cases);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+        final CasePipeline pipeline = new CasePipeline(SearchSolver.INSTANCE, 1, 4, writer, true);
+
+        final CompletableFuture<Void> run = CompletableFuture.runAsync(() -> {
+            try {
+                pipeline.run(Channels.newChannel(in));
+            }
+            catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // the first result is written while the rest of the input has yet to arrive
+        cases.write("2\n128\n".getBytes(StandardCharsets.US_ASCII));
+        cases.flush();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (out.size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("Case #1: 65 63\n", out.toString());
+
+        cases.write("4\n".getBytes(StandardCharsets.US_ASCII));
+        cases.close();
+        run.get(10, TimeUnit.SECONDS);
+        writer.flush();
+        assertEquals("Case #1: 65 63\nCase #2: 2 2\n", out.toString());
+    }
+
+    @Test
+    public void missingCases() throws Exception {
+        try {
+            pipelined(SearchSolver.INSTANCE, 1, 4, "3\n128\n4\n");
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+    }
+
+    @Test
+    public void failedCasesStopThePipeline() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+        final Solver failing = new Solver() {
+            @Override
+            public FourlessPair split(final String number) {
+                return SearchSolver.INSTANCE.split(number);
+            }
+
+            @Override
+            public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+                return SearchSolver.INSTANCE.split(digits, offset, length);
+            }
+
+            @Override
+            public void solve(final FourlessPair pair) {
+                if (pair.getFirst().toString().equals("2")) {
+                    throw new IllegalStateException("No 4s allowed.");
+                }
+                SearchSolver.INSTANCE.solve(pair);
+            }
+        };
+
+        try {
+            new CasePipeline(failing, 2, 2, writer, true)
+                    .run(Channels.newChannel(new ByteArrayInputStream(input(INPUTS).getBytes(StandardCharsets.US_ASCII))));
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        writer.flush();
+        assertEquals("Case #1: 50006598763250000000076350 37339999999995099823399995\n", out.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyQueues() {
+        new CasePipeline(SearchSolver.INSTANCE, 1, 0, new ResultWriter(Channels.newChannel(new ByteArrayOutputStream())),
+                         true);
+    }
+
+    private static String solve(final Solver solver, final String number) {
+        final FourlessPair pair = solver.split(number);
+        solver.solve(pair);
+        return pair.toString();
+    }
+}
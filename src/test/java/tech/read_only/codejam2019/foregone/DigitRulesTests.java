@@ -0,0 +1,179 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DigitRulesTests {
+    private static final DigitRules[] VARIANTS = {
+            DigitRules.FOURLESS,
+            DigitRules.of(10, 9),
+            DigitRules.of(10, 3, 7),
+            DigitRules.of(10, 2, 5, 8),
+            DigitRules.of(7, 3),
+            DigitRules.of(3, 2),
+    };
+
+    private static BigInteger value(final FourlessNumber number) {
+        return number.isZero() ? BigInteger.ZERO : new BigInteger(number.toString(), number.getRules().getRadix());
+    }
+
+    private static boolean isAllowed(final BigInteger value, final DigitRules rules) {
+        for (char c : value.toString(rules.getRadix()).toCharArray()) {
+            if (rules.isForbidden(c - '0')) return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void tables() {
+        final DigitRules rules = DigitRules.FOURLESS;
+        assertEquals(5, rules.nextAllowed[4]);
+        assertEquals(3, rules.prevAllowed[4]);
+        assertEquals(1, rules.split[4]);
+        assertEquals(9, rules.maxAllowed);
+
+        final DigitRules noNines = DigitRules.of(10, 8, 9);
+        assertEquals(10, noNines.nextAllowed[8]);
+        assertEquals(7, noNines.prevAllowed[9]);
+        assertEquals(7, noNines.maxAllowed);
+
+        for (int sum = 0; sum < 20; sum++) {
+            assertEquals(sum % 10, rules.sumDigit[sum]);
+            assertEquals(sum / 10, rules.sumCarry[sum]);
+        }
+    }
+
+    @Test
+    public void factories() {
+        assertSame(DigitRules.FOURLESS, DigitRules.of(10, 4));
+        assertSame(DigitRules.FOURLESS, DigitRules.parse(10, "4"));
+        assertEquals(DigitRules.of(10, 4, 7), DigitRules.parse(10, "74"));
+        assertNotEquals(DigitRules.of(9, 4), DigitRules.FOURLESS);
+        assertEquals("base 7 without 35", DigitRules.of(7, 5, 3).toString());
+
+        for (Runnable bad : new Runnable[] {
+                () -> DigitRules.of(1),
+                () -> DigitRules.of(11, 4),
+                () -> DigitRules.of(10, 0),
+                () -> DigitRules.of(7, 7),
+                () -> DigitRules.of(10, 1),
+                () -> DigitRules.of(10, 3, 4, 5),
+                () -> DigitRules.of(3, 1, 2),
+                () -> DigitRules.parse(10, "x"),
+        }) {
+            try {
+                bad.run();
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void searchSolvesEveryVariant() {
+        for (DigitRules rules : VARIANTS) {
+            final Solver solver = Solver.forName("search", rules);
+            for (int n = 0; n < 3000; n++) {
+                final String input = Integer.toString(n, rules.getRadix());
+                final FourlessPair pair = solver.split(input);
+                solver.solve(pair);
+
+                final String message = rules + ": " + input;
+                assertTrue(message, pair.getFirst().isFourless());
+                assertTrue(message, pair.getSecond().isFourless());
+                assertEquals(message, BigInteger.valueOf(n), value(pair.getFirst()).add(value(pair.getSecond())));
+            }
+        }
+    }
+
+    @Test
+    public void searchFindsTheClosestPair() {
+        for (DigitRules rules : VARIANTS) {
+            final Solver solver = Solver.forName("search", rules);
+            for (int n = 1; n < 500; n++) {
+                final FourlessPair pair = solver.split(Integer.toString(n, rules.getRadix()));
+                solver.solve(pair);
+
+                int closest = n;
+                for (int first = (n + 1) / 2; first <= n; first++) {
+                    if (isAllowed(BigInteger.valueOf(first), rules)
+                        && isAllowed(BigInteger.valueOf(n - first), rules)) {
+                        closest = first;
+                        break;
+                    }
+                }
+                assertEquals(rules + ": " + n, BigInteger.valueOf(closest), value(pair.getFirst()));
+            }
+        }
+    }
+
+    @Test
+    public void digitwiseSplitsOtherDigits() {
+        final Solver solver = Solver.forName("digitwise", DigitRules.of(10, 4, 7));
+        final FourlessPair pair = solver.split("4717");
+        solver.solve(pair);
+        assertEquals("3616 1101", pair.toString());
+    }
+
+    @Test
+    public void inputOutsideTheRadix() {
+        try {
+            Solver.forName("search", DigitRules.of(7, 3)).split("1238");
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void mixedVariantsInOneJvm() throws Exception {
+        final List<String> expected = new ArrayList<>();
+        for (DigitRules rules : VARIANTS) {
+            expected.add(solve(rules, "4444444"));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int round = 0; round < 20; round++) {
+                for (DigitRules rules : VARIANTS) {
+                    results.add(executor.submit(() -> solve(rules, "4444444")));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i % VARIANTS.length), results.get(i).get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(expected.get(0).contains("4"));
+        assertEquals(expected.get(0), solve(DigitRules.FOURLESS, "4444444"));
+    }
+
+    private static String solve(final DigitRules rules, final String input) {
+        final String digits = new BigInteger(input).toString(rules.getRadix());
+        final Solver solver = Solver.forName("search", rules);
+        final FourlessPair pair = solver.split(digits);
+        solver.solve(pair);
+        return pair.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DigitwiseSolverTests {
+    private static final Solver SOLVER = DigitwiseSolver.INSTANCE;
+
+    private static BigInteger value(final FourlessNumber number) {
+        return number.isZero() ? BigInteger.ZERO : new BigInteger(number.toString());
+    }
+
+    private static void assertSolved(final String input, final FourlessPair pair) {
+        assertTrue(input, pair.getFirst().isFourless());
+        assertTrue(input, pair.getSecond().isFourless());
+        assertFalse(input, pair.toString().contains("4"));
+        assertEquals(input, new BigInteger(input), value(pair.getFirst()).add(value(pair.getSecond())));
+    }
+
+    @Test
+    public void splitsEveryFour() {
+        final FourlessPair pair = SOLVER.split("1404");
+        SOLVER.solve(pair);
+
+        assertEquals("1303 101", pair.toString());
+    }
+
+    @Test
+    public void noFours() {
+        final FourlessPair pair = SOLVER.split("128");
+        SOLVER.solve(pair);
+
+        assertEquals("128", pair.getFirst().toString());
+        assertTrue(pair.getSecond().isZero());
+    }
+
+    @Test
+    public void randomInputs() {
+        final Random random = new Random(9);
+        for (int round = 0; round < 200; round++) {
+            final StringBuilder sb = new StringBuilder().append(1 + random.nextInt(9));
+            final int length = random.nextInt(200);
+            for (int i = 0; i < length; i++) {
+                sb.append(random.nextInt(3) == 0 ? 4 : random.nextInt(10));
+            }
+            final String input = sb.toString();
+
+            final FourlessPair fromString = SOLVER.split(input);
+            SOLVER.solve(fromString);
+            assertSolved(input, fromString);
+
+            final byte[] bytes = (" " + input + " ").getBytes(StandardCharsets.US_ASCII);
+            final FourlessPair fromBytes = SOLVER.split(ByteBuffer.wrap(bytes), 1, input.length());
+            SOLVER.solve(fromBytes);
+            assertEquals(fromString.toString(), fromBytes.toString());
+        }
+    }
+
+    @Test
+    public void bothStorages() {
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            final String input = "4444444444444444444444444444444444";
+            final FourlessNumber whole = new FourlessNumber(input.length(), storage);
+            whole.init(input);
+            final FourlessNumber ones = new FourlessNumber(input.length(), storage);
+
+            whole.moveFoursInto(ones);
+
+            assertEquals(input.replace('4', '3'), whole.toString());
+            assertEquals(input.replace('4', '1'), ones.toString());
+            assertTrue(ones.isFourless());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSolver() {
+        Solver.forName("guess");
+    }
+}
@@ -0,0 +1,100 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FourlessBatchTests {
+    private static final DigitRules[] VARIANTS = {
+            DigitRules.FOURLESS,
+            DigitRules.of(10, 9),
+            DigitRules.of(10, 2, 5, 8),
+            DigitRules.of(7, 3),
+            DigitRules.of(3, 2),
+    };
+
+    @Test
+    public void matchesTheSearchSolver() {
+        final Random random = new Random(19);
+        for (DigitRules rules : VARIANTS) {
+            final Solver solver = Solver.forName("search", rules);
+            // a small batch to begin with, so that it has to grow
+            final FourlessBatch batch = new FourlessBatch(rules, 1, 1);
+            final List<String> inputs = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                final String input = i < 500 ? Integer.toString(i, rules.getRadix())
+                                             : new BigInteger(1 + random.nextInt(100), random).toString(rules.getRadix());
+                inputs.add(input);
+                assertEquals(i, batch.add(input));
+            }
+            batch.solve();
+
+            for (int i = 0; i < inputs.size(); i++) {
+                final FourlessPair pair = solver.split(inputs.get(i));
+                solver.solve(pair);
+
+                final String message = rules + ": " + inputs.get(i);
+                assertEquals(message, pair.getFirst().toString(), batch.getFirst(i));
+                assertEquals(message, pair.getSecond().toString(), batch.getSecond(i));
+            }
+        }
+    }
+
+    @Test
+    public void solvesOnlyNewCases() {
+        final FourlessBatch batch = new FourlessBatch(DigitRules.FOURLESS);
+        batch.add("799");
+        batch.solve();
+        batch.add(ByteBuffer.wrap("x87346598".getBytes(StandardCharsets.US_ASCII)), 1, 8);
+        batch.solve();
+
+        assertEquals("500", batch.getFirst(0));
+        assertEquals("299", batch.getSecond(0));
+        assertEquals("50006599", batch.getFirst(1));
+        assertEquals("37339999", batch.getSecond(1));
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        batch.add("0");
+        batch.solve();
+        assertEquals("", batch.getFirst(0));
+    }
+
+    @Test
+    public void writesResultLines() {
+        final FourlessBatch batch = new FourlessBatch(DigitRules.FOURLESS);
+        batch.add("0128");
+        batch.add("4");
+        batch.solve();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out), 20);
+        batch.writeTo(writer, 9);
+        writer.flush();
+
+        assertEquals("Case #9: 65 63\nCase #10: 2 2\n", out.toString());
+    }
+
+    @Test
+    public void rejectsOtherDigits() {
+        final FourlessBatch batch = new FourlessBatch(DigitRules.of(7, 3));
+        try {
+            batch.add("127");
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, batch.size());
+    }
+}
@@ -0,0 +1,97 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FourlessLongTests {
+    private static final DigitRules[] VARIANTS = {
+            DigitRules.FOURLESS,
+            DigitRules.of(10, 9),
+            DigitRules.of(10, 2, 5, 8),
+            DigitRules.of(7, 3),
+            DigitRules.of(3, 2),
+    };
+
+    @Test
+    public void matchesTheSearchSolver() {
+        final Random random = new Random(20);
+        for (DigitRules rules : VARIANTS) {
+            final Solver solver = Solver.forName("search", rules);
+            final long max = rules.powers[FourlessLong.MAX_DIGITS];
+            final int bits = 64 - Long.numberOfLeadingZeros(max);
+            for (int i = 0; i < 3000; i++) {
+                // small numbers, the largest ones, and then any number of digits
+                final long number = i < 500 ? i
+                                            : i < 510 ? max - (i - 500) - 1
+                                                      : (random.nextLong() >>> 1) % (max >>> random.nextInt(bits));
+                final String input = Long.toString(number, rules.getRadix());
+
+                final FourlessPair pair = solver.split(input);
+                solver.solve(pair);
+                final long first = FourlessLong.solve(FourlessLong.parse(input, rules), rules);
+
+                final String message = rules + ": " + input;
+                assertEquals(message, pair.getFirst().toString(), toString(first, rules));
+                assertEquals(message, pair.getSecond().toString(), toString(number - first, rules));
+            }
+        }
+    }
+
+    @Test
+    public void roundsToFourlessNumbers() {
+        final DigitRules rules = DigitRules.FOURLESS;
+        assertEquals(5, FourlessLong.next(4, rules));
+        assertEquals(3, FourlessLong.prev(4, rules));
+        assertEquals(50000, FourlessLong.next(44999, rules));
+        assertEquals(39999, FourlessLong.prev(44999, rules));
+        assertEquals(1235, FourlessLong.next(1234, rules));
+        assertEquals(1233, FourlessLong.prev(1234, rules));
+        assertEquals(1235, FourlessLong.next(1235, rules));
+        assertTrue(FourlessLong.isFourless(123567890L, rules));
+        assertFalse(FourlessLong.isFourless(123456789L, rules));
+
+        // no digit above 9 is allowed, so it carries, here onto another forbidden digit
+        final DigitRules nineless = DigitRules.of(10, 9);
+        assertEquals(1000, FourlessLong.next(899, nineless));
+        assertEquals(888, FourlessLong.prev(899, nineless));
+        assertEquals(1000000000000000000L, FourlessLong.next(999999999999999999L, nineless));
+    }
+
+    @Test
+    public void parsesBufferSlices() {
+        final ByteBuffer buffer = ByteBuffer.wrap("x0128 ".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(128, FourlessLong.parse(buffer, 1, 4, DigitRules.FOURLESS));
+        assertEquals(0, FourlessLong.parse(buffer, 1, 0, DigitRules.FOURLESS));
+    }
+
+    @Test
+    public void rejectsTooManyDigits() {
+        try {
+            FourlessLong.parse("1234567890123456789", DigitRules.FOURLESS);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            FourlessLong.solve(1000000000000000000L, DigitRules.FOURLESS);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static String toString(final long number, final DigitRules rules) {
+        return number == 0 ? "" : Long.toString(number, rules.getRadix());
+    }
+}
@@ -1,10 +1,21 @@
 package tech.read_only.codejam2019.foregone;
 
 import org.apache.commons.lang3.RandomUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static tech.read_only.codejam2019.foregone.FourlessNumber.NAN;
 
 public class FourlessNumberTests {
@@ -20,6 +31,32 @@ public class FourlessNumberTests {
         assertEquals(0, zero1.compareTo(zero2));
     }
 
+    @Test
+    public void nanCannotChange() {
+        final FourlessNumber fnum = new FourlessNumber(3);
+        fnum.init("128");
+        // a fourless number needs no difference, and without a buffer gets the shared NAN back
+        final FourlessNumber difference = fnum.nextNumber(NAN);
+        assertSame(NAN, difference);
+
+        try {
+            difference.clear();
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        try {
+            new FourlessNumber(0).nextNumber(NAN, NAN);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(new FourlessNumber(0), NAN);
+    }
+
     @Test
     public void nonZero() {
         final long num1 = RandomUtils.nextLong();
@@ -47,4 +84,619 @@ public class FourlessNumberTests {
         assertEquals("CompareTo should have a consistent sign: " + num1 + ", " + num2,
                      Integer.signum(Long.compare(num1, num2)), fnum1.compareTo(fnum2));
     }
+
+    @Test
+    public void nextNumber() {
+        final FourlessNumber fnum = new FourlessNumber(4);
+        fnum.init("1423");
+
+        final FourlessNumber difference = fnum.nextNumber(NAN);
+
+        assertEquals("1500", fnum.toString());
+        assertEquals("77", difference.toString());
+        assertTrue(fnum.isFourless());
+    }
+
+    @Test
+    public void prevNumber() {
+        final FourlessNumber fnum = new FourlessNumber(4);
+        fnum.init("1423");
+
+        final FourlessNumber difference = fnum.prevNumber(NAN);
+
+        assertEquals("1399", fnum.toString());
+        assertEquals("24", difference.toString());
+        assertTrue(fnum.isFourless());
+    }
+
+    @Test
+    public void changeByMinimumCarries() {
+        final FourlessNumber fnum = new FourlessNumber(4);
+        fnum.init("1386");
+        final FourlessNumber minDifference = new FourlessNumber(4);
+        minDifference.init("57");
+
+        final FourlessNumber upDifference = fnum.increaseByMinimum(minDifference);
+
+        assertEquals("1500", fnum.toString());
+        assertEquals("57", upDifference.toString());
+
+        final FourlessNumber downDifference = fnum.decreaseByMinimum(minDifference);
+
+        assertEquals("1399", fnum.toString());
+        assertEquals("44", downDifference.toString());
+    }
+
+    @Test
+    public void differenceBuffer() {
+        final FourlessNumber fnum = new FourlessNumber(4);
+        fnum.init("1386");
+        final FourlessNumber difference = new FourlessNumber(4);
+        difference.init("57");
+
+        assertSame(difference, fnum.increaseByMinimum(difference, difference));
+        assertEquals("1500", fnum.toString());
+        assertEquals("57", difference.toString());
+
+        assertSame(difference, fnum.prevNumber(difference, difference));
+        assertEquals("1399", fnum.toString());
+        assertEquals("44", difference.toString());
+
+        assertSame(difference, fnum.nextNumber(NAN, difference));
+        assertTrue(difference.isZero());
+    }
+
+    @Test
+    public void storagesAgree() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            final int length = 1 + random.nextInt(60);
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append(random.nextInt(3) == 0 ? 4 : random.nextInt(10));
+            }
+
+            final FourlessNumber bytes = new FourlessNumber(length, FourlessNumber.Storage.BYTES);
+            final FourlessNumber packed = new FourlessNumber(length, FourlessNumber.Storage.PACKED);
+            bytes.init(sb.toString());
+            packed.init(sb.toString());
+
+            FourlessNumber bytesDifference = bytes.nextNumber(NAN);
+            FourlessNumber packedDifference = packed.nextNumber(NAN);
+            for (int step = 0; step < 4 && !bytesDifference.isZero(); step++) {
+                assertEquals(sb.toString(), bytes, packed);
+                assertEquals(sb.toString(), bytesDifference, packedDifference);
+
+                if (step % 2 == 0) {
+                    bytesDifference = bytes.prevNumber(bytesDifference);
+                    packedDifference = packed.prevNumber(packedDifference);
+                }
+                else {
+                    bytesDifference = bytes.nextNumber(bytesDifference);
+                    packedDifference = packed.nextNumber(packedDifference);
+                }
+            }
+
+            assertEquals(sb.toString(), bytes, packed);
+            assertEquals(sb.toString(), bytesDifference.toString(), packedDifference.toString());
+        }
+    }
+
+    @Test
+    public void initFromSlices() {
+        final String padded = "x00123405y";
+        final byte[] ascii = padded.getBytes(StandardCharsets.US_ASCII);
+
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            final FourlessNumber expected = new FourlessNumber(8, storage);
+            expected.init("123405");
+
+            final FourlessNumber fromChars = new FourlessNumber(8, storage);
+            fromChars.init(padded, 1, 8);
+            final FourlessNumber fromCharArray = new FourlessNumber(8, storage);
+            fromCharArray.init(padded.toCharArray(), 1, 8);
+            final FourlessNumber fromBytes = new FourlessNumber(8, storage);
+            fromBytes.init(ascii, 1, 8);
+            final FourlessNumber fromBuffer = new FourlessNumber(8, storage);
+            fromBuffer.init(ByteBuffer.wrap(ascii), 1, 8);
+            final FourlessNumber fromDirectBuffer = new FourlessNumber(8, storage);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(ascii.length);
+            direct.put(ascii);
+            fromDirectBuffer.init(direct, 1, 8);
+
+            for (FourlessNumber number : Arrays.asList(fromChars, fromCharArray, fromBytes, fromBuffer,
+                                                       fromDirectBuffer)) {
+                assertEquals("123405", number.toString());
+                assertEquals(expected, number);
+                assertEquals(6, number.digitCount());
+                assertFalse(number.isFourless());
+            }
+        }
+    }
+
+    @Test
+    public void hashCodeIgnoresStorage() {
+        final FourlessNumber bytes = new FourlessNumber(20, FourlessNumber.Storage.BYTES);
+        bytes.init("12345678901234567890");
+        final FourlessNumber packed = new FourlessNumber(20, FourlessNumber.Storage.PACKED);
+        packed.init("12345678901234567890");
+
+        assertEquals(bytes, packed);
+        assertEquals(bytes.hashCode(), packed.hashCode());
+
+        packed.increment();
+        assertNotEquals(bytes.hashCode(), packed.hashCode());
+    }
+
+    @Test
+    public void initReusesNumbers() {
+        final FourlessNumber number = new FourlessNumber(6);
+        number.init("444444");
+        number.init("0012");
+
+        final FourlessNumber fresh = new FourlessNumber(6);
+        fresh.init("12");
+
+        assertEquals(fresh, number);
+        assertTrue(number.isFourless());
+
+        // all zeroes leave the number as it was
+        number.init("000");
+        assertEquals("12", number.toString());
+    }
+
+    @Test
+    public void initRejectsBadInput() {
+        final FourlessNumber number = new FourlessNumber(3);
+
+        for (String bad : new String[]{ "12a", "-12", "1 2", "1234" }) {
+            try {
+                number.init(bad);
+                fail("Accepted " + bad);
+            }
+            catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+
+        try {
+            number.init(new byte[2], 1, 2);
+            fail("Accepted a slice past the end");
+        }
+        catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void initTenMillionDigits() {
+        final byte[] ascii = new byte[10_000_000];
+        Arrays.fill(ascii, (byte)'7');
+        ascii[5_000_000] = '4';
+        final String str = new String(ascii, StandardCharsets.US_ASCII);
+
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            final FourlessNumber number = new FourlessNumber(ascii.length, storage);
+            number.init(ascii, 0, ascii.length);
+            assertEquals(ascii.length, number.digitCount());
+            assertFalse(number.isFourless());
+
+            number.init(str);
+            assertEquals(ascii.length, number.digitCount());
+        }
+    }
+
+    @Test
+    public void rankMatchesCounting() {
+        for (DigitRules rules : new DigitRules[] { DigitRules.FOURLESS, DigitRules.of(7, 3), DigitRules.of(10, 2, 9) }) {
+            final FourlessNumber number = new FourlessNumber(8, rules);
+            final FourlessNumber unranked = new FourlessNumber(8, rules);
+            long below = 0;
+            for (int n = 0; n < 5000; n++) {
+                number.init(Integer.toString(n, rules.getRadix()));
+                if (n == 0) {
+                    number.clear();
+                }
+                assertEquals(rules + ": " + n, BigInteger.valueOf(below), number.rank());
+
+                if (number.isFourless()) {
+                    unranked.unrank(BigInteger.valueOf(below));
+                    assertEquals(number.toString(), unranked.toString());
+                    below++;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rankHugeNumbers() {
+        final Random random = new Random(16);
+        final char[] digits = new char[5000];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = "012356789".charAt(random.nextInt(9));
+        }
+        digits[0] = '7';
+
+        final FourlessNumber number = new FourlessNumber(digits.length);
+        number.init(new String(digits));
+        final BigInteger rank = number.rank();
+
+        final FourlessNumber unranked = new FourlessNumber(digits.length);
+        unranked.unrank(rank);
+        assertEquals(number, unranked);
+
+        try {
+            new FourlessNumber(3).unrank(BigInteger.valueOf(729));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // 729 is 1000 in base 9
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void countWideRanges() {
+        final FourlessNumber one = new FourlessNumber(19);
+        one.init("1");
+        final FourlessNumber quintillion = new FourlessNumber(19);
+        quintillion.init("1000000000000000000");
+
+        assertEquals(BigInteger.valueOf(9).pow(18), FourlessNumber.count(one, quintillion));
+        assertEquals(BigInteger.ZERO, FourlessNumber.count(quintillion, one));
+
+        final FourlessNumber four = new FourlessNumber(1);
+        four.init("4");
+        assertEquals(BigInteger.ZERO, FourlessNumber.count(four, four));
+    }
+
+    @Test
+    public void incrementFourless() {
+        final FourlessNumber number = new FourlessNumber(5);
+        number.init("3999");
+        number.incrementFourless();
+        assertEquals("5000", number.toString());
+
+        number.clear();
+        number.incrementFourless();
+        assertEquals("1", number.toString());
+
+        number.init("99999");
+        try {
+            number.incrementFourless();
+            fail();
+        }
+        catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void halveInPlace() {
+        final Random random = new Random(17);
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            for (DigitRules rules : new DigitRules[] { DigitRules.FOURLESS, DigitRules.of(7, 3), DigitRules.of(3, 2) }) {
+                if (!storage.supports(rules)) continue;
+
+                for (int round = 0; round < 200; round++) {
+                    final BigInteger value = new BigInteger(1 + random.nextInt(120), random);
+                    final String digits = value.toString(rules.getRadix());
+                    final FourlessNumber number = new FourlessNumber(digits.length() + random.nextInt(3), storage, rules);
+                    number.init(digits);
+
+                    final int remainder = number.halve();
+                    final BigInteger[] expected = value.divideAndRemainder(BigInteger.valueOf(2));
+                    assertEquals(expected[1].intValue(), remainder);
+                    assertSameState(expected[0], number);
+                }
+            }
+        }
+
+        final FourlessNumber zero = new FourlessNumber(3);
+        assertEquals(0, zero.halve());
+        assertTrue(zero.isZero());
+
+        final FourlessNumber one = new FourlessNumber(3);
+        one.init("1");
+        assertEquals(1, one.halve());
+        assertTrue(one.isZero());
+        assertEquals("", one.toString());
+    }
+
+    @Test
+    public void addAndSubtractInPlace() {
+        final Random random = new Random(17);
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            for (DigitRules rules : new DigitRules[] { DigitRules.FOURLESS, DigitRules.of(7, 3) }) {
+                if (!storage.supports(rules)) continue;
+
+                for (int round = 0; round < 200; round++) {
+                    final BigInteger a = new BigInteger(1 + random.nextInt(100), random);
+                    final BigInteger b = new BigInteger(1 + random.nextInt(100), random).min(a);
+                    final int small = random.nextInt(1000);
+                    final int length = a.add(b).add(BigInteger.valueOf(small)).toString(rules.getRadix()).length();
+
+                    final FourlessNumber number = new FourlessNumber(length, storage, rules);
+                    number.init(a.toString(rules.getRadix()));
+                    final FourlessNumber other = new FourlessNumber(length, storage, rules);
+                    other.init(b.toString(rules.getRadix()));
+
+                    number.add(other);
+                    assertSameState(a.add(b), number);
+                    number.add(small);
+                    assertSameState(a.add(b).add(BigInteger.valueOf(small)), number);
+                    number.subtract(other);
+                    assertSameState(a.add(BigInteger.valueOf(small)), number);
+                }
+            }
+        }
+
+        final FourlessNumber wraps = new FourlessNumber(2);
+        wraps.init("95");
+        wraps.add(7);
+        assertEquals("2", wraps.toString());
+
+        try {
+            wraps.add(-1);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        final FourlessNumber longer = new FourlessNumber(3);
+        longer.init("5");
+        try {
+            wraps.add(longer);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void reusedDifferencesOnlyClearTheirDigits() {
+        final Random random = new Random(25);
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            if (storage == FourlessNumber.Storage.MAPPED) continue;
+
+            // one buffer for every round, as the solver uses it, against a new difference each time
+            final FourlessNumber reused = new FourlessNumber(60, storage.forDifferences());
+            for (int round = 0; round < 300; round++) {
+                final String digits = new BigInteger(1 + random.nextInt(190), random).toString();
+                final FourlessNumber number = new FourlessNumber(60, storage);
+                number.init(digits);
+                final FourlessNumber expected = new FourlessNumber(number);
+
+                final boolean up = random.nextBoolean();
+                final FourlessNumber difference = up ? number.nextNumber(NAN, reused) : number.prevNumber(NAN, reused);
+                final FourlessNumber fresh = up ? expected.nextNumber(NAN) : expected.prevNumber(NAN);
+
+                final String message = storage + ": " + digits;
+                assertEquals(message, expected, number);
+                assertEquals(message, fresh.toString(), difference.toString());
+                assertEquals(message, fresh.isZero(), difference.isZero());
+                if (!fresh.isZero()) {
+                    assertEquals(message, fresh, difference);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void equalValuesReachedDifferently() {
+        final FourlessNumber rounded = new FourlessNumber(12);
+        rounded.init("123456789");
+        // every digit below the 4 becomes 0, so only the digits up to the 5 can be non-zero
+        rounded.nextNumber(NAN);
+        final FourlessNumber parsed = new FourlessNumber(12);
+        parsed.init("123500000");
+
+        assertEquals(parsed, rounded);
+        assertEquals(rounded, parsed);
+        assertEquals(parsed.hashCode(), rounded.hashCode());
+        assertEquals("123500000", rounded.toString());
+
+        rounded.add(1);
+        assertNotEquals(parsed, rounded);
+        assertEquals("123500001", rounded.toString());
+
+        rounded.clear();
+        assertEquals(new FourlessNumber(12), rounded);
+        assertEquals("", rounded.toString());
+    }
+
+    @Test
+    public void comparesPastTheLeadingDigit() {
+        final FourlessNumber larger = new FourlessNumber(19);
+        larger.init("7554000000000000001");
+        final FourlessNumber smaller = new FourlessNumber(25);
+        smaller.init("7235999999999999999");
+        assertEquals(1, larger.compareTo(smaller));
+        assertEquals(-1, smaller.compareTo(larger));
+
+        // rounding leaves a shorter dirty span than parsing does
+        final FourlessNumber rounded = new FourlessNumber(12);
+        rounded.init("123456789");
+        rounded.nextNumber(NAN);
+        final FourlessNumber parsed = new FourlessNumber(12);
+        parsed.init("123500001");
+        assertEquals(-1, rounded.compareTo(parsed));
+        parsed.init("123500000");
+        assertEquals(0, rounded.compareTo(parsed));
+        assertEquals(0, parsed.compareTo(rounded));
+    }
+
+    @Test
+    public void hashesFollowTheValue() {
+        final FourlessNumber narrow = new FourlessNumber(9);
+        narrow.init("123456789");
+        final FourlessNumber wide = new FourlessNumber(30);
+        wide.init("000123456789");
+        assertEquals(narrow.hashCode(), wide.hashCode());
+
+        // cached until the number changes, however it changes
+        final int before = narrow.hashCode();
+        narrow.nextNumber(NAN);
+        assertNotEquals(before, narrow.hashCode());
+        wide.nextNumber(NAN);
+        assertEquals(narrow.hashCode(), wide.hashCode());
+
+        final FourlessNumber copy = new FourlessNumber(narrow);
+        copy.add(1);
+        assertNotEquals(narrow.hashCode(), copy.hashCode());
+        copy.copyFrom(narrow);
+        assertEquals(narrow.hashCode(), copy.hashCode());
+
+        final FourlessNumber halved = new FourlessNumber(9);
+        halved.init("247000000");
+        halved.halve();
+        final FourlessNumber parsed = new FourlessNumber(9);
+        parsed.init("123500000");
+        assertEquals(parsed.hashCode(), halved.hashCode());
+
+        parsed.clear();
+        assertEquals(new FourlessNumber(9).hashCode(), parsed.hashCode());
+    }
+
+    @Test
+    public void longDifferences() {
+        final Random random = new Random(24);
+        for (DigitRules rules : new DigitRules[] { DigitRules.FOURLESS, DigitRules.of(3, 2) }) {
+            for (int round = 0; round < 500; round++) {
+                final BigInteger a = new BigInteger(random.nextInt(80), random);
+                final BigInteger b = round % 3 == 0 ? a.subtract(BigInteger.valueOf(random.nextInt(1000))).abs()
+                                                    : new BigInteger(random.nextInt(80), random);
+                final BigInteger difference = a.subtract(b);
+                final long expected = difference.signum() < 0 || difference.bitLength() >= Long.SIZE
+                                      ? -1 : difference.longValueExact();
+
+                final FourlessNumber first = new FourlessNumber(80, rules);
+                first.init(a.toString(rules.getRadix()));
+                final FourlessNumber second = new FourlessNumber(80, rules);
+                second.init(b.toString(rules.getRadix()));
+                assertEquals(a + " - " + b, expected, first.longDifference(second));
+            }
+        }
+
+        final FourlessNumber max = new FourlessNumber(20);
+        max.init(Long.toString(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, max.longDifference(new FourlessNumber(20)));
+        max.add(1);
+        assertEquals(-1, max.longDifference(new FourlessNumber(20)));
+    }
+
+    /**
+     * Check the digits, and that the leading digit and the leading 4 are tracked as a fresh init would have them.
+     */
+    private static void assertSameState(final BigInteger expected, final FourlessNumber actual) {
+        final int radix = actual.getRules().getRadix();
+        assertEquals(expected.signum() == 0, actual.isZero());
+        if (actual.isZero()) return;
+
+        final FourlessNumber fresh = new FourlessNumber(actual.getMaxDigits(), actual.getStorage(), actual.getRules());
+        fresh.init(expected.toString(radix));
+        assertEquals(expected.toString(radix), actual.toString());
+        assertEquals(fresh, actual);
+        assertEquals(fresh.isFourless(), actual.isFourless());
+    }
+
+    /**
+     * All-4 inputs used to make every cleared 4 rescan the rest of the digits. Now each solver method scans each digit
+     * a bounded number of times; the time they take is in the {@code ALL_FOURS} runs of
+     * {@code FourlessNumberBenchmark}.
+     */
+    @Test
+    public void allFoursScanEachDigitAFewTimes() {
+        for (int numDigits : new int[] { 1, 10, 1_000, 10_000 }) {
+            final String fours = StringUtils.repeat('4', numDigits);
+            final ScanCountingDigits upDigits = new ScanCountingDigits(numDigits);
+            final ScanCountingDigits downDigits = new ScanCountingDigits(numDigits);
+            final FourlessNumber up = new FourlessNumber(upDigits, FourlessNumber.Storage.BYTES, DigitRules.FOURLESS);
+            final FourlessNumber down = new FourlessNumber(downDigits, FourlessNumber.Storage.BYTES,
+                                                           DigitRules.FOURLESS);
+            up.init(fours);
+            down.init(fours);
+
+            upDigits.visited = 0;
+            downDigits.visited = 0;
+            up.nextNumber(NAN);
+            down.prevNumber(NAN);
+
+            assertEquals("5" + StringUtils.repeat('0', numDigits - 1), up.toString());
+            assertEquals("3" + StringUtils.repeat('9', numDigits - 1), down.toString());
+            // quadratic rescanning would visit numDigits^2 / 2
+            assertTrue(numDigits + ": " + upDigits.visited, upDigits.visited <= 2L * numDigits);
+            assertTrue(numDigits + ": " + downDigits.visited, downDigits.visited <= 2L * numDigits);
+        }
+    }
+
+    /**
+     * Byte digits that count how many digits their searches visit.
+     */
+    private static final class ScanCountingDigits implements DigitStorage {
+        private final ByteDigits digits;
+        private long visited;
+
+        ScanCountingDigits(final int length) {
+            this.digits = new ByteDigits(length, DigitRules.FOURLESS);
+        }
+
+        private int visit(final int from, final int index) {
+            this.visited += (index < 0 ? this.digits.length() : index + 1) - Math.min(from, this.digits.length());
+            return index;
+        }
+
+        @Override
+        public int length() {
+            return this.digits.length();
+        }
+
+        @Override
+        public byte get(final int index) {
+            return this.digits.get(index);
+        }
+
+        @Override
+        public void set(final int index, final byte value) {
+            this.digits.set(index, value);
+        }
+
+        @Override
+        public void fill(final int from, final int to, final byte value) {
+            this.digits.fill(from, to, value);
+        }
+
+        @Override
+        public int indexOf(final byte value, final int from) {
+            return this.visit(from, this.digits.indexOf(value, from));
+        }
+
+        @Override
+        public int indexOfForbidden(final int from) {
+            return this.visit(from, this.digits.indexOfForbidden(from));
+        }
+
+        @Override
+        public int indexOfNonZero(final int from) {
+            return this.visit(from, this.digits.indexOfNonZero(from));
+        }
+
+        @Override
+        public void toAscii(final int from, final int to, final byte[] dst, final int offset) {
+            this.digits.toAscii(from, to, dst, offset);
+        }
+
+        @Override
+        public void copyFrom(final DigitStorage other) {
+            this.digits.copyFrom(((ScanCountingDigits)other).digits);
+        }
+
+        @Override
+        public ScanCountingDigits copy() {
+            final ScanCountingDigits copy = new ScanCountingDigits(this.digits.length());
+            copy.digits.copyFrom(this.digits);
+            return copy;
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FourlessSpliteratorTests {
+    private static FourlessNumber number(final String digits) {
+        final FourlessNumber number = new FourlessNumber(20);
+        number.init(digits);
+        return number;
+    }
+
+    private static List<String> expected(final int from, final int to) {
+        final List<String> expected = new ArrayList<>();
+        for (int n = from; n <= to; n++) {
+            if (!Integer.toString(n).contains("4")) {
+                expected.add(Integer.toString(n));
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void streamsEveryFourlessNumber() {
+        final List<String> actual = FourlessNumber.range(number("38"), number("1450"))
+                .map(FourlessNumber::toString)
+                .collect(Collectors.toList());
+
+        assertEquals(expected(38, 1450), actual);
+    }
+
+    @Test
+    public void parallelStreamsKeepTheOrder() {
+        final List<String> actual = FourlessNumber.range(number("1"), number("54321"))
+                .parallel()
+                .map(FourlessNumber::toString)
+                .collect(Collectors.toList());
+
+        assertEquals(expected(1, 54321), actual);
+    }
+
+    @Test
+    public void splitsEvenly() {
+        final FourlessNumber from = number("1");
+        final FourlessNumber to = number("99999");
+        final Spliterator<FourlessNumber> suffix = FourlessNumber.range(from, to).spliterator();
+        final long size = suffix.estimateSize();
+        assertEquals(FourlessNumber.count(from, to).longValue(), size);
+
+        final Spliterator<FourlessNumber> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(size / 2, prefix.estimateSize());
+        assertEquals(size - size / 2, suffix.estimateSize());
+        assertTrue(prefix.hasCharacteristics(Spliterator.SUBSIZED | Spliterator.ORDERED));
+
+        final List<String> first = new ArrayList<>();
+        suffix.tryAdvance(n -> first.add(n.toString()));
+        assertEquals(1, first.size());
+        assertEquals(FourlessNumber.count(from, number(first.get(0))).longValue() - 1, size / 2);
+    }
+
+    @Test
+    public void emptyAndSingleRanges() {
+        assertEquals(0, FourlessNumber.range(number("44"), number("44")).count());
+        assertEquals(0, FourlessNumber.range(number("9"), number("1")).count());
+
+        final Spliterator<FourlessNumber> single = FourlessNumber.range(number("7"), number("7")).spliterator();
+        assertNull(single.trySplit());
+        assertEquals(1, single.estimateSize());
+    }
+
+    @Test(timeout = 1000)
+    public void wideRangesAreLazy() {
+        final List<String> first = FourlessNumber.range(number("999999999999999990"), number("99999999999999999999"))
+                .limit(3)
+                .map(FourlessNumber::toString)
+                .collect(Collectors.toList());
+
+        assertEquals(3, first.size());
+        assertEquals("999999999999999990", first.get(0));
+        assertEquals("999999999999999991", first.get(1));
+        assertEquals("999999999999999992", first.get(2));
+
+        assertEquals(BigInteger.valueOf(9).pow(20).subtract(number("999999999999999990").rank()),
+                     FourlessNumber.count(number("999999999999999990"), number("99999999999999999999")));
+    }
+}
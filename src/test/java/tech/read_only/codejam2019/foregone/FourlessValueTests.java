@@ -0,0 +1,146 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FourlessValueTests {
+    private static final FourlessNumber.Storage[] STORAGES = {
+            FourlessNumber.Storage.BYTES,
+            FourlessNumber.Storage.PACKED,
+            FourlessNumber.Storage.SPARSE,
+            FourlessNumber.Storage.DIRECT,
+    };
+
+    private static FourlessNumber number(final String digits, final int maxDigits,
+                                         final FourlessNumber.Storage storage) {
+        final FourlessNumber number = new FourlessNumber(maxDigits, storage);
+        number.init(digits);
+        return number;
+    }
+
+    @Test
+    public void thawsBackToTheSameNumber() {
+        final Random random = new Random(23);
+        for (FourlessNumber.Storage storage : STORAGES) {
+            for (int round = 0; round < 100; round++) {
+                final int length = random.nextInt(40);
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    sb.append(random.nextInt(10));
+                }
+                final FourlessNumber number = number(sb.toString(), 40, storage);
+
+                final FourlessValue value = number.freeze();
+                final FourlessNumber thawed = value.thaw();
+
+                final String message = storage + ": " + sb;
+                assertEquals(message, number, thawed);
+                assertEquals(message, storage, thawed.getStorage());
+                assertEquals(message, number.toString(), value.toString());
+                assertEquals(message, number.digitCount(), value.digitCount());
+                assertEquals(message, number.isFourless(), value.isFourless());
+                assertEquals(message, number.isZero(), value.isZero());
+            }
+        }
+    }
+
+    @Test
+    public void valuesDoNotChangeWithTheirNumbers() {
+        final FourlessNumber number = number("1404", 4, FourlessNumber.Storage.BYTES);
+        final FourlessValue before = number.freeze();
+
+        number.nextNumber(FourlessNumber.NAN);
+
+        assertEquals("1404", before.toString());
+        assertFalse(before.isFourless());
+        assertEquals("1500", number.freeze().toString());
+
+        // and the other way around
+        final FourlessNumber thawed = before.thaw();
+        thawed.clear();
+        assertEquals("1404", before.toString());
+    }
+
+    @Test
+    public void equalityIsNumeric() {
+        final FourlessValue small = number("0128", 4, FourlessNumber.Storage.BYTES).freeze();
+        final FourlessValue wide = number("128", 100, FourlessNumber.Storage.PACKED).freeze();
+        final FourlessValue octal = new FourlessNumber(3, DigitRules.of(8, 4)).freeze();
+
+        assertEquals(small, wide);
+        assertEquals(small.hashCode(), wide.hashCode());
+        assertEquals(0, small.compareTo(wide));
+        assertNotEquals(small, octal);
+        assertEquals(100, wide.getMaxDigits());
+    }
+
+    @Test
+    public void ordersNumerically() {
+        final Random random = new Random(123);
+        for (int round = 0; round < 500; round++) {
+            final BigInteger a = new BigInteger(random.nextInt(70), random);
+            final BigInteger b = round % 5 == 0 ? a : new BigInteger(random.nextInt(70), random);
+            final FourlessValue first = number(a.toString(), 30, FourlessNumber.Storage.BYTES).freeze();
+            final FourlessValue second = number(b.toString(), 30, FourlessNumber.Storage.BYTES).freeze();
+
+            assertEquals(a + " " + b, Integer.signum(a.compareTo(b)), Integer.signum(first.compareTo(second)));
+            assertEquals(a + " " + b, a.equals(b), first.equals(second));
+        }
+    }
+
+    @Test
+    public void digitsAreReadable() {
+        final FourlessValue value = number("90210", 8, FourlessNumber.Storage.BYTES).freeze();
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < value.digitCount(); i++) {
+            sb.append(value.digitAt(i));
+        }
+        assertEquals("90210", sb.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void noDigitsPastTheEnd() {
+        number("12", 8, FourlessNumber.Storage.BYTES).freeze().digitAt(2);
+    }
+
+    @Test
+    public void sharedAcrossThreads() throws Exception {
+        final SearchSolver solver = SearchSolver.INSTANCE;
+        final FourlessPair pair = solver.split("87346598763245099823476345");
+        solver.solve(pair);
+        final FourlessValue first = pair.getFirst().freeze();
+
+        // every thread works on its own copy, and the shared value is left as it was
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    final FourlessNumber copy = first.thaw();
+                    copy.add(1);
+                    return copy.toString();
+                });
+            }
+            for (Future<?> future : futures) {
+                assertEquals("50006598763250000000076351", future.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("50006598763250000000076350", first.toString());
+        assertTrue(first.isFourless());
+    }
+}
@@ -0,0 +1,69 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTests {
+    @Test
+    public void empty() {
+        final Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10, histogram.count());
+        assertEquals(5, histogram.percentile(50));
+        assertEquals(10, histogram.percentile(99));
+        assertEquals(10, histogram.max());
+    }
+
+    @Test
+    public void largeValuesAreWithinAnEighth() {
+        for (long value = 17; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            final Histogram histogram = new Histogram();
+            histogram.record(value);
+            histogram.record(Long.MAX_VALUE);
+
+            final long p50 = histogram.percentile(50);
+            assertTrue(value + " -> " + p50, p50 >= value && p50 <= value + value / 8);
+        }
+    }
+
+    @Test
+    public void percentilesOfASkewedDistribution() {
+        final Histogram histogram = new Histogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000);
+        }
+        histogram.record(5_000_000);
+
+        assertTrue(histogram.percentile(50) >= 100 && histogram.percentile(50) < 113);
+        assertTrue(histogram.percentile(99) >= 1_000_000 && histogram.percentile(99) < 1_125_000);
+        assertEquals(5_000_000, histogram.max());
+        assertEquals(5_000_000, histogram.percentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negative() {
+        new Histogram().record(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badPercentile() {
+        new Histogram().percentile(0);
+    }
+}
@@ -0,0 +1,82 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalSolverTests {
+    private static String solve(final Solver solver, final String number) {
+        final FourlessPair pair = solver.split(number);
+        solver.solve(pair);
+        return pair.toString();
+    }
+
+    @Test
+    public void sweepsAsTheSearchSolves() {
+        final Random random = new Random(24);
+        for (DigitRules rules : new DigitRules[] { DigitRules.FOURLESS, DigitRules.parse(8, "37") }) {
+            final SearchSolver search = new SearchSolver(rules);
+            for (int round = 0; round < 40; round++) {
+                final int width = 1 + random.nextInt(30);
+                BigInteger number = new BigInteger(width * 3, random);
+                final String start = number.toString(rules.getRadix());
+                final IncrementalSolver sweep = new IncrementalSolver(rules, start.length() + 10);
+
+                FourlessPair pair = sweep.start(start);
+                for (int step = 0; step < 200; step++) {
+                    assertEquals(rules + " " + number, solve(search, number.toString(rules.getRadix())),
+                                 pair.toString());
+
+                    final int delta = step % 50 == 49 ? random.nextInt(1_000_000) : random.nextInt(3);
+                    number = number.add(BigInteger.valueOf(delta));
+                    pair = sweep.advance(delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void contiguousRangesRarelySearch() {
+        final IncrementalSolver sweep = new IncrementalSolver(DigitRules.FOURLESS, 30);
+        final ByteBuffer digits = ByteBuffer.wrap("x800000000000000000000000000000".getBytes(StandardCharsets.US_ASCII));
+        final FourlessPair pair = sweep.start(digits, 1, 30);
+        assertEquals("500000000000000000000000000000 300000000000000000000000000000", pair.toString());
+
+        for (int i = 1; i <= 10_000; i++) {
+            assertSame(pair, sweep.advance(1));
+        }
+        assertEquals(solve(SearchSolver.INSTANCE, "800000000000000000000000010000"), pair.toString());
+        // only the numbers whose second half would have had a 4 in it
+        assertTrue(String.valueOf(sweep.getSearches()), sweep.getSearches() < 5_000);
+    }
+
+    @Test
+    public void startsOverFromAnyNumber() {
+        final IncrementalSolver sweep = new IncrementalSolver(DigitRules.FOURLESS, 8);
+        sweep.start("87346598");
+        sweep.advance(7);
+
+        assertEquals("2 2", sweep.start("4").toString());
+        assertEquals(solve(SearchSolver.INSTANCE, "0"), sweep.start("0").toString());
+        assertEquals(solve(SearchSolver.INSTANCE, "1"), sweep.advance(1).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlySweepsUpwards() {
+        final IncrementalSolver sweep = new IncrementalSolver(DigitRules.FOURLESS, 3);
+        sweep.start("128");
+        sweep.advance(-1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startsBeforeAdvancing() {
+        new IncrementalSolver(DigitRules.FOURLESS, 3).advance(1);
+    }
+}
@@ -0,0 +1,138 @@
+package tech.read_only.codejam2019.foregone;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedSolverTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static FourlessPair solve(final Solver solver, final String input) {
+        final FourlessPair pair = solver.split(input);
+        solver.solve(pair);
+        return pair;
+    }
+
+    @Test
+    public void solversRecordTheirWork() {
+        final FourlessPair noFours = solve(SearchSolver.INSTANCE, "2");
+        assertEquals(2, noFours.getRounds());
+
+        final FourlessPair searched = solve(SearchSolver.INSTANCE, "8888");
+        assertTrue(searched.getRounds() >= 2);
+        assertTrue(searched.getDigitsTouched() > 0);
+
+        final FourlessPair digitwise = solve(DigitwiseSolver.INSTANCE, "1404");
+        assertEquals(1, digitwise.getRounds());
+        assertEquals(2, digitwise.getDigitsTouched());
+    }
+
+    @Test
+    public void metricsCountEveryCase() throws Exception {
+        final SolverMetrics metrics = new SolverMetrics();
+        final Solver solver = new InstrumentedSolver(SearchSolver.INSTANCE, metrics);
+
+        assertEquals("2 2", solve(solver, "4").toString());
+        solve(solver, "940");
+        solve(solver, "44444444444444444444");
+
+        assertEquals(3, metrics.getCases());
+        assertTrue(metrics.getRoundsMax() >= metrics.getRoundsP50());
+        assertTrue(metrics.getLatencyMaxNanos() > 0);
+        assertTrue(metrics.getDigitsTouchedPerRoundMax() > 0);
+        assertEquals(3, metrics.getAllocatedBytes().count());
+
+        final ObjectName name = metrics.register();
+        try {
+            assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Cases"));
+        }
+        finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void disabledListenerMeasuresNothing() {
+        final SolverMetrics metrics = new SolverMetrics();
+        final Solver solver = new InstrumentedSolver(SearchSolver.INSTANCE, new SolveListener() {
+            @Override
+            public void caseSolved(final Solver solver, final FourlessPair pair, final long nanos,
+                                   final long allocatedBytes) {
+                metrics.caseSolved(solver, pair, nanos, allocatedBytes);
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        });
+
+        assertEquals("2 2", solve(solver, "4").toString());
+        assertEquals(0, metrics.getCases());
+    }
+
+    @Test
+    public void instrumentAddsFlightRecorderEvents() throws Exception {
+        final Solver solver = InstrumentedSolver.instrument(DigitwiseSolver.INSTANCE, null);
+        assertNotSame(DigitwiseSolver.INSTANCE, solver);
+
+        final Path file = this.folder.getRoot().toPath().resolve("solve.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(SolveEvent.class);
+            recording.start();
+            solve(solver, "14041");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        final RecordedEvent event = events.stream()
+                                          .filter(e -> e.getEventType().getName().endsWith(".Solve"))
+                                          .findFirst()
+                                          .orElseThrow(AssertionError::new);
+        assertEquals("DigitwiseSolver", event.getString("solver"));
+        assertEquals(5, event.getInt("digits"));
+        assertEquals(1, event.getInt("rounds"));
+        assertEquals(2, event.getLong("digitsTouched"));
+    }
+
+    @Test
+    public void flightRecorderListenerFollowsRecordings() {
+        final SolveListener listener = new JfrSolveListener();
+        assertFalse(listener.isEnabled());
+
+        try (Recording recording = new Recording()) {
+            recording.enable(SolveEvent.class);
+            recording.start();
+            assertTrue(listener.isEnabled());
+        }
+        assertFalse(listener.isEnabled());
+    }
+
+    @Test
+    public void listenersChain() {
+        final SolverMetrics first = new SolverMetrics();
+        final SolverMetrics second = new SolverMetrics();
+        final Solver solver = new InstrumentedSolver(SearchSolver.INSTANCE, first.andThen(second));
+
+        solve(solver, "14");
+
+        assertEquals(1, first.getCases());
+        assertEquals(1, second.getCases());
+        assertEquals(1, second.getRounds().count());
+    }
+}
@@ -0,0 +1,87 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MappedInputTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedInput open(final String contents, final int window) throws IOException {
+        final File file = this.folder.newFile();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+        return new MappedInput(file.toPath(), window);
+    }
+
+    private static List<String> tokens(final MappedInput input) throws IOException {
+        final List<String> tokens = new ArrayList<>();
+        while (input.nextToken()) {
+            final byte[] bytes = new byte[input.tokenLength()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = input.buffer().get(input.tokenOffset() + i);
+            }
+            tokens.add(new String(bytes, StandardCharsets.US_ASCII));
+        }
+        return tokens;
+    }
+
+    @Test
+    public void readsTokens() throws IOException {
+        try (MappedInput input = open("3\n12\r\n  345\t6789\n", 1 << 20)) {
+            assertEquals(3, input.nextInt());
+            assertEquals(Arrays.asList("12", "345", "6789"), tokens(input));
+        }
+    }
+
+    @Test
+    public void tokensSpanningWindowsAreRemapped() throws IOException {
+        final String longToken = "1234567890123456789012345678901234567890";
+        try (MappedInput input = open("2\n" + longToken + "\n    \n     98\n", 4)) {
+            assertEquals(2, input.nextInt());
+            assertEquals(Arrays.asList(longToken, "98"), tokens(input));
+        }
+    }
+
+    @Test
+    public void tokenAtEndOfFile() throws IOException {
+        try (MappedInput input = open("1 4444", 3)) {
+            assertEquals(1, input.nextInt());
+            assertEquals(Collections.singletonList("4444"), tokens(input));
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        try (MappedInput input = open("", 16)) {
+            assertFalse(input.nextToken());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void missingNumber() throws IOException {
+        try (MappedInput input = open("  \n", 16)) {
+            input.nextInt();
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void notANumber() throws IOException {
+        try (MappedInput input = open("12a", 16)) {
+            input.nextInt();
+        }
+    }
+}
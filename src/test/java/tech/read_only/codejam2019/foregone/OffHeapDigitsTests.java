@@ -0,0 +1,88 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OffHeapDigitsTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesByteDigits() throws Exception {
+        final Random random = new Random(18);
+        final int length = 301;
+        final DigitRules rules = DigitRules.of(10, 4, 7);
+        final ByteDigits expected = new ByteDigits(length, rules);
+
+        for (Path directory : new Path[] { null, this.folder.getRoot().toPath() }) {
+            final OffHeapDigits digits = new OffHeapDigits(length, rules, directory);
+            expected.fill(0, length, (byte)0);
+
+            for (int round = 0; round < 2000; round++) {
+                if (random.nextBoolean()) {
+                    final int index = random.nextInt(length);
+                    final byte value = (byte)random.nextInt(10);
+                    digits.set(index, value);
+                    expected.set(index, value);
+                }
+                else {
+                    final int from = random.nextInt(length);
+                    final int to = from + random.nextInt(length - from + 1);
+                    final byte value = (byte)(random.nextInt(3) == 0 ? 0 : random.nextInt(10));
+                    digits.fill(from, to, value);
+                    expected.fill(from, to, value);
+                }
+
+                final int from = random.nextInt(length + 1);
+                assertEquals(expected.indexOfForbidden(from), digits.indexOfForbidden(from));
+                assertEquals(expected.indexOfNonZero(from), digits.indexOfNonZero(from));
+                assertEquals(expected.indexOf((byte)3, from), digits.indexOf((byte)3, from));
+            }
+
+            final byte[] expectedAscii = new byte[length];
+            final byte[] ascii = new byte[length];
+            expected.toAscii(0, length, expectedAscii, 0);
+            digits.copy().toAscii(0, length, ascii, 0);
+            assertArrayEquals(expectedAscii, ascii);
+            digits.close();
+        }
+    }
+
+    @Test
+    public void mappedFilesAreNotLeftBehind() throws Exception {
+        final File directory = this.folder.newFolder();
+        final OffHeapDigits digits = new OffHeapDigits(1000, DigitRules.FOURLESS, directory.toPath());
+        digits.set(999, (byte)4);
+        final OffHeapDigits copy = digits.copy();
+
+        assertEquals(0, directory.list().length);
+        assertEquals(999, copy.indexOfForbidden(0));
+        digits.close();
+        copy.close();
+    }
+
+    @Test
+    public void closedDigitsThrow() {
+        final FourlessNumber number = new FourlessNumber(20, FourlessNumber.Storage.DIRECT);
+        number.init("12345");
+        number.close();
+        number.close();
+
+        try {
+            number.toString();
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PackedDigitsTests {
+    private static final Random RANDOM = new Random(2019);
+
+    private static PackedDigits packed(final String digits) {
+        final PackedDigits packed = new PackedDigits(digits.length(), DigitRules.FOURLESS);
+        for (int i = 0; i < digits.length(); i++) {
+            packed.set(i, (byte)(digits.charAt(i) - '0'));
+        }
+        return packed;
+    }
+
+    private static String digitsOf(final DigitStorage storage) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < storage.length(); i++) {
+            sb.append(storage.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static String randomDigits(final int length) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(RANDOM.nextInt(10));
+        }
+        return sb.toString();
+    }
+
+    private static String padded(final BigInteger value, final int length) {
+        final BigInteger modulus = BigInteger.TEN.pow(length);
+        final String str = value.mod(modulus).toString();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = str.length(); i < length; i++) {
+            sb.append('0');
+        }
+        return sb.append(str).toString();
+    }
+
+    @Test
+    public void getAndSet() {
+        final String digits = randomDigits(37);
+
+        assertEquals(digits, digitsOf(packed(digits)));
+    }
+
+    @Test
+    public void fill() {
+        for (int length = 1; length <= 40; length++) {
+            final String digits = randomDigits(length);
+            final int from = RANDOM.nextInt(length);
+            final int to = from + RANDOM.nextInt(length - from + 1);
+
+            final PackedDigits packed = packed(digits);
+            packed.fill(from, to, (byte)7);
+
+            final StringBuilder expected = new StringBuilder(digits);
+            for (int i = from; i < to; i++) {
+                expected.setCharAt(i, '7');
+            }
+            assertEquals(expected.toString(), digitsOf(packed));
+        }
+    }
+
+    @Test
+    public void indexOf() {
+        for (int length = 1; length <= 40; length++) {
+            final String digits = randomDigits(length);
+            final PackedDigits packed = packed(digits);
+
+            for (int from = 0; from < length; from++) {
+                assertEquals(digits, digits.indexOf('4', from), packed.indexOf((byte)4, from));
+                assertEquals(digits, digits.indexOf('0', from), packed.indexOf((byte)0, from));
+
+                int nonZero = -1;
+                for (int i = from; i < length && nonZero < 0; i++) {
+                    if (digits.charAt(i) != '0') nonZero = i;
+                }
+                assertEquals(digits, nonZero, packed.indexOfNonZero(from));
+            }
+        }
+    }
+
+    @Test
+    public void addAndSubtract() {
+        for (int length = 1; length <= 70; length++) {
+            final String a = randomDigits(length);
+            final String b = randomDigits(length);
+
+            final PackedDigits sum = packed(a);
+            sum.add(packed(b), false);
+            assertEquals(padded(new BigInteger(a).add(new BigInteger(b)), length), digitsOf(sum));
+
+            final PackedDigits difference = packed(a);
+            difference.add(packed(b), true);
+            assertEquals(padded(new BigInteger(a).subtract(new BigInteger(b)), length), digitsOf(difference));
+        }
+    }
+
+    @Test
+    public void carriesAcrossWords() {
+        final PackedDigits nines = packed("99999999999999999999999999999999");
+        nines.increment();
+        assertEquals("00000000000000000000000000000000", digitsOf(nines));
+
+        final PackedDigits one = packed("0000000000000000000000000000000000001");
+        one.negate();
+        assertEquals("9999999999999999999999999999999999999", digitsOf(one));
+    }
+
+    @Test
+    public void negateAndIncrement() {
+        for (int length = 1; length <= 70; length++) {
+            final String a = randomDigits(length);
+
+            final PackedDigits negated = packed(a);
+            negated.negate();
+            assertEquals(padded(new BigInteger(a).negate(), length), digitsOf(negated));
+
+            final PackedDigits incremented = packed(a);
+            incremented.increment();
+            assertEquals(padded(new BigInteger(a).add(BigInteger.ONE), length), digitsOf(incremented));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelDigitsTests {
+    // enough digits to split, not starting or ending on a chunk
+    private static final int LENGTH = ParallelDigits.MIN_DIGITS + 3 * ParallelDigits.CHUNK + 12345;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final FourlessNumber.Storage[] STORAGES = {
+            FourlessNumber.Storage.BYTES,
+            FourlessNumber.Storage.SPARSE,
+            FourlessNumber.Storage.DIRECT,
+            FourlessNumber.Storage.PACKED,
+    };
+
+    @AfterClass
+    public static void shutDown() {
+        POOL.shutdownNow();
+    }
+
+    @Test
+    public void arithmeticMatchesOneThread() {
+        final Random random = new Random(21);
+        final String[] inputs = {
+                randomDigits(random, LENGTH, "0123456789"),
+                randomDigits(random, LENGTH - 1000, "0123456789"),
+                // carries and borrows all the way through every chunk
+                "1" + repeat('9', LENGTH - 1),
+                "1" + repeat('0', LENGTH - 1),
+                randomDigits(random, LENGTH, "4"),
+        };
+        final String other = "1" + randomDigits(random, LENGTH - 2, "0123456789") + "1";
+
+        for (FourlessNumber.Storage storage : STORAGES) {
+            for (String input : inputs) {
+                final FourlessNumber expected = number(input, storage, null);
+                final FourlessNumber actual = number(input, storage, POOL);
+                final FourlessNumber addend = number(other, storage, null);
+                final String message = storage + ": " + input.substring(0, 10);
+
+                expected.add(addend);
+                actual.add(addend);
+                assertEquals(message, expected, actual);
+
+                expected.subtract(addend);
+                actual.subtract(addend);
+                assertEquals(message, expected, actual);
+                assertEquals(message, input.replaceFirst("^0+", ""), actual.toString());
+
+                expected.subtract(addend);
+                actual.subtract(addend);
+                assertEquals(message, expected, actual);
+
+                assertEquals(message, expected.halve(), actual.halve());
+                assertEquals(message, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void solversMatchOneThread() {
+        final Random random = new Random(121);
+        final String[] inputs = {
+                repeat('4', LENGTH),
+                "5" + repeat('4', LENGTH - 1),
+                randomDigits(random, LENGTH, "0123456789"),
+        };
+
+        for (String input : inputs) {
+            // random digits take too many rounds to search; their single pass is what matters here
+            final String[] names = input.charAt(1) == '4' ? new String[] { "search", "digitwise" }
+                                                          : new String[] { "digitwise" };
+            for (String name : names) {
+                final Solver expected = Solver.forName(name, DigitRules.FOURLESS);
+                final Solver actual = Solver.forName(name, DigitRules.FOURLESS, POOL);
+
+                final FourlessPair expectedPair = expected.split(input);
+                expected.solve(expectedPair);
+                final FourlessPair actualPair = actual.split(input);
+                actual.solve(actualPair);
+
+                final String message = name + ": " + input.substring(0, 10);
+                assertEquals(message, expectedPair.getFirst(), actualPair.getFirst());
+                assertEquals(message, expectedPair.getSecond(), actualPair.getSecond());
+                assertEquals(message, expectedPair.getDigitsTouched(), actualPair.getDigitsTouched());
+            }
+        }
+    }
+
+    @Test
+    public void otherRules() {
+        final Random random = new Random(2021);
+        final DigitRules rules = DigitRules.of(7, 3, 6);
+        final String input = randomDigits(random, LENGTH, "0123456");
+
+        final FourlessPair expected = new DigitwiseSolver(rules).split(input);
+        new DigitwiseSolver(rules).solve(expected);
+        final FourlessPair actual = new DigitwiseSolver(rules, POOL).split(input);
+        new DigitwiseSolver(rules, POOL).solve(actual);
+
+        assertEquals(expected.getFirst(), actual.getFirst());
+        assertEquals(expected.getSecond(), actual.getSecond());
+
+        // 7 is odd, so the remainders depend on every digit before them
+        assertEquals(expected.getFirst().halve(), actual.getFirst().halve());
+        assertEquals(expected.getFirst(), actual.getFirst());
+    }
+
+    private static FourlessNumber number(final String digits, final FourlessNumber.Storage storage,
+                                         final ForkJoinPool pool) {
+        final FourlessNumber number = new FourlessNumber(LENGTH, storage);
+        number.setPool(pool);
+        number.init(digits);
+        return number;
+    }
+
+    private static String randomDigits(final Random random, final int length, final String digits) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = digits.charAt(random.nextInt(digits.length()));
+        }
+        return new String(chars);
+    }
+
+    private static String repeat(final char c, final int length) {
+        final char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,64 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelSolverTests {
+    private static final String[] INPUTS = {
+            "87346598763245099823476345", "4", "18763452348762349872435", "128", "520987345763245002000",
+            "909009000090000009", "1088", "87346598"
+    };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    private static String sequential() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < INPUTS.length; i++) {
+            final FourlessPair halves = SearchSolver.INSTANCE.split(INPUTS[i]);
+            SearchSolver.INSTANCE.solve(halves);
+            sb.append("Case #").append(i + 1).append(": ").append(halves).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String parallel(final int window) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+        final ParallelSolver solver = new ParallelSolver(SearchSolver.INSTANCE, this.executor, window, writer);
+
+        for (String input : INPUTS) {
+            solver.submit(SearchSolver.INSTANCE.split(input));
+        }
+        solver.finish();
+        writer.flush();
+
+        return out.toString();
+    }
+
+    @Test
+    public void keepsCaseOrder() throws Exception {
+        assertEquals(sequential(), parallel(16));
+    }
+
+    @Test
+    public void windowOfOne() throws Exception {
+        assertEquals(sequential(), parallel(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyWindow() {
+        new ParallelSolver(SearchSolver.INSTANCE, this.executor, 0, new ResultWriter(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+}
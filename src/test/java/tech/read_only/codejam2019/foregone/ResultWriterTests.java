@@ -0,0 +1,123 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ResultWriterTests {
+    private static FourlessNumber number(final String digits, final int maxDigits,
+                                         final FourlessNumber.Storage storage) {
+        final FourlessNumber number = new FourlessNumber(maxDigits, storage);
+        number.init(digits);
+        return number;
+    }
+
+    @Test
+    public void writesCases() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out));
+
+        writer.writeCase(1, number("65", 3, FourlessNumber.Storage.BYTES),
+                         number("063", 3, FourlessNumber.Storage.BYTES));
+        writer.writeCase(1234567890, number("500", 3, FourlessNumber.Storage.PACKED),
+                         number("300", 3, FourlessNumber.Storage.PACKED));
+        writer.writeCase(10, number("1", 1, FourlessNumber.Storage.BYTES), new FourlessNumber(1));
+
+        assertEquals("Nothing should be written before a flush", 0, out.size());
+
+        writer.flush();
+
+        assertEquals("Case #1: 65 63\nCase #1234567890: 500 300\nCase #10: 1 \n", out.toString());
+    }
+
+    @Test
+    public void splitsLongNumbersAcrossFlushes() {
+        final String digits = StringUtils.repeat("1234567890", 50);
+        for (FourlessNumber.Storage storage : FourlessNumber.Storage.values()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ResultWriter writer = new ResultWriter(Channels.newChannel(out), 32);
+
+            writer.writeCase(7, number(digits, 600, storage), number("9" + digits, 600, storage));
+            writer.flush();
+
+            assertEquals("Case #7: " + digits + " 9" + digits + "\n", out.toString());
+        }
+    }
+
+    @Test
+    public void failedFlushesKeepWhatWasNotWritten() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FailingChannel channel = new FailingChannel(out);
+        final ResultWriter writer = new ResultWriter(channel);
+        writer.writeCase(1, number("65", 3, FourlessNumber.Storage.BYTES),
+                         number("063", 3, FourlessNumber.Storage.BYTES));
+
+        try {
+            writer.flush();
+            fail();
+        }
+        catch (UncheckedIOException e) {
+            // expected
+        }
+        assertEquals("Case", out.toString());
+
+        writer.writeCase(2, number("5", 1, FourlessNumber.Storage.BYTES), new FourlessNumber(1));
+        writer.flush();
+        assertEquals("Case #1: 65 63\nCase #2: 5 \n", out.toString());
+    }
+
+    @Test
+    public void writesValues() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(out), 32);
+        final String digits = StringUtils.repeat("1234567890", 5);
+
+        writer.writeCase(3, number(digits, 60, FourlessNumber.Storage.BYTES).freeze(),
+                         number("0", 60, FourlessNumber.Storage.BYTES).freeze());
+        writer.flush();
+
+        assertEquals("Case #3: " + digits + " \n", out.toString());
+    }
+
+    /**
+     * Takes the first four bytes it is given, then fails once, then takes everything.
+     */
+    private static final class FailingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream out;
+        private int writes;
+
+        FailingChannel(final ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            if (++this.writes == 2) {
+                throw new IOException("Disk full");
+            }
+
+            final int count = this.writes == 1 ? Math.min(4, src.remaining()) : src.remaining();
+            for (int i = 0; i < count; i++) {
+                this.out.write(src.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,108 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScratchPoolTests {
+    @Test
+    public void reusesBuffersOfTheSameSize() {
+        final ScratchPool pool = ScratchPool.get();
+        final FourlessNumber buffer = pool.acquire(7);
+        buffer.init("1234567");
+
+        final FourlessNumber again = pool.acquire(7);
+
+        assertSame(buffer, again);
+        assertTrue(again.isZero());
+        assertEquals(new FourlessNumber(7), again);
+    }
+
+    @Test
+    public void keepsSeveralSizes() {
+        final ScratchPool pool = ScratchPool.get();
+        final FourlessNumber small = pool.acquire(3);
+        final FourlessNumber large = pool.acquire(30);
+
+        assertNotSame(small, large);
+        assertSame(small, pool.acquire(3));
+        assertSame(large, pool.acquire(30));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final ScratchPool pool = ScratchPool.get();
+        final FourlessNumber first = pool.acquire(101);
+        pool.acquire(102);
+        pool.acquire(103);
+        pool.acquire(104);
+        pool.acquire(101);
+        pool.acquire(105);
+
+        assertSame(first, pool.acquire(101));
+    }
+
+    @Test
+    public void closesEvictedBuffers() {
+        final ScratchPool pool = ScratchPool.get();
+        final FourlessNumber first = pool.acquire(201, FourlessNumber.Storage.DIRECT);
+        for (int maxDigits = 202; maxDigits <= 205; maxDigits++) {
+            pool.acquire(maxDigits, FourlessNumber.Storage.DIRECT);
+        }
+
+        assertClosed(first);
+        pool.release();
+    }
+
+    @Test
+    public void releasesEveryBuffer() {
+        final ScratchPool pool = ScratchPool.get();
+        final FourlessNumber buffer = pool.acquire(11, FourlessNumber.Storage.DIRECT);
+        pool.release();
+
+        assertClosed(buffer);
+        final FourlessNumber again = pool.acquire(11, FourlessNumber.Storage.DIRECT);
+        assertNotSame(buffer, again);
+        assertTrue(again.isZero());
+        pool.release();
+    }
+
+    private static void assertClosed(final FourlessNumber buffer) {
+        try {
+            buffer.init("1");
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void keepsRulesApart() {
+        final ScratchPool pool = ScratchPool.get();
+        final DigitRules octal = DigitRules.parse(8, "37");
+        final FourlessNumber decimal = pool.acquire(9, FourlessNumber.Storage.BYTES);
+        final FourlessNumber buffer = pool.acquire(9, FourlessNumber.Storage.BYTES, octal);
+
+        assertNotSame(decimal, buffer);
+        assertEquals(octal, buffer.getRules());
+        assertSame(buffer, pool.acquire(9, FourlessNumber.Storage.BYTES, octal));
+        assertSame(decimal, pool.acquire(9, FourlessNumber.Storage.BYTES));
+    }
+
+    @Test
+    public void separateThreadsGetSeparateBuffers() throws InterruptedException {
+        final FourlessNumber mine = ScratchPool.get().acquire(5);
+        final FourlessNumber[] theirs = new FourlessNumber[1];
+
+        final Thread thread = new Thread(() -> theirs[0] = ScratchPool.get().acquire(5));
+        thread.start();
+        thread.join();
+
+        assertNotSame(mine, theirs[0]);
+    }
+}
@@ -2,17 +2,28 @@ package tech.read_only.codejam2019.foregone;
 
 import org.junit.After;
 import org.junit.BeforeClass;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class SolutionTests {
     private static ByteArrayOutputStream OUT = new ByteArrayOutputStream();
 
+    @ClassRule
+    public static TemporaryFolder FOLDER = new TemporaryFolder();
+
     @BeforeClass
     public static void setUpClass() {
         System.setOut(new PrintStream(OUT));
@@ -187,4 +198,190 @@ public class SolutionTests {
                      "Case #4: 509009000090000010 399999999999999999\n",
                      OUT.toString());
     }
+
+    @Test
+    public void inputFile() throws IOException {
+        final File file = FOLDER.newFile();
+        Files.write(file.toPath(), ("4\n" +
+                                    "87346598763245099823476345\n" +
+                                    "18763452348762349872435\n" +
+                                    "520987345763245002000\n" +
+                                    "909009000090000009\n").getBytes(StandardCharsets.US_ASCII));
+
+        Solution.main(new String[]{ file.getPath() });
+
+        assertEquals("Case #1: 50006598763250000000076350 37339999999995099823399995\n" +
+                     "Case #2: 9381726175000009872500 9381726173762339999935\n" +
+                     "Case #3: 260587350000005002001 260399995763239999999\n" +
+                     "Case #4: 509009000090000010 399999999999999999\n",
+                     OUT.toString());
+    }
+
+    @Test
+    public void parallel() {
+        setInput("4\n" +
+                 "87346598763245099823476345\n" +
+                 "18763452348762349872435\n" +
+                 "520987345763245002000\n" +
+                 "909009000090000009");
+
+        Solution.main(new String[]{ "--threads=3", "--window=2" });
+
+        assertEquals("Case #1: 50006598763250000000076350 37339999999995099823399995\n" +
+                     "Case #2: 9381726175000009872500 9381726173762339999935\n" +
+                     "Case #3: 260587350000005002001 260399995763239999999\n" +
+                     "Case #4: 509009000090000010 399999999999999999\n",
+                     OUT.toString());
+    }
+
+    @Test
+    public void pipeline() throws IOException {
+        final String expected = "Case #1: 50006598763250000000076350 37339999999995099823399995\n" +
+                                "Case #2: 9381726175000009872500 9381726173762339999935\n" +
+                                "Case #3: 260587350000005002001 260399995763239999999\n" +
+                                "Case #4: 509009000090000010 399999999999999999\n";
+        final String input = "4\n" +
+                             "87346598763245099823476345\n" +
+                             "18763452348762349872435\n" +
+                             "520987345763245002000\n" +
+                             "909009000090000009\n";
+
+        setInput(input);
+        Solution.main(new String[]{ "--pipeline", "--threads=2", "--window=1" });
+        assertEquals(expected, OUT.toString());
+
+        OUT.reset();
+        final File file = FOLDER.newFile();
+        Files.write(file.toPath(), input.getBytes(StandardCharsets.US_ASCII));
+        Solution.main(new String[]{ "--pipeline", file.getPath() });
+        assertEquals(expected, OUT.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOption() {
+        Solution.main(new String[]{ "--nope" });
+    }
+
+    @Test
+    public void digitwiseSolver() {
+        setInput("2\n4\n87346598");
+
+        Solution.main(new String[]{ "--solver=digitwise" });
+
+        assertEquals("Case #1: 3 1\n" +
+                     "Case #2: 87336598 10000\n",
+                     OUT.toString());
+    }
+
+    @Test
+    public void otherRules() {
+        setInput("1\n178");
+        Solution.main(new String[]{ "--forbidden=9" });
+        assertEquals("Case #1: 100 78\n", OUT.toString());
+
+        OUT.reset();
+        setInput("1\n22");
+        Solution.main(new String[]{ "--forbidden=2", "--radix=3" });
+        assertEquals("Case #1: 11 11\n", OUT.toString());
+    }
+
+    @Test
+    public void smallBatch() {
+        setInput("5\n" +
+                 "799\n" +
+                 "4\n" +
+                 "87346598763245099823476345183746187346587162348716238476123874687\n" +
+                 "128\n" +
+                 "909009000090000009");
+
+        Solution.main(new String[]{ "--small-batch=2" });
+
+        assertEquals("Case #1: 500 299\n" +
+                     "Case #2: 2 2\n" +
+                     "Case #3: 50006598763250000000076350000006187350000000008716238500000000688 " +
+                     "37339999999995099823399995183739999996587162339999999976123873999\n" +
+                     "Case #4: 65 63\n" +
+                     "Case #5: 509009000090000010 399999999999999999\n",
+                     OUT.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void smallBatchOnlySearches() {
+        Solution.main(new String[]{ "--small-batch=2", "--solver=digitwise" });
+    }
+
+    @Test
+    public void digitThreads() {
+        final int length = ParallelDigits.MIN_DIGITS + 5;
+        setInput("2\n" + repeat('4', length) + "\n14\n");
+
+        Solution.main(new String[]{ "--digit-threads=3", "--solver=digitwise" });
+
+        assertEquals("Case #1: " + repeat('3', length) + " " + repeat('1', length) + "\n" +
+                     "Case #2: 13 1\n",
+                     OUT.toString());
+    }
+
+    @Test
+    public void metrics() {
+        setInput("2\n2\n4");
+        final PrintStream err = System.err;
+        final ByteArrayOutputStream metrics = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(metrics));
+        try {
+            Solution.main(new String[]{ "--metrics" });
+        }
+        finally {
+            System.setErr(err);
+        }
+
+        assertEquals("Case #1: 1 1\n" +
+                     "Case #2: 2 2\n",
+                     OUT.toString());
+        assertTrue(metrics.toString(), metrics.toString().startsWith("cases: 2\n"));
+    }
+
+    @Test
+    public void cache() {
+        setInput("3\n799\n4\n799");
+
+        Solution.main(new String[]{ "--cache=10" });
+
+        assertEquals("Case #1: 500 299\n" +
+                     "Case #2: 2 2\n" +
+                     "Case #3: 500 299\n",
+                     OUT.toString());
+    }
+
+    @Test
+    public void range() throws IOException {
+        final String expected = "Case #1: 5 3\n" +
+                                "Case #2: 6 3\n" +
+                                "Case #3: 5 5\n" +
+                                "Case #4: 6 5\n" +
+                                "Case #5: 65 62\n" +
+                                "Case #6: 65 63\n";
+        final String input = "2\n8 11\n0127 128\n";
+
+        setInput(input);
+        Solution.main(new String[]{ "--range" });
+        assertEquals(expected, OUT.toString());
+
+        OUT.reset();
+        final File file = FOLDER.newFile();
+        Files.write(file.toPath(), input.getBytes(StandardCharsets.US_ASCII));
+        Solution.main(new String[]{ "--range", file.getPath() });
+        assertEquals(expected, OUT.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOnlySearches() {
+        Solution.main(new String[]{ "--range", "--solver=digitwise" });
+    }
+
+    private static String repeat(final char c, final int length) {
+        final char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
 }
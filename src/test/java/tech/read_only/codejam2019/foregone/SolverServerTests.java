@@ -0,0 +1,264 @@
+package tech.read_only.codejam2019.foregone;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SolverServerTests {
+    private ExecutorService executor;
+    private ExecutorService clients;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(2);
+        this.clients = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+        this.clients.shutdownNow();
+    }
+
+    private SolverServer start(final Solver solver, final int batchSize, final int maxInFlight) throws IOException {
+        return new SolverServer(new InetSocketAddress("localhost", 0), solver, this.executor, batchSize, maxInFlight);
+    }
+
+    private static Response post(final SolverServer server, final String body) throws IOException {
+        final HttpURLConnection connection =
+                (HttpURLConnection)new URL("http://localhost:" + server.getPort() + "/solve").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        final int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void sameOutputAsTheCli() throws Exception {
+        try (SolverServer server = start(SearchSolver.INSTANCE, 64, 16)) {
+            final Response response = post(server, "3\n4\n940\n4444\n");
+
+            assertEquals(200, response.status);
+            assertEquals("Case #1: 2 2\n" +
+                         "Case #2: " + solve("940") + "\n" +
+                         "Case #3: " + solve("4444") + "\n",
+                         response.body);
+        }
+    }
+
+    @Test
+    public void concurrentRequestsAreBatchedTogether() throws Exception {
+        try (SolverServer server = start(SearchSolver.INSTANCE, 8, 64)) {
+            final List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final int n = 100 + i;
+                responses.add(this.clients.submit(() -> post(server, "2\n" + n + "\n" + (n * 7) + "\n")));
+            }
+
+            for (int i = 0; i < responses.size(); i++) {
+                final int n = 100 + i;
+                final Response response = responses.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(200, response.status);
+                assertEquals("Case #1: " + solve(String.valueOf(n)) + "\n" +
+                             "Case #2: " + solve(String.valueOf(n * 7)) + "\n",
+                             response.body);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsRequestsBeyondTheLimit() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Solver blocking = new BlockingSolver(started, release);
+
+        try (SolverServer server = start(blocking, 1, 1)) {
+            final Future<Response> first = this.clients.submit(() -> post(server, "1\n4"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            final Response rejected = post(server, "1\n4");
+            assertEquals(503, rejected.status);
+
+            release.countDown();
+            assertEquals("Case #1: 2 2\n", first.get(10, TimeUnit.SECONDS).body);
+            assertEquals(200, post(server, "1\n4").status);
+        }
+    }
+
+    @Test
+    public void rejectedBatchesFailTheirRequests() throws Exception {
+        final ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+
+        try (SolverServer server = new SolverServer(new InetSocketAddress("localhost", 0), SearchSolver.INSTANCE,
+                                                    stopped, 64, 1)) {
+            assertEquals(500, this.clients.submit(() -> post(server, "1\n4")).get(10, TimeUnit.SECONDS).status);
+            // the dispatcher is still going, and the first request gave back its place
+            assertEquals(500, this.clients.submit(() -> post(server, "2\n4\n8")).get(10, TimeUnit.SECONDS).status);
+        }
+    }
+
+    @Test
+    public void badRequests() throws Exception {
+        try (SolverServer server = start(SearchSolver.INSTANCE, 64, 16)) {
+            assertEquals(400, post(server, "").status);
+            assertEquals(400, post(server, "2\n4").status);
+            assertEquals(400, post(server, "1\n4x").status);
+            assertEquals(400, post(server, "99999999999\n4").status);
+            assertEquals(200, post(server, "0").status);
+        }
+    }
+
+    @Test
+    public void closesCasesOnceAnswered() throws Exception {
+        final OffHeapSolver solver = new OffHeapSolver();
+        try (SolverServer server = start(solver, 64, 16)) {
+            assertEquals(200, post(server, "2\n940\n4444\n").status);
+            assertEquals(400, post(server, "2\n940\n").status);
+        }
+
+        assertEquals(3, solver.pairs.size());
+        for (FourlessPair pair : solver.pairs) {
+            try {
+                pair.getFirst().toString();
+                fail();
+            }
+            catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void closingCasesLeavesTheCacheIntact() throws Exception {
+        final CachingSolver cache = new CachingSolver(new OffHeapSolver(), 100000);
+        try (SolverServer server = start(cache, 64, 16)) {
+            for (int i = 0; i < 3; i++) {
+                final Response response = post(server, "2\n4444\n94\n");
+
+                assertEquals(200, response.status);
+                assertEquals("Case #1: " + solve("4444") + "\n" +
+                             "Case #2: " + solve("94") + "\n",
+                             response.body);
+            }
+        }
+
+        assertEquals(4, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    private static String solve(final String input) {
+        final FourlessPair pair = SearchSolver.INSTANCE.split(input);
+        SearchSolver.INSTANCE.solve(pair);
+        return pair.toString();
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(final int status, final String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Splits each case into off-heap numbers, and keeps hold of them.
+     */
+    private static final class OffHeapSolver implements Solver {
+        final List<FourlessPair> pairs = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public FourlessPair split(final String number) {
+            final FourlessPair halves = SearchSolver.INSTANCE.split(number);
+            final FourlessPair pair = new FourlessPair(offHeap(halves.getFirst()), offHeap(halves.getSecond()));
+            this.pairs.add(pair);
+            return pair;
+        }
+
+        @Override
+        public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+            final byte[] ascii = new byte[length];
+            for (int i = 0; i < length; i++) {
+                ascii[i] = digits.get(offset + i);
+            }
+            return this.split(new String(ascii, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void solve(final FourlessPair pair) {
+            SearchSolver.INSTANCE.solve(pair);
+        }
+
+        private static FourlessNumber offHeap(final FourlessNumber number) {
+            final String digits = number.toString();
+            final FourlessNumber copy = new FourlessNumber(digits.length(), FourlessNumber.Storage.DIRECT);
+            copy.init(digits);
+            return copy;
+        }
+    }
+
+    /**
+     * Holds up solving until released, to keep a request in flight.
+     */
+    private static final class BlockingSolver implements Solver {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingSolver(final CountDownLatch started, final CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public FourlessPair split(final String number) {
+            return SearchSolver.INSTANCE.split(number);
+        }
+
+        @Override
+        public FourlessPair split(final ByteBuffer digits, final int offset, final int length) {
+            return SearchSolver.INSTANCE.split(digits, offset, length);
+        }
+
+        @Override
+        public void solve(final FourlessPair pair) {
+            this.started.countDown();
+            try {
+                this.release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            SearchSolver.INSTANCE.solve(pair);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static tech.read_only.codejam2019.foregone.FourlessNumber.NAN;
+
+public class SparseDigitsTests {
+    @Test
+    public void behavesLikeByteDigits() {
+        final Random random = new Random(14);
+        final int length = 300;
+        final SparseDigits sparse = new SparseDigits(length, DigitRules.FOURLESS);
+        final ByteDigits dense = new ByteDigits(length, DigitRules.FOURLESS);
+
+        for (int round = 0; round < 5000; round++) {
+            // mostly low digits and clears, the way differences are used
+            final int op = random.nextInt(10);
+            if (op < 6) {
+                final int index = length - 1 - Math.min(random.nextInt(length), random.nextInt(length));
+                final byte value = (byte)random.nextInt(10);
+                sparse.set(index, value);
+                dense.set(index, value);
+            }
+            else if (op < 9) {
+                final int from = random.nextInt(length);
+                final int to = from + random.nextInt(length - from + 1);
+                final byte value = (byte)(random.nextBoolean() ? 0 : random.nextInt(10));
+                sparse.fill(from, to, value);
+                dense.fill(from, to, value);
+            }
+            else {
+                sparse.fill(0, length, (byte)0);
+                dense.fill(0, length, (byte)0);
+            }
+
+            final int from = random.nextInt(length + 1);
+            final byte value = (byte)random.nextInt(10);
+            assertEquals(dense.indexOf(value, from), sparse.indexOf(value, from));
+            assertEquals(dense.indexOfNonZero(from), sparse.indexOfNonZero(from));
+            assertEquals(dense.get(from % length), sparse.get(from % length));
+
+            final byte[] expected = new byte[length - from];
+            final byte[] actual = new byte[length - from];
+            dense.toAscii(from, length, expected, 0);
+            sparse.toAscii(from, length, actual, 0);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void growsOnlyAsFarAsItsDigits() {
+        final SparseDigits digits = new SparseDigits(10_000_000, DigitRules.FOURLESS);
+        digits.set(9_999_997, (byte)3);
+        assertTrue(digits.capacity() < 100);
+
+        digits.set(9_000_000, (byte)1);
+        assertEquals(1_000_000, digits.capacity());
+        assertEquals(3, digits.get(9_999_997));
+        assertEquals(1, digits.get(9_000_000));
+        assertEquals(9_000_000, digits.indexOfNonZero(0));
+
+        // zeroes never need to be stored
+        digits.set(0, (byte)0);
+        assertEquals(1_000_000, digits.capacity());
+    }
+
+    @Test
+    public void shortDifferencesStayShort() {
+        final int length = 10_000_000;
+        final FourlessNumber number = new FourlessNumber(length, FourlessNumber.Storage.BYTES);
+        final char[] digits = new char[length];
+        Arrays.fill(digits, '1');
+        digits[length - 3] = '4';
+        number.init(digits, 0, length);
+
+        final FourlessNumber difference = number.nextNumber(NAN);
+
+        assertEquals(FourlessNumber.Storage.SPARSE, difference.getStorage());
+        assertEquals("89", difference.toString());
+        assertTrue(number.isFourless());
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        final SparseDigits digits = new SparseDigits(100, DigitRules.FOURLESS);
+        digits.set(70, (byte)4);
+
+        final SparseDigits copy = digits.copy();
+        copy.set(70, (byte)5);
+        copy.set(10, (byte)5);
+
+        assertEquals(70, digits.indexOf((byte)4, 0));
+        assertEquals(0, digits.get(10));
+        assertEquals(-1, copy.indexOf((byte)4, 0));
+
+        digits.copyFrom(copy);
+        assertEquals(5, digits.get(10));
+    }
+}
@@ -0,0 +1,88 @@
+package tech.read_only.codejam2019.foregone;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StreamInputTests {
+    private static StreamInput open(final String contents, final int bufferSize) {
+        return open(new ByteArrayInputStream(contents.getBytes(StandardCharsets.US_ASCII)), bufferSize);
+    }
+
+    private static StreamInput open(final InputStream in, final int bufferSize) {
+        return new StreamInput(Channels.newChannel(in), bufferSize);
+    }
+
+    private static List<String> tokens(final StreamInput input) throws IOException {
+        final List<String> tokens = new ArrayList<>();
+        while (input.nextToken()) {
+            tokens.add(new String(input.buffer().array(), input.tokenOffset(), input.tokenLength(),
+                                  StandardCharsets.US_ASCII));
+        }
+        return tokens;
+    }
+
+    @Test
+    public void readsTokens() throws IOException {
+        final StreamInput input = open("3\n12\r\n  345\t6789\n", 1 << 16);
+        assertEquals(3, input.nextInt());
+        assertEquals(Arrays.asList("12", "345", "6789"), tokens(input));
+    }
+
+    @Test
+    public void tokensLongerThanTheBufferGrowIt() throws IOException {
+        final String longToken = "1234567890123456789012345678901234567890";
+        final StreamInput input = open("2\n" + longToken + "\n    \n     98\n", 4);
+        assertEquals(2, input.nextInt());
+        assertEquals(Arrays.asList(longToken, "98"), tokens(input));
+    }
+
+    @Test
+    public void tokensArrivingAFewBytesAtATime() throws IOException {
+        // as from a pipe, each read returns whatever little has arrived
+        final InputStream trickle = new ByteArrayInputStream("2 31415 926\n".getBytes(StandardCharsets.US_ASCII)) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                return super.read(b, off, Math.min(len, 2));
+            }
+        };
+
+        final StreamInput input = open(trickle, 1 << 16);
+        assertEquals(2, input.nextInt());
+        assertEquals(Arrays.asList("31415", "926"), tokens(input));
+    }
+
+    @Test
+    public void tokenAtEndOfStream() throws IOException {
+        final StreamInput input = open("1 4444", 3);
+        assertEquals(1, input.nextInt());
+        assertEquals(Collections.singletonList("4444"), tokens(input));
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        assertFalse(open("", 16).nextToken());
+    }
+
+    @Test(expected = EOFException.class)
+    public void missingNumber() throws IOException {
+        open("  \n", 16).nextInt();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void notANumber() throws IOException {
+        open("12a", 16).nextInt();
+    }
+}